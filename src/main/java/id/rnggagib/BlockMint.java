@@ -3,8 +3,10 @@ package id.rnggagib;
 import id.rnggagib.blockmint.commands.CommandManager;
 import id.rnggagib.blockmint.config.ConfigManager;
 import id.rnggagib.blockmint.database.DatabaseManager;
+import id.rnggagib.blockmint.database.StateSnapshot;
 import id.rnggagib.blockmint.generators.GeneratorManager;
 import id.rnggagib.blockmint.tasks.GeneratorTask;
+import id.rnggagib.blockmint.tasks.TickMonitor;
 import id.rnggagib.blockmint.gui.GUIManager;
 import id.rnggagib.blockmint.listeners.BlockListeners;
 import id.rnggagib.blockmint.listeners.ChunkListeners;
@@ -29,9 +31,9 @@ import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.plugin.RegisteredServiceProvider;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitRunnable;
 import net.kyori.adventure.platform.bukkit.BukkitAudiences;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
@@ -47,6 +49,7 @@ public class BlockMint extends JavaPlugin {
     private GUIManager guiManager;
     private Economy economy;
     private GeneratorTask generatorTask;
+    private TickMonitor tickMonitor;
     private int taskId = -1;
     private PluginUtils utils;
     private NetworkManager networkManager;
@@ -56,6 +59,7 @@ public class BlockMint extends JavaPlugin {
     private boolean isFullyEnabled = false;
     private BukkitAudiences adventure;
     private ChunkManager chunkManager;
+    private StateSnapshot stateSnapshot;
     
     @Override
     public void onEnable() {
@@ -78,6 +82,7 @@ public class BlockMint extends JavaPlugin {
             databaseManager = new DatabaseManager(this);
             databaseManager.initialize();
             databaseManager.fixDatabaseSchema(); // Add this line
+            stateSnapshot = new StateSnapshot(this);
             
             registerEvents();
             
@@ -96,19 +101,16 @@ public class BlockMint extends JavaPlugin {
             // Initialize ChunkManager before loading generators
             chunkManager = new ChunkManager(this);
             
-            // After loading generators, register them with the ChunkManager
+            // Generators are indexed by chunk as they load, so only the task needs replacing here
             getServer().getScheduler().runTaskLater(this, () -> {
-                for (Map.Entry<Location, Generator> entry : generatorManager.getActiveGenerators().entrySet()) {
-                    chunkManager.registerGenerator(entry.getKey());
-                }
-                
                 // Update the GeneratorTask with our optimized version
                 if (generatorTask != null) {
                     generatorTask.cancel();
                 }
                 
+                // Runs every tick, the task keeps itself within its tick budget
                 generatorTask = new GeneratorTask(this);
-                generatorTask.runTaskTimer(this, 20L, 20L);
+                generatorTask.runTaskTimer(this, 20L, 1L);
                 
                 getLogger().info("Performance optimizations initialized");
             }, 40L); // Short delay to ensure everything is initialized
@@ -157,6 +159,9 @@ public class BlockMint extends JavaPlugin {
                 getServer().getScheduler().runTaskLater(this, () -> {
                     networkManager.initialize();
                     
+                    // Changes other servers made while this one was loading are replayed from here
+                    databaseManager.getChangeFeed().start();
+                    
                     getServer().getScheduler().runTaskLater(this, () -> {
                         restoreEntities();
                     }, 20L);
@@ -173,6 +178,10 @@ public class BlockMint extends JavaPlugin {
             getLogger().info("Registered PlaceholderAPI expansion");
         }
         
+        if (generatorManager != null) {
+            generatorManager.activateLoadedChunks();
+        }
+        
         isFullyEnabled = true;
     }
     
@@ -292,6 +301,10 @@ public class BlockMint extends JavaPlugin {
     }
     
     private int estimateCurrentTPS() {
+        if (tickMonitor != null) {
+            return (int) Math.round(tickMonitor.getTps());
+        }
+        
         try {
             Runtime runtime = Runtime.getRuntime();
             long maxMemory = runtime.maxMemory();
@@ -359,10 +372,19 @@ public class BlockMint extends JavaPlugin {
         getLogger().info("Removing all generator holograms...");
         DisplayManager.removeAllHolograms();
         
+        if (generatorManager != null) {
+            getLogger().info("Saving pending generator changes...");
+            generatorManager.getStateStore().shutdown();
+        }
+        
         if (economyManager != null) {
             economyManager.shutdown();
         }
         
+        if (stateSnapshot != null && stateSnapshot.isEnabled() && generatorManager != null && networkManager != null) {
+            saveStateSnapshot();
+        }
+        
         if (networkManager != null) {
             networkManager.shutdown();
         }
@@ -378,6 +400,19 @@ public class BlockMint extends JavaPlugin {
         getLogger().info("BlockMint has been disabled!");
     }
     
+    private void saveStateSnapshot() {
+        StateSnapshot.Writer writer = new StateSnapshot.Writer();
+        try {
+            if (generatorManager.writeSnapshot(writer) && networkManager.writeSnapshot(writer)) {
+                stateSnapshot.save(writer);
+            } else {
+                getLogger().info("Skipping state snapshot, not all generators and networks were loaded");
+            }
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Could not build state snapshot", e);
+        }
+    }
+    
     private void registerEvents() {
         getServer().getPluginManager().registerEvents(new BlockListeners(this), this);
         getServer().getPluginManager().registerEvents(new PlayerListeners(this), this);
@@ -393,6 +428,13 @@ public class BlockMint extends JavaPlugin {
     }
     
     private void startTasks() {
+        tickMonitor = new TickMonitor(this);
+        tickMonitor.start();
+        
+        if (generatorManager != null) {
+            generatorManager.getStateStore().start();
+        }
+        
         int interval = getConfigManager().getConfig().getInt("settings.generator-check-interval", 100);
         generatorTask = new GeneratorTask(this);
         taskId = generatorTask.runTaskTimer(this, interval, interval).getTaskId();
@@ -403,6 +445,14 @@ public class BlockMint extends JavaPlugin {
             getServer().getScheduler().cancelTask(taskId);
             taskId = -1;
         }
+        
+        if (generatorTask != null) {
+            generatorTask.cancel();
+        }
+        
+        if (tickMonitor != null) {
+            tickMonitor.stop();
+        }
     }
     
     private boolean setupEconomy() {
@@ -420,6 +470,7 @@ public class BlockMint extends JavaPlugin {
     public void reload() {
         configManager.reloadConfigs();
         generatorManager.reloadGeneratorTypes();
+        DisplayManager.reloadSettings();
         generatorManager.recreateHolograms();
         getLogger().info("BlockMint configuration reloaded");
     }
@@ -448,6 +499,10 @@ public class BlockMint extends JavaPlugin {
         return databaseManager;
     }
     
+    public StateSnapshot getStateSnapshot() {
+        return stateSnapshot;
+    }
+    
     public GeneratorManager getGeneratorManager() {
         return generatorManager;
     }
@@ -491,10 +546,14 @@ public class BlockMint extends JavaPlugin {
         return chunkManager;
     }
     
-    public BukkitRunnable getGeneratorTask() {
+    public GeneratorTask getGeneratorTask() {
         return generatorTask;
     }
     
+    public TickMonitor getTickMonitor() {
+        return tickMonitor;
+    }
+    
     public static class ChunkLocation {
         final World world;
         final int x;
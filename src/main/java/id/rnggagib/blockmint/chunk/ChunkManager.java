@@ -6,17 +6,12 @@ import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.scheduler.BukkitRunnable;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class ChunkManager {
     private final BlockMint plugin;
-    private final Map<String, Set<Location>> chunkGeneratorMap = new ConcurrentHashMap<>();
-    private final Map<String, Boolean> chunkLoadStatus = new ConcurrentHashMap<>();
     private final AtomicInteger activeChunks = new AtomicInteger(0);
     private final int CHUNK_LOAD_BATCH_SIZE = 5;
     private final int CHUNK_UNLOAD_DELAY = 60; // In seconds
@@ -26,85 +21,58 @@ public class ChunkManager {
         startChunkMonitorTask();
     }
     
-    private String getChunkKey(Chunk chunk) {
-        return chunk.getWorld().getName() + ":" + chunk.getX() + ":" + chunk.getZ();
-    }
-    
-    private String getChunkKey(Location location) {
-        return location.getWorld().getName() + ":" + (location.getBlockX() >> 4) + ":" + (location.getBlockZ() >> 4);
-    }
-    
-    public void registerGenerator(Location location) {
-        String chunkKey = getChunkKey(location);
-        chunkGeneratorMap.computeIfAbsent(chunkKey, k -> ConcurrentHashMap.newKeySet()).add(location);
-    }
-    
-    public void unregisterGenerator(Location location) {
-        String chunkKey = getChunkKey(location);
-        Set<Location> generators = chunkGeneratorMap.get(chunkKey);
-        if (generators != null) {
-            generators.remove(location);
-            if (generators.isEmpty()) {
-                chunkGeneratorMap.remove(chunkKey);
-            }
-        }
+    private GeneratorChunkIndex getIndex() {
+        return plugin.getGeneratorManager().getChunkIndex();
     }
     
     public void handleChunkLoad(Chunk chunk) {
-        String chunkKey = getChunkKey(chunk);
-        chunkLoadStatus.put(chunkKey, true);
         activeChunks.incrementAndGet();
         
-        Set<Location> generators = chunkGeneratorMap.get(chunkKey);
-        if (generators != null && !generators.isEmpty()) {
+        if (getIndex().hasGenerators(chunk.getWorld(), chunk.getX(), chunk.getZ())) {
             plugin.getGeneratorManager().handleChunkLoad(chunk);
         }
     }
     
     public void handleChunkUnload(Chunk chunk) {
-        String chunkKey = getChunkKey(chunk);
-        chunkLoadStatus.put(chunkKey, false);
         activeChunks.decrementAndGet();
         
-        Set<Location> generators = chunkGeneratorMap.get(chunkKey);
-        if (generators != null && !generators.isEmpty()) {
+        if (getIndex().hasGenerators(chunk.getWorld(), chunk.getX(), chunk.getZ())) {
             plugin.getGeneratorManager().handleChunkUnload(chunk);
         }
     }
     
     public boolean isChunkLoaded(Location location) {
-        String chunkKey = getChunkKey(location);
-        Boolean status = chunkLoadStatus.get(chunkKey);
-        if (status != null) {
-            return status;
-        }
-        
-        Chunk chunk = location.getChunk();
-        boolean isLoaded = chunk.isLoaded();
-        chunkLoadStatus.put(chunkKey, isLoaded);
-        return isLoaded;
+        return location.getWorld() != null
+                && location.getWorld().isChunkLoaded(location.getBlockX() >> 4, location.getBlockZ() >> 4);
     }
     
     public int getActiveChunkCount() {
         return activeChunks.get();
     }
     
-    public Set<Location> getGeneratorsInChunk(Chunk chunk) {
-        String chunkKey = getChunkKey(chunk);
-        return chunkGeneratorMap.getOrDefault(chunkKey, new HashSet<>());
+    public int[] getGeneratorsInChunk(Chunk chunk) {
+        return getIndex().getGeneratorIds(chunk);
     }
     
     private void startChunkMonitorTask() {
         new BukkitRunnable() {
             @Override
             public void run() {
-                int totalChunks = chunkGeneratorMap.size();
+                if (plugin.getGeneratorManager() == null) return;
+                
+                int totalChunks = 0;
                 int loaded = 0;
                 
-                for (String chunkKey : chunkGeneratorMap.keySet()) {
-                    Boolean status = chunkLoadStatus.get(chunkKey);
-                    if (status != null && status) {
-                        loaded++;
+                for (World world : getIndex().getIndexedWorlds()) {
+                    LongIntArrayMap index = getIndex().getWorldIndex(world);
+                    for (int slot = 0; slot < index.capacity(); slot++) {
+                        if (index.valueAt(slot) == null) continue;
+                        
+                        long key = index.keyAt(slot);
+                        totalChunks++;
+                        if (world.isChunkLoaded(GeneratorChunkIndex.chunkX(key), GeneratorChunkIndex.chunkZ(key))) {
+                            loaded++;
+                        }
                     }
                 }
                 
@@ -114,23 +82,24 @@ public class ChunkManager {
     }
     
     public void prioritizeChunksAroundPlayers() {
-        Map<String, Integer> chunkPriority = new HashMap<>();
+        GeneratorChunkIndex index = getIndex();
+        List<long[]> toLoad = new ArrayList<>();
+        List<World> toLoadWorlds = new ArrayList<>();
         
-        // Prioritize chunks near players
-        for (World world : plugin.getServer().getWorlds()) {
-            for (org.bukkit.entity.Player player : world.getPlayers()) {
-                Location loc = player.getLocation();
-                
-                // Prioritize the 5x5 chunk area around the player
-                for (int x = -2; x <= 2; x++) {
-                    for (int z = -2; z <= 2; z++) {
-                        int chunkX = (loc.getBlockX() >> 4) + x;
-                        int chunkZ = (loc.getBlockZ() >> 4) + z;
-                        String key = world.getName() + ":" + chunkX + ":" + chunkZ;
-                        
-                        // Calculate priority - center chunks have higher priority
-                        int priority = 5 - (Math.abs(x) + Math.abs(z));
-                        chunkPriority.put(key, Math.max(chunkPriority.getOrDefault(key, 0), priority));
+        // Prioritize the chunks closest to players, walking outwards ring by ring
+        for (int ring = 0; ring <= 2 && toLoad.size() < CHUNK_LOAD_BATCH_SIZE; ring++) {
+            for (World world : plugin.getServer().getWorlds()) {
+                for (org.bukkit.entity.Player player : world.getPlayers()) {
+                    Location loc = player.getLocation();
+                    int baseX = loc.getBlockX() >> 4;
+                    int baseZ = loc.getBlockZ() >> 4;
+                    
+                    for (int x = -ring; x <= ring; x++) {
+                        int z = ring - Math.abs(x);
+                        checkChunkForLoading(index, world, baseX + x, baseZ + z, toLoad, toLoadWorlds);
+                        if (z != 0) {
+                            checkChunkForLoading(index, world, baseX + x, baseZ - z, toLoad, toLoadWorlds);
+                        }
                     }
                 }
             }
@@ -142,30 +111,27 @@ public class ChunkManager {
             public void run() {
                 int loaded = 0;
                 
-                for (Map.Entry<String, Integer> entry : chunkPriority.entrySet()) {
-                    if (loaded >= CHUNK_LOAD_BATCH_SIZE) break;
-                    
-                    String key = entry.getKey();
-                    int priority = entry.getValue();
+                for (int i = 0; i < toLoad.size() && loaded < CHUNK_LOAD_BATCH_SIZE; i++) {
+                    World world = toLoadWorlds.get(i);
+                    int x = (int) toLoad.get(i)[0];
+                    int z = (int) toLoad.get(i)[1];
                     
-                    if (priority >= 3 && chunkGeneratorMap.containsKey(key)) {
-                        Boolean status = chunkLoadStatus.get(key);
-                        if (status == null || !status) {
-                            String[] parts = key.split(":");
-                            World world = plugin.getServer().getWorld(parts[0]);
-                            if (world != null) {
-                                int x = Integer.parseInt(parts[1]);
-                                int z = Integer.parseInt(parts[2]);
-                                
-                                if (!world.isChunkLoaded(x, z)) {
-                                    world.loadChunk(x, z, true);
-                                    loaded++;
-                                }
-                            }
-                        }
+                    if (!world.isChunkLoaded(x, z)) {
+                        world.loadChunk(x, z, true);
+                        loaded++;
                     }
                 }
             }
         }.runTask(plugin);
     }
-}
\ No newline at end of file
+    
+    private void checkChunkForLoading(GeneratorChunkIndex index, World world, int chunkX, int chunkZ,
+                                      List<long[]> toLoad, List<World> toLoadWorlds) {
+        if (toLoad.size() >= CHUNK_LOAD_BATCH_SIZE) return;
+        
+        if (index.hasGenerators(world, chunkX, chunkZ) && !world.isChunkLoaded(chunkX, chunkZ)) {
+            toLoad.add(new long[]{chunkX, chunkZ});
+            toLoadWorlds.add(world);
+        }
+    }
+}
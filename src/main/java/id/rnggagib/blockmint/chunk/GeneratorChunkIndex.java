@@ -0,0 +1,101 @@
+package id.rnggagib.blockmint.chunk;
+
+import id.rnggagib.blockmint.generators.Generator;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class GeneratorChunkIndex {
+    
+    private static final int[] EMPTY = new int[0];
+    
+    private final Map<World, LongIntArrayMap> worlds = new HashMap<>();
+    
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+    
+    public static long chunkKey(Location location) {
+        return chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+    }
+    
+    public static int chunkX(long key) {
+        return (int) (key >> 32);
+    }
+    
+    public static int chunkZ(long key) {
+        return (int) key;
+    }
+    
+    public void add(Generator generator) {
+        Location location = generator.getLocation();
+        if (location.getWorld() == null) return;
+        
+        worlds.computeIfAbsent(location.getWorld(), w -> new LongIntArrayMap())
+                .add(chunkKey(location), generator.getId());
+    }
+    
+    public void add(World world, long chunkKey, int generatorId) {
+        worlds.computeIfAbsent(world, w -> new LongIntArrayMap()).add(chunkKey, generatorId);
+    }
+    
+    public void remove(World world, long chunkKey, int generatorId) {
+        LongIntArrayMap index = worlds.get(world);
+        if (index != null) {
+            index.remove(chunkKey, generatorId);
+        }
+    }
+    
+    public void remove(Generator generator) {
+        Location location = generator.getLocation();
+        if (location.getWorld() == null) return;
+        
+        LongIntArrayMap index = worlds.get(location.getWorld());
+        if (index != null) {
+            index.remove(chunkKey(location), generator.getId());
+        }
+    }
+    
+    public int[] getGeneratorIds(World world, int chunkX, int chunkZ) {
+        LongIntArrayMap index = worlds.get(world);
+        if (index == null) {
+            return EMPTY;
+        }
+        int[] ids = index.get(chunkKey(chunkX, chunkZ));
+        return ids != null ? ids : EMPTY;
+    }
+    
+    public int[] getGeneratorIds(Chunk chunk) {
+        return getGeneratorIds(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+    
+    public boolean hasGenerators(World world, int chunkX, int chunkZ) {
+        LongIntArrayMap index = worlds.get(world);
+        return index != null && index.containsKey(chunkKey(chunkX, chunkZ));
+    }
+    
+    public LongIntArrayMap getWorldIndex(World world) {
+        return worlds.get(world);
+    }
+    
+    public List<World> getIndexedWorlds() {
+        return new ArrayList<>(worlds.keySet());
+    }
+    
+    public int getChunkCount() {
+        int count = 0;
+        for (LongIntArrayMap index : worlds.values()) {
+            count += index.size();
+        }
+        return count;
+    }
+    
+    public void clear() {
+        worlds.clear();
+    }
+}
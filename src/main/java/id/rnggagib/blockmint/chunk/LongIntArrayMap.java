@@ -0,0 +1,175 @@
+package id.rnggagib.blockmint.chunk;
+
+import java.util.Arrays;
+
+public class LongIntArrayMap {
+    
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final float LOAD_FACTOR = 0.6f;
+    
+    // Open addressing with linear probing; a slot is empty when its value is null
+    private long[] keys;
+    private int[][] values;
+    private int size;
+    private int resizeThreshold;
+    
+    public LongIntArrayMap() {
+        allocate(DEFAULT_CAPACITY);
+    }
+    
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity][];
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+    
+    public int[] get(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+    
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+    
+    public boolean add(long key, int value) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                int[] current = values[slot];
+                for (int existing : current) {
+                    if (existing == value) {
+                        return false;
+                    }
+                }
+                // Arrays are replaced rather than mutated so callers can hold on to the result of get()
+                int[] grown = Arrays.copyOf(current, current.length + 1);
+                grown[current.length] = value;
+                values[slot] = grown;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        keys[slot] = key;
+        values[slot] = new int[]{value};
+        if (++size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+    
+    public boolean remove(long key, int value) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                int[] current = values[slot];
+                int index = -1;
+                for (int i = 0; i < current.length; i++) {
+                    if (current[i] == value) {
+                        index = i;
+                        break;
+                    }
+                }
+                if (index < 0) {
+                    return false;
+                }
+                if (current.length == 1) {
+                    removeSlot(slot);
+                } else {
+                    int[] shrunk = new int[current.length - 1];
+                    System.arraycopy(current, 0, shrunk, 0, index);
+                    System.arraycopy(current, index + 1, shrunk, index, current.length - index - 1);
+                    values[slot] = shrunk;
+                }
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+    
+    private void removeSlot(int slot) {
+        int mask = keys.length - 1;
+        values[slot] = null;
+        size--;
+        
+        // Shift following entries back so probe chains stay unbroken without tombstones
+        int next = (slot + 1) & mask;
+        while (values[next] != null) {
+            int home = mix(keys[next]) & mask;
+            boolean movable = slot <= next ? (home <= slot || home > next) : (home <= slot && home > next);
+            if (movable) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                values[next] = null;
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+    
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[][] oldValues = values;
+        allocate(capacity);
+        
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == null) continue;
+            int slot = mix(oldKeys[i]) & mask;
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+    
+    public void clear() {
+        allocate(DEFAULT_CAPACITY);
+        size = 0;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int capacity() {
+        return keys.length;
+    }
+    
+    // A copy, so a caller can walk it across ticks while entries move around underneath
+    public long[] keys() {
+        long[] result = new long[size];
+        int count = 0;
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                result[count++] = keys[slot];
+            }
+        }
+        return result;
+    }
+    
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+    
+    public int[] valueAt(int slot) {
+        return values[slot];
+    }
+    
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,133 @@
+package id.rnggagib.blockmint.chunk;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class PlayerSpatialGrid {
+    
+    // Player positions bucketed into chunk-sized cells, rebuilt once per tick
+    private final Map<World, LongIntArrayMap> cells = new HashMap<>();
+    private final Map<UUID, Integer> playerSlots = new HashMap<>();
+    private final Location scratch = new Location(null, 0, 0, 0);
+    private Player[] players = new Player[0];
+    private World[] worlds = new World[0];
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private double[] zs = new double[0];
+    private int count;
+    
+    public void rebuild(Collection<? extends Player> onlinePlayers) {
+        for (LongIntArrayMap worldCells : cells.values()) {
+            worldCells.clear();
+        }
+        playerSlots.clear();
+        ensureCapacity(onlinePlayers.size());
+        
+        // Drop references to players from the previous tick
+        Arrays.fill(players, 0, count, null);
+        Arrays.fill(worlds, 0, count, null);
+        count = 0;
+        
+        for (Player player : onlinePlayers) {
+            Location location = player.getLocation(scratch);
+            World world = location.getWorld();
+            if (world == null) continue;
+            
+            players[count] = player;
+            worlds[count] = world;
+            xs[count] = location.getX();
+            ys[count] = location.getY();
+            zs[count] = location.getZ();
+            
+            cells.computeIfAbsent(world, w -> new LongIntArrayMap())
+                    .add(GeneratorChunkIndex.chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4), count);
+            playerSlots.put(player.getUniqueId(), count);
+            count++;
+        }
+    }
+    
+    private void ensureCapacity(int size) {
+        if (players.length >= size) return;
+        
+        int capacity = Math.max(size, players.length * 2);
+        players = new Player[capacity];
+        worlds = new World[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        zs = new double[capacity];
+    }
+    
+    public boolean hasPlayerWithin(Location location, double range) {
+        return findNearby(location.getWorld(), location.getX(), location.getY(), location.getZ(), range, true, null) >= 0;
+    }
+    
+    public boolean hasPlayerNear(World world, double x, double z, double range) {
+        return findNearby(world, x, 0, z, range, false, null) >= 0;
+    }
+    
+    public List<Player> getPlayersWithin(Location location, double range) {
+        List<Player> result = new ArrayList<>();
+        findNearby(location.getWorld(), location.getX(), location.getY(), location.getZ(), range, true, result);
+        return result;
+    }
+    
+    public Player getPlayerWithin(UUID playerUuid, Location location, double range) {
+        Integer slot = playerSlots.get(playerUuid);
+        if (slot == null || worlds[slot] != location.getWorld()) {
+            return null;
+        }
+        
+        double dx = xs[slot] - location.getX();
+        double dy = ys[slot] - location.getY();
+        double dz = zs[slot] - location.getZ();
+        return dx * dx + dy * dy + dz * dz <= range * range ? players[slot] : null;
+    }
+    
+    private int findNearby(World world, double x, double y, double z, double range, boolean vertical, List<Player> result) {
+        LongIntArrayMap worldCells = cells.get(world);
+        if (worldCells == null || worldCells.size() == 0) {
+            return -1;
+        }
+        
+        double rangeSquared = range * range;
+        int minChunkX = (int) Math.floor(x - range) >> 4;
+        int maxChunkX = (int) Math.floor(x + range) >> 4;
+        int minChunkZ = (int) Math.floor(z - range) >> 4;
+        int maxChunkZ = (int) Math.floor(z + range) >> 4;
+        int found = -1;
+        
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                int[] slots = worldCells.get(GeneratorChunkIndex.chunkKey(chunkX, chunkZ));
+                if (slots == null) continue;
+                
+                for (int slot : slots) {
+                    double dx = xs[slot] - x;
+                    double dy = vertical ? ys[slot] - y : 0;
+                    double dz = zs[slot] - z;
+                    if (dx * dx + dy * dy + dz * dz > rangeSquared) continue;
+                    
+                    if (result == null) {
+                        return slot;
+                    }
+                    result.add(players[slot]);
+                    found = slot;
+                }
+            }
+        }
+        return found;
+    }
+    
+    public int getPlayerCount() {
+        return count;
+    }
+}
@@ -32,6 +32,7 @@ public class CommandManager implements CommandExecutor, TabCompleter {
         subCommands.put("manage", new ManageCommand(plugin));
         subCommands.put("network", new NetworkCommand(plugin));
         subCommands.put("evolve", new EvolveCommand(plugin)); // Add the new command
+        subCommands.put("performance", new PerformanceCommand(plugin));
         
         // Get the network command
         NetworkCommand networkCommand = (NetworkCommand) subCommands.get("network");
@@ -12,8 +12,6 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.Location;
 
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -74,7 +72,7 @@ public class EvolveCommand implements SubCommand {
             return;
         }
 
-        Generator generator = findGenerator(generatorId);
+        Generator generator = plugin.getGeneratorManager().findGeneratorById(generatorId);
         if (generator == null) {
             plugin.getMessageManager().send(player, "command.evolve.not-found");
             return;
@@ -122,8 +120,8 @@ public class EvolveCommand implements SubCommand {
         
         if (args.length == 2) {
             List<String> generatorIds = new ArrayList<>();
-            for (Generator generator : plugin.getGeneratorManager().getActiveGenerators().values()) {
-                if (generator.getOwner().equals(player.getUniqueId()) && generator.isEvolutionReady()) {
+            for (Generator generator : plugin.getGeneratorManager().getPlayerGenerators(player.getUniqueId())) {
+                if (generator.isEvolutionReady()) {
                     generatorIds.add(String.valueOf(generator.getId()));
                 }
             }
@@ -133,15 +131,6 @@ public class EvolveCommand implements SubCommand {
         return new ArrayList<>();
     }
     
-    private Generator findGenerator(int generatorId) {
-        for (Generator generator : plugin.getGeneratorManager().getActiveGenerators().values()) {
-            if (generator.getId() == generatorId) {
-                return generator;
-            }
-        }
-        return null;
-    }
-    
     private void evolveGenerator(Generator generator, GeneratorType nextType, Player player) {
         Location location = generator.getLocation();
         
@@ -149,10 +138,11 @@ public class EvolveCommand implements SubCommand {
         String oldTypeName = generator.getType().getName();
         
         // Update generator properties
+        plugin.getEconomyManager().getMetrics().generatorTypeChanged(generator.getType().getId(), nextType.getId());
         generator.setType(nextType);
         
         // Reset evolution tracking but keep level
-        updateGeneratorTypeAsync(generator.getId(), nextType.getId());
+        generator.resetEvolutionProgress();
         
         // Update the block type
         if (location.getChunk().isLoaded()) {
@@ -173,21 +163,6 @@ public class EvolveCommand implements SubCommand {
         plugin.getMessageManager().send(player, "command.evolve.success", placeholders);
     }
     
-    private void updateGeneratorTypeAsync(final int generatorId, final String newType) {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                        "UPDATE generators SET type = ?, usage_count = 0, resources_generated = 0 WHERE id = ?"
-                );
-                stmt.setString(1, newType);
-                stmt.setInt(2, generatorId);
-                stmt.executeUpdate();
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Could not update generator type in database: " + e.getMessage());
-            }
-        });
-    }
-    
     private void playEvolutionEffects(Location location) {
         Location effectLoc = location.clone().add(0.5, 1.2, 0.5);
         
@@ -207,13 +207,7 @@ public class NetworkCommand implements SubCommand {
         player.sendMessage(ChatColor.GOLD + "Connected Generators:");
         
         for (int generatorId : network.getConnectedGenerators()) {
-            Generator generator = null;
-            for (Generator g : plugin.getGeneratorManager().getActiveGenerators().values()) {
-                if (g.getId() == generatorId) {
-                    generator = g;
-                    break;
-                }
-            }
+            Generator generator = plugin.getGeneratorManager().findGeneratorById(generatorId);
             
             if (generator != null) {
                 Location loc = generator.getLocation();
@@ -259,13 +253,7 @@ public class NetworkCommand implements SubCommand {
             return;
         }
         
-        Generator generator = null;
-        for (Generator g : plugin.getGeneratorManager().getActiveGenerators().values()) {
-            if (g.getId() == generatorId) {
-                generator = g;
-                break;
-            }
-        }
+        Generator generator = plugin.getGeneratorManager().findGeneratorById(generatorId);
         
         if (generator == null) {
             player.sendMessage(ChatColor.RED + "Generator not found with ID: " + generatorId);
@@ -301,13 +289,7 @@ public class NetworkCommand implements SubCommand {
             return;
         }
         
-        Generator generator = null;
-        for (Generator g : plugin.getGeneratorManager().getActiveGenerators().values()) {
-            if (g.getId() == generatorId) {
-                generator = g;
-                break;
-            }
-        }
+        Generator generator = plugin.getGeneratorManager().findGeneratorById(generatorId);
         
         if (generator == null) {
             player.sendMessage(ChatColor.RED + "Generator not found with ID: " + generatorId);
@@ -505,8 +487,7 @@ public class NetworkCommand implements SubCommand {
                             .filter(name -> name.toLowerCase().startsWith(args[2].toLowerCase()))
                             .collect(Collectors.toList());
                 case "remove":
-                    return plugin.getGeneratorManager().getActiveGenerators().values().stream()
-                            .filter(g -> g.getOwner().equals(((Player) sender).getUniqueId()))
+                    return plugin.getGeneratorManager().getPlayerGenerators(((Player) sender).getUniqueId()).stream()
                             .filter(g -> plugin.getNetworkManager().getGeneratorNetwork(g.getId()) != null)
                             .map(g -> String.valueOf(g.getId()))
                             .filter(s -> s.startsWith(args[2]))
@@ -521,8 +502,7 @@ public class NetworkCommand implements SubCommand {
                         .filter(s -> s.toLowerCase().startsWith(args[3].toLowerCase()))
                         .collect(Collectors.toList());
             } else if (args[1].equalsIgnoreCase("add")) {
-                return plugin.getGeneratorManager().getActiveGenerators().values().stream()
-                        .filter(g -> g.getOwner().equals(((Player) sender).getUniqueId()))
+                return plugin.getGeneratorManager().getPlayerGenerators(((Player) sender).getUniqueId()).stream()
                         .map(g -> String.valueOf(g.getId()))
                         .filter(s -> s.startsWith(args[3]))
                         .collect(Collectors.toList());
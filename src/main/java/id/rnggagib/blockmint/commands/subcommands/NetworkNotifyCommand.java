@@ -2,17 +2,16 @@ package id.rnggagib.blockmint.commands.subcommands;
 
 import id.rnggagib.BlockMint;
 import id.rnggagib.blockmint.commands.SubCommand;
+import id.rnggagib.blockmint.database.ReadConsistency;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public class NetworkNotifyCommand implements SubCommand {
 
@@ -57,38 +56,33 @@ public class NetworkNotifyCommand implements SubCommand {
         
         UUID playerUuid = player.getUniqueId();
         
-        plugin.getDatabaseManager().executeAsync(
-            "SELECT network_notifications FROM player_stats WHERE uuid = '" + playerUuid.toString() + "'",
-            resultSet -> {
-                try {
-                    boolean currentSetting = false;
-                    if (resultSet.next()) {
-                        currentSetting = resultSet.getBoolean("network_notifications");
-                    }
-                    
-                    boolean newSetting = !currentSetting;
-                    
-                    plugin.getDatabaseManager().updateAsync(
-                        "UPDATE player_stats SET network_notifications = " + (newSetting ? "1" : "0") + 
-                        " WHERE uuid = '" + playerUuid.toString() + "'",
-                        result -> {
-                            notificationSettings.put(playerUuid, newSetting);
-                            plugin.getServer().getScheduler().runTask(plugin, () -> {
-                                if (newSetting) {
-                                    plugin.getMessageManager().send(player, "network.notifications-enabled");
-                                } else {
-                                    plugin.getMessageManager().send(player, "network.notifications-disabled");
-                                }
-                            });
-                        },
-                        error -> plugin.getLogger().severe("Error updating network notification setting: " + error.getMessage())
-                    );
-                } catch (SQLException e) {
-                    plugin.getLogger().severe("Error processing notification settings: " + e.getMessage());
+        readSetting(playerUuid).thenCompose(currentSetting -> {
+            boolean newSetting = !currentSetting;
+            plugin.getDatabaseManager().markWrite(playerUuid);
+            return plugin.getDatabaseManager().updateAsync(
+                "UPDATE player_stats SET network_notifications = ? WHERE uuid = ?", newSetting ? 1 : 0, playerUuid.toString()
+            ).thenApply(result -> newSetting);
+        }).whenComplete((newSetting, error) -> {
+            if (error != null) {
+                plugin.getLogger().severe("Error updating network notification setting: " + error.getMessage());
+                return;
+            }
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                notificationSettings.put(playerUuid, newSetting);
+                if (newSetting) {
+                    plugin.getMessageManager().send(player, "network.notifications-enabled");
+                } else {
+                    plugin.getMessageManager().send(player, "network.notifications-disabled");
                 }
-            },
-            error -> plugin.getLogger().severe("Error querying network notification setting: " + error.getMessage())
-        );
+            });
+        });
+    }
+    
+    private CompletableFuture<Boolean> readSetting(UUID playerUuid) {
+        // The player's own toggle has to be visible here even if the read pool is behind
+        return plugin.getDatabaseManager().readCached(ReadConsistency.READ_YOUR_WRITES, playerUuid,
+                "SELECT network_notifications FROM player_stats WHERE uuid = ?",
+                rs -> rs.next() && rs.getBoolean("network_notifications"), playerUuid.toString());
     }
     
     public boolean shouldNotify(UUID playerUuid) {
@@ -96,21 +90,13 @@ public class NetworkNotifyCommand implements SubCommand {
     }
     
     public void loadPlayerSetting(UUID playerUuid) {
-        plugin.getDatabaseManager().executeAsync(
-            "SELECT network_notifications FROM player_stats WHERE uuid = '" + playerUuid.toString() + "'",
-            resultSet -> {
-                try {
-                    if (resultSet.next()) {
-                        notificationSettings.put(playerUuid, resultSet.getBoolean("network_notifications"));
-                    } else {
-                        notificationSettings.put(playerUuid, false);
-                    }
-                } catch (SQLException e) {
-                    plugin.getLogger().severe("Error loading player notification setting: " + e.getMessage());
-                }
-            },
-            error -> plugin.getLogger().severe("Error querying player notification setting: " + error.getMessage())
-        );
+        readSetting(playerUuid).whenComplete((setting, error) -> {
+            if (error != null) {
+                plugin.getLogger().severe("Error querying player notification setting: " + error.getMessage());
+                return;
+            }
+            plugin.getServer().getScheduler().runTask(plugin, () -> notificationSettings.put(playerUuid, setting));
+        });
     }
 
     @Override
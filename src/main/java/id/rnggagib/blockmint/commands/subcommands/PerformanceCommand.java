@@ -0,0 +1,109 @@
+package id.rnggagib.blockmint.commands.subcommands;
+
+import id.rnggagib.BlockMint;
+import id.rnggagib.blockmint.commands.SubCommand;
+import id.rnggagib.blockmint.database.DatabaseExecutor;
+import id.rnggagib.blockmint.database.QueryCache;
+import id.rnggagib.blockmint.database.SQLiteWriter;
+import id.rnggagib.blockmint.tasks.GeneratorTask;
+import id.rnggagib.blockmint.tasks.TickMonitor;
+import org.bukkit.command.CommandSender;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PerformanceCommand implements SubCommand {
+    
+    private final BlockMint plugin;
+    
+    public PerformanceCommand(BlockMint plugin) {
+        this.plugin = plugin;
+    }
+    
+    @Override
+    public String getName() {
+        return "performance";
+    }
+    
+    @Override
+    public String getDescription() {
+        return "Shows the generator processing budget";
+    }
+    
+    @Override
+    public String getSyntax() {
+        return "/blockmint performance";
+    }
+    
+    @Override
+    public String getPermission() {
+        return "blockmint.admin.performance";
+    }
+    
+    @Override
+    public boolean requiresPlayer() {
+        return false;
+    }
+    
+    @Override
+    public void execute(CommandSender sender, String[] args) {
+        TickMonitor tickMonitor = plugin.getTickMonitor();
+        GeneratorTask generatorTask = plugin.getGeneratorTask();
+        
+        if (tickMonitor == null || generatorTask == null) {
+            plugin.getMessageManager().send(sender, "commands.performance-unavailable");
+            return;
+        }
+        
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("mspt", String.format("%.2f", tickMonitor.getMspt()));
+        placeholders.put("tps", String.format("%.2f", tickMonitor.getTps()));
+        placeholders.put("source", tickMonitor.isUsingServerTimings() ? "server" : "sampler");
+        placeholders.put("budget", String.format("%.2f", generatorTask.getTickBudgetMillis()));
+        placeholders.put("backlog", String.valueOf(generatorTask.getReadyBacklogSize()));
+        placeholders.put("scheduled", String.valueOf(plugin.getGeneratorManager().getReadinessScheduler().size()));
+        placeholders.put("chunks", String.valueOf(generatorTask.getIndexedChunkCount()));
+        
+        plugin.getMessageManager().send(sender, "commands.performance-header", placeholders);
+        plugin.getMessageManager().send(sender, "commands.performance-tick", placeholders);
+        plugin.getMessageManager().send(sender, "commands.performance-budget", placeholders);
+        plugin.getMessageManager().send(sender, "commands.performance-queue", placeholders);
+        
+        DatabaseExecutor dbExecutor = plugin.getDatabaseManager().getExecutor();
+        if (dbExecutor != null) {
+            placeholders.put("db_active", String.valueOf(dbExecutor.getActiveCount()));
+            placeholders.put("db_threads", String.valueOf(dbExecutor.getPoolSize()));
+            placeholders.put("db_queued", String.valueOf(dbExecutor.getQueueDepth()));
+            placeholders.put("db_wait", String.format("%.2f", dbExecutor.getAverageWaitMillis()));
+            placeholders.put("db_exec", String.format("%.2f", dbExecutor.getAverageExecMillis()));
+            placeholders.put("db_rejected", String.valueOf(dbExecutor.getCallerRunsCount()));
+            placeholders.put("db_refused", String.valueOf(dbExecutor.getRejectedCount()));
+            placeholders.put("db_deferred", String.valueOf(dbExecutor.getDeferredCount()));
+            plugin.getMessageManager().send(sender, "commands.performance-database", placeholders);
+        }
+        
+        QueryCache queryCache = plugin.getDatabaseManager().getQueryCache();
+        placeholders.put("cache_size", String.valueOf(queryCache.size()));
+        placeholders.put("cache_hit_rate", String.format("%.1f", queryCache.getHitRate() * 100));
+        placeholders.put("cache_evictions", String.valueOf(queryCache.getEvictions()));
+        placeholders.put("cache_invalidations", String.valueOf(queryCache.getInvalidations()));
+        placeholders.put("cache_load", String.format("%.2f", queryCache.getAverageLoadMillis()));
+        plugin.getMessageManager().send(sender, "commands.performance-cache", placeholders);
+        
+        SQLiteWriter sqliteWriter = plugin.getDatabaseManager().getSQLiteWriter();
+        if (sqliteWriter != null) {
+            placeholders.put("writer_queued", String.valueOf(sqliteWriter.getQueueDepth()));
+            placeholders.put("writer_commits", String.valueOf(sqliteWriter.getTransactionCount()));
+            placeholders.put("writer_batch", String.format("%.1f", sqliteWriter.getAverageBatchSize()));
+            placeholders.put("writer_failed", String.valueOf(sqliteWriter.getFailedWriteCount()));
+            placeholders.put("writer_refused", String.valueOf(sqliteWriter.getRejectedCount()));
+            plugin.getMessageManager().send(sender, "commands.performance-sqlite-writer", placeholders);
+        }
+    }
+    
+    @Override
+    public List<String> getTabCompletions(CommandSender sender, String[] args) {
+        return List.of();
+    }
+}
@@ -0,0 +1,344 @@
+package id.rnggagib.blockmint.database;
+
+import id.rnggagib.BlockMint;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+public class BatchWriter {
+    
+    private final BlockMint plugin;
+    private final DatabaseManager databaseManager;
+    private final int sizeThreshold;
+    private final long timeThresholdMillis;
+    private final int maxAttempts;
+    
+    // Operations in the order they were queued, guarded by this
+    private final Deque<Operation> pending = new ArrayDeque<>();
+    private long oldestPending;
+    private CompletableFuture<Void> inFlight = CompletableFuture.completedFuture(null);
+    private BukkitTask timer;
+    
+    private final AtomicLong queuedOperations = new AtomicLong();
+    private final AtomicLong writtenRows = new AtomicLong();
+    private final AtomicLong retriedOperations = new AtomicLong();
+    private final AtomicLong droppedOperations = new AtomicLong();
+    
+    public BatchWriter(BlockMint plugin, DatabaseManager databaseManager, int sizeThreshold, long timeThresholdMillis, int maxAttempts) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+        this.sizeThreshold = sizeThreshold;
+        this.timeThresholdMillis = timeThresholdMillis;
+        this.maxAttempts = maxAttempts;
+    }
+    
+    public void start() {
+        long checkTicks = Math.max(1L, timeThresholdMillis / 50 / 2);
+        timer = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::flushIfDue, checkTicks, checkTicks);
+    }
+    
+    // Operations keep their order relative to others with the same key, operations without one share a key
+    public void add(Object key, String sql, Object[] params) {
+        queue(new Operation(key, sql, params, null, 0));
+    }
+    
+    public void addIncrement(Object key, String sql, double amount, Object... rowParams) {
+        // The first parameter is the delta, the rest identify the row, so deltas for one row can be summed
+        queue(new Operation(key, sql, null, Arrays.asList(rowParams), amount));
+    }
+    
+    private void queue(Operation operation) {
+        boolean full;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                oldestPending = System.currentTimeMillis();
+            }
+            pending.addLast(operation);
+            full = pending.size() >= sizeThreshold;
+        }
+        queuedOperations.incrementAndGet();
+        if (full) {
+            flushAsync();
+        }
+    }
+    
+    private void flushIfDue() {
+        boolean due;
+        synchronized (this) {
+            due = !pending.isEmpty() && System.currentTimeMillis() - oldestPending >= timeThresholdMillis;
+        }
+        if (due) {
+            flushAsync();
+        }
+    }
+    
+    public void flushAsync() {
+        synchronized (this) {
+            List<Operation> operations = drain();
+            if (operations.isEmpty()) return;
+            
+            // Chained so batches reach the database in the order they were drained
+            inFlight = databaseManager.getExecutor().executeAfter(inFlight, () -> write(operations), error -> {
+                plugin.getLogger().log(Level.SEVERE, "Batch write did not run, keeping the operations for the next one", error);
+                requeue(operations);
+            });
+        }
+    }
+    
+    public void shutdown() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+        
+        try {
+            inFlight.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.WARNING, "Pending batch write did not finish before shutdown", e);
+        }
+        
+        List<Operation> operations;
+        synchronized (this) {
+            operations = drain();
+        }
+        if (!operations.isEmpty()) {
+            write(operations);
+        }
+    }
+    
+    private List<Operation> drain() {
+        List<Operation> operations = new ArrayList<>(pending);
+        pending.clear();
+        return operations;
+    }
+    
+    private synchronized void requeue(List<Operation> operations) {
+        // Back in front of anything queued since, so each key still sees its operations in order
+        for (int i = operations.size() - 1; i >= 0; i--) {
+            pending.addFirst(operations.get(i));
+        }
+        if (!operations.isEmpty()) {
+            oldestPending = Math.min(oldestPending, System.currentTimeMillis());
+        }
+    }
+    
+    private void write(List<Operation> operations) {
+        List<Group> groups = plan(operations);
+        Set<Operation> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+        try {
+            int rows = databaseManager.queryWithTransaction(conn -> {
+                int written = 0;
+                for (Group group : groups) {
+                    written += group.execute(conn, failed);
+                }
+                return written;
+            });
+            writtenRows.addAndGet(rows);
+            if (!failed.isEmpty()) {
+                plugin.getLogger().warning(failed.size() + " batched statement(s) failed, the rest of the batch was written");
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error executing batch operation", e);
+            failed.addAll(operations);
+        }
+        
+        if (!failed.isEmpty()) {
+            requeue(retryable(operations, failed));
+        }
+    }
+    
+    private List<Operation> retryable(List<Operation> operations, Set<Operation> failed) {
+        List<Operation> retry = new ArrayList<>(failed.size());
+        // Kept in the order they were queued
+        for (Operation operation : operations) {
+            if (!failed.contains(operation)) continue;
+            if (++operation.attempts >= maxAttempts) {
+                droppedOperations.incrementAndGet();
+                plugin.getLogger().warning("Dropping batched statement after " + operation.attempts + " failed attempts: " + operation.sql);
+            } else {
+                retriedOperations.incrementAndGet();
+                retry.add(operation);
+            }
+        }
+        return retry;
+    }
+    
+    private static List<Group> plan(List<Operation> operations) {
+        // Statements with the same SQL share one executeBatch unless that would run an operation before an
+        // earlier one with the same key, in which case a new group starts after everything planned so far
+        List<Group> groups = new ArrayList<>();
+        Map<GroupKey, Integer> openGroups = new HashMap<>();
+        Map<Object, Integer> lastGroupByKey = new HashMap<>();
+        
+        for (Operation operation : operations) {
+            GroupKey groupKey = new GroupKey(operation.sql, operation.row != null);
+            Integer index = openGroups.get(groupKey);
+            Integer last = lastGroupByKey.get(operation.key);
+            if (index == null || (last != null && last > index)) {
+                index = groups.size();
+                groups.add(new Group(operation.sql));
+                openGroups.put(groupKey, index);
+            }
+            
+            groups.get(index).add(operation);
+            lastGroupByKey.merge(operation.key, index, Math::max);
+        }
+        return groups;
+    }
+    
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+    
+    public long getQueuedOperations() {
+        return queuedOperations.get();
+    }
+    
+    public long getWrittenRows() {
+        return writtenRows.get();
+    }
+    
+    public long getRetriedOperations() {
+        return retriedOperations.get();
+    }
+    
+    public long getDroppedOperations() {
+        return droppedOperations.get();
+    }
+    
+    private static class Operation {
+        final Object key;
+        final String sql;
+        final Object[] params;
+        final List<Object> row;
+        final double amount;
+        int attempts;
+        
+        Operation(Object key, String sql, Object[] params, List<Object> row, double amount) {
+            this.key = key;
+            this.sql = sql;
+            this.params = params;
+            this.row = row;
+            this.amount = amount;
+        }
+    }
+    
+    private static class Group {
+        final String sql;
+        // One entry per statement sent, increments for the same row are summed into one
+        final List<List<Operation>> entries = new ArrayList<>();
+        final Map<List<Object>, List<Operation>> rows = new HashMap<>();
+        
+        Group(String sql) {
+            this.sql = sql;
+        }
+        
+        void add(Operation operation) {
+            if (operation.row == null) {
+                entries.add(List.of(operation));
+                return;
+            }
+            
+            List<Operation> merged = rows.get(operation.row);
+            if (merged == null) {
+                merged = new ArrayList<>();
+                rows.put(operation.row, merged);
+                entries.add(merged);
+            }
+            merged.add(operation);
+        }
+        
+        int execute(Connection conn, Set<Operation> failed) throws SQLException {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    for (List<Operation> entry : entries) {
+                        bind(stmt, entry);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    conn.releaseSavepoint(savepoint);
+                    return entries.size();
+                } catch (SQLException e) {
+                    conn.rollback(savepoint);
+                    conn.releaseSavepoint(savepoint);
+                    stmt.clearBatch();
+                }
+                
+                // Drivers differ in what a failed batch reports, so the group is replayed one statement at a time to find the bad ones
+                int written = 0;
+                for (List<Operation> entry : entries) {
+                    Savepoint single = conn.setSavepoint();
+                    try {
+                        bind(stmt, entry);
+                        stmt.executeUpdate();
+                        conn.releaseSavepoint(single);
+                        written++;
+                    } catch (SQLException e) {
+                        conn.rollback(single);
+                        conn.releaseSavepoint(single);
+                        failed.addAll(entry);
+                    }
+                }
+                return written;
+            }
+        }
+        
+        private static void bind(PreparedStatement stmt, List<Operation> entry) throws SQLException {
+            Operation first = entry.get(0);
+            if (first.row != null) {
+                double amount = 0;
+                for (Operation operation : entry) {
+                    amount += operation.amount;
+                }
+                stmt.setDouble(1, amount);
+                for (int i = 0; i < first.row.size(); i++) {
+                    stmt.setObject(i + 2, first.row.get(i));
+                }
+            } else if (first.params != null) {
+                for (int i = 0; i < first.params.length; i++) {
+                    stmt.setObject(i + 1, first.params[i]);
+                }
+            }
+        }
+    }
+    
+    private static class GroupKey {
+        final String sql;
+        final boolean increment;
+        
+        GroupKey(String sql, boolean increment) {
+            this.sql = sql;
+            this.increment = increment;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof GroupKey)) return false;
+            GroupKey other = (GroupKey) o;
+            return increment == other.increment && sql.equals(other.sql);
+        }
+        
+        @Override
+        public int hashCode() {
+            return sql.hashCode() * 31 + (increment ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package id.rnggagib.blockmint.database;
+
+import id.rnggagib.BlockMint;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+public class ChangeFeed {
+    
+    public enum EntityType {
+        GENERATOR("generators"),
+        NETWORK("networks", "network_generators"),
+        NETWORK_MEMBERS("network_permissions"),
+        PLAYER("player_stats");
+        
+        private final String[] tables;
+        
+        EntityType(String... tables) {
+            this.tables = tables;
+        }
+        
+        public String[] getTables() {
+            return tables;
+        }
+    }
+    
+    private static final String INSERT_SQL = "INSERT INTO change_feed (node_id, entity_type, entity_key, version) VALUES (?, ?, ?, ?)";
+    private static final int PRUNE_EVERY_POLLS = 60;
+    
+    private final BlockMint plugin;
+    private final DatabaseManager database;
+    // Random per start, so a node never mistakes rows written by its previous run for its own
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentLinkedQueue<Change> outgoing = new ConcurrentLinkedQueue<>();
+    // What each kind of remote change does to this server's state, run on the main thread
+    private final Map<EntityType, Consumer<Set<String>>> appliers = new EnumMap<>(EntityType.class);
+    private final AtomicBoolean polling = new AtomicBoolean();
+    // Ids already applied, rows inside the lookback window are read again in case they committed late
+    private final Set<Long> seenIds = new LinkedHashSet<>();
+    private boolean enabled;
+    private boolean includeProgress;
+    private int lookback = 100;
+    private int batchSize = 1000;
+    private long retentionMillis = TimeUnit.MINUTES.toMillis(60);
+    private volatile long cursor;
+    // Highest change whose effects are in memory, a read batch only counts once the main thread applied it
+    private volatile long appliedCursor;
+    private long startPosition;
+    private int pollsSincePrune;
+    private BukkitTask pollTask;
+    
+    public ChangeFeed(BlockMint plugin, DatabaseManager database) {
+        this.plugin = plugin;
+        this.database = database;
+        
+        appliers.put(EntityType.GENERATOR, keys -> {
+            if (plugin.getGeneratorManager() != null) {
+                plugin.getGeneratorManager().applyRemoteChanges(intKeys(keys));
+            }
+        });
+        appliers.put(EntityType.NETWORK, keys -> {
+            if (plugin.getNetworkManager() != null) {
+                plugin.getNetworkManager().applyRemoteChanges(intKeys(keys));
+            }
+        });
+        appliers.put(EntityType.NETWORK_MEMBERS, keys -> {
+            if (plugin.getNetworkManager() != null && plugin.getNetworkManager().getPermissionManager() != null) {
+                plugin.getNetworkManager().getPermissionManager().applyRemoteChanges(intKeys(keys));
+            }
+        });
+        appliers.put(EntityType.PLAYER, keys -> {
+            if (plugin.getEconomyManager() != null) {
+                for (String key : keys) {
+                    plugin.getEconomyManager().getEarningsLedger().refresh(UUID.fromString(key));
+                }
+            }
+        });
+    }
+    
+    public void initialize(boolean mysql) {
+        FileConfiguration config = plugin.getConfigManager().getConfig();
+        enabled = config.getBoolean("database.change-feed.enabled", false);
+        if (!enabled) return;
+        
+        includeProgress = config.getBoolean("database.change-feed.include-progress", false);
+        lookback = Math.max(0, config.getInt("database.change-feed.lookback-rows", 100));
+        batchSize = Math.max(lookback + 1, config.getInt("database.change-feed.batch-size", 1000));
+        retentionMillis = TimeUnit.MINUTES.toMillis(Math.max(1, config.getInt("database.change-feed.retention-minutes", 60)));
+        
+        try {
+            open(database.getConnection(), mysql);
+            plugin.getLogger().info("Change feed enabled as node " + nodeId + " starting after change " + cursor);
+        } catch (SQLException e) {
+            enabled = false;
+            plugin.getLogger().log(Level.SEVERE, "Could not set up the change feed, cross-node invalidation is disabled", e);
+        }
+    }
+    
+    void open(Connection conn, boolean mysql) throws SQLException {
+        try (Statement statement = conn.createStatement()) {
+            if (mysql) {
+                statement.execute("CREATE TABLE IF NOT EXISTS change_feed (" +
+                        "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                        "node_id VARCHAR(36) NOT NULL, " +
+                        "entity_type VARCHAR(32) NOT NULL, " +
+                        "entity_key VARCHAR(64) NOT NULL, " +
+                        "version BIGINT NOT NULL, " +
+                        "INDEX idx_change_feed_version (version)" +
+                        ")");
+            } else {
+                statement.execute("CREATE TABLE IF NOT EXISTS change_feed (" +
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        "node_id TEXT NOT NULL, " +
+                        "entity_type TEXT NOT NULL, " +
+                        "entity_key TEXT NOT NULL, " +
+                        "version BIGINT NOT NULL" +
+                        ")");
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_change_feed_version ON change_feed(version)");
+            }
+            
+            // Everything up to here is covered by the initial load, which has not started yet
+            try (ResultSet rs = statement.executeQuery("SELECT MAX(id) FROM change_feed")) {
+                cursor = rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+        
+        // Rows already in the lookback window are in the initial load too, only ones that commit late are new
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM change_feed WHERE id > ? ORDER BY id")) {
+            stmt.setLong(1, Math.max(0, cursor - lookback));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    seenIds.add(rs.getLong(1));
+                }
+            }
+        }
+        startPosition = cursor;
+        appliedCursor = cursor;
+        enabled = true;
+    }
+    
+    public void start() {
+        stop();
+        if (!enabled) return;
+        
+        long intervalTicks = Math.max(1, plugin.getConfigManager().getConfig().getLong("database.change-feed.poll-interval-ms", 1000) / 50);
+        pollTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::pollAsync, intervalTicks, intervalTicks);
+    }
+    
+    public void stop() {
+        if (pollTask != null) {
+            pollTask.cancel();
+            pollTask = null;
+        }
+    }
+    
+    public void shutdown() {
+        stop();
+        
+        List<Change> changes = drain();
+        if (!enabled || changes.isEmpty()) return;
+        
+        try {
+            database.queryWithTransaction(conn -> {
+                insert(conn, changes);
+                return null;
+            });
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not publish " + changes.size() + " pending changes during shutdown", e);
+        }
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public boolean isIncludeProgress() {
+        return includeProgress;
+    }
+    
+    public String getNodeId() {
+        return nodeId;
+    }
+    
+    public long getCursor() {
+        return cursor;
+    }
+    
+    public long getStartPosition() {
+        return startPosition;
+    }
+    
+    public long getAppliedCursor() {
+        return appliedCursor;
+    }
+    
+    public long readHighWater() throws SQLException {
+        try (Statement statement = database.getConnection().createStatement();
+             ResultSet rs = statement.executeQuery("SELECT MAX(id) FROM change_feed")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+    
+    public boolean hasForeignChangesAfter(long id) throws SQLException {
+        try (PreparedStatement stmt = database.getConnection().prepareStatement(
+                "SELECT COUNT(*) FROM change_feed WHERE id > ? AND node_id <> ?")) {
+            stmt.setLong(1, id);
+            stmt.setString(2, nodeId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getLong(1) > 0;
+            }
+        }
+    }
+    
+    public void publish(EntityType type, Object key) {
+        if (enabled) {
+            outgoing.add(new Change(type, String.valueOf(key), System.currentTimeMillis()));
+        }
+    }
+    
+    // For writers that already hold a transaction, the change row then commits or rolls back with the data
+    public void append(Connection conn, EntityType type, Collection<?> keys) throws SQLException {
+        if (!enabled || keys.isEmpty()) return;
+        
+        long now = System.currentTimeMillis();
+        List<Change> changes = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            changes.add(new Change(type, String.valueOf(key), now));
+        }
+        insert(conn, changes);
+    }
+    
+    private void insert(Connection conn, List<Change> changes) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            for (Change change : changes) {
+                stmt.setString(1, nodeId);
+                stmt.setString(2, change.type.name());
+                stmt.setString(3, change.key);
+                stmt.setLong(4, change.version);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+    
+    List<Change> drain() {
+        List<Change> changes = new ArrayList<>();
+        Change change;
+        while ((change = outgoing.poll()) != null) {
+            changes.add(change);
+        }
+        return changes;
+    }
+    
+    private void pollAsync() {
+        if (!polling.compareAndSet(false, true)) return;
+        
+        List<Change> changes = drain();
+        boolean prune = ++pollsSincePrune >= PRUNE_EVERY_POLLS;
+        if (prune) {
+            pollsSincePrune = 0;
+        }
+        
+        // One transaction on one connection, so a poll never holds a second connection while it waits for a write
+        database.getExecutor().submitTransaction(conn -> exchange(conn, changes, prune)).whenComplete((poll, error) -> {
+            if (error != null) {
+                polling.set(false);
+                plugin.getLogger().log(Level.WARNING, "Change feed poll failed", error);
+                // Publishing twice is harmless, losing a change is not
+                outgoing.addAll(changes);
+                return;
+            }
+            // Only a committed poll moves the cursor, a rolled back one is read again next time
+            advance(poll);
+            polling.set(false);
+            
+            // Advanced on the main thread even for an empty batch, so it never passes a batch still waiting to be applied
+            long readTo = poll.readTo;
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (!poll.incoming.isEmpty()) {
+                    apply(poll.incoming);
+                }
+                appliedCursor = readTo;
+            });
+        });
+    }
+    
+    Poll exchange(Connection conn, List<Change> changes, boolean prune) throws SQLException {
+        if (!changes.isEmpty()) {
+            insert(conn, changes);
+        }
+        if (prune) {
+            prune(conn);
+        }
+        return read(conn);
+    }
+    
+    private Poll read(Connection conn) throws SQLException {
+        Poll poll = new Poll(cursor);
+        
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT id, node_id, entity_type, entity_key FROM change_feed WHERE id > ? ORDER BY id LIMIT " + batchSize)) {
+            stmt.setLong(1, Math.max(0, cursor - lookback));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long id = rs.getLong(1);
+                    poll.readTo = Math.max(poll.readTo, id);
+                    if (seenIds.contains(id)) continue;
+                    
+                    poll.readIds.add(id);
+                    if (nodeId.equals(rs.getString(2))) continue;
+                    
+                    try {
+                        poll.incoming.computeIfAbsent(EntityType.valueOf(rs.getString(3)), k -> new LinkedHashSet<>()).add(rs.getString(4));
+                    } catch (IllegalArgumentException e) {
+                        // Written by a newer version of the plugin on another node
+                    }
+                }
+            }
+        }
+        return poll;
+    }
+    
+    void advance(Poll poll) {
+        seenIds.addAll(poll.readIds);
+        cursor = poll.readTo;
+        Iterator<Long> iterator = seenIds.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() > cursor - lookback) break;
+            iterator.remove();
+        }
+    }
+    
+    private void prune(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM change_feed WHERE version < ?")) {
+            stmt.setLong(1, System.currentTimeMillis() - retentionMillis);
+            stmt.executeUpdate();
+        }
+    }
+    
+    void apply(Map<EntityType, Set<String>> incoming) {
+        for (Map.Entry<EntityType, Set<String>> entry : incoming.entrySet()) {
+            for (String table : entry.getKey().getTables()) {
+                database.invalidateTable(table);
+            }
+            
+            try {
+                appliers.get(entry.getKey()).accept(entry.getValue());
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.WARNING, "Error applying remote " + entry.getKey() + " changes", e);
+            }
+        }
+    }
+    
+    // The managers need a running server, tests put their own applier in their place
+    void setApplier(EntityType type, Consumer<Set<String>> applier) {
+        appliers.put(type, applier);
+    }
+    
+    private static int[] intKeys(Collection<String> keys) {
+        int[] ids = new int[keys.size()];
+        int count = 0;
+        for (String key : keys) {
+            try {
+                ids[count] = Integer.parseInt(key);
+                count++;
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+    
+    static class Poll {
+        final Map<EntityType, Set<String>> incoming = new EnumMap<>(EntityType.class);
+        final List<Long> readIds = new ArrayList<>();
+        long readTo;
+        
+        Poll(long cursor) {
+            this.readTo = cursor;
+        }
+    }
+    
+    static class Change {
+        final EntityType type;
+        final String key;
+        final long version;
+        
+        Change(EntityType type, String key, long version) {
+            this.type = type;
+            this.key = key;
+            this.version = version;
+        }
+    }
+}
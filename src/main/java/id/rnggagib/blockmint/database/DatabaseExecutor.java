@@ -0,0 +1,309 @@
+package id.rnggagib.blockmint.database;
+
+import id.rnggagib.BlockMint;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+public class DatabaseExecutor {
+    
+    private static final long SATURATION_WARNING_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+    // How long the server thread may wait for room in a full queue before the work is refused
+    private static final long MAIN_THREAD_OFFER_MILLIS = 50;
+    
+    private final BlockMint plugin;
+    private final DatabaseManager databaseManager;
+    private final ThreadPoolExecutor executor;
+    private final boolean virtualThreads;
+    private final boolean readRoute;
+    
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalExecNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong lastSaturationWarning = new AtomicLong();
+    
+    public DatabaseExecutor(BlockMint plugin, DatabaseManager databaseManager, int threads, int queueSize, boolean preferVirtualThreads) {
+        this(plugin, databaseManager, threads, queueSize, preferVirtualThreads, false);
+    }
+    
+    public DatabaseExecutor(BlockMint plugin, DatabaseManager databaseManager, int threads, int queueSize, boolean preferVirtualThreads, boolean readRoute) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+        this.readRoute = readRoute;
+        
+        String threadPrefix = readRoute ? "BlockMint-DB-Read-" : "BlockMint-DB-";
+        ThreadFactory factory = preferVirtualThreads ? createVirtualThreadFactory(threadPrefix) : null;
+        this.virtualThreads = factory != null;
+        if (factory == null) {
+            factory = createPlatformThreadFactory(threadPrefix);
+        }
+        
+        // The pool size stays bounded even on virtual threads, it is what keeps us from starving the connection pool
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), factory, new CallerRunsWithWarning());
+    }
+    
+    private ThreadFactory createVirtualThreadFactory(String threadPrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadPrefix, 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+    
+    private ThreadFactory createPlatformThreadFactory(String threadPrefix) {
+        AtomicInteger counter = new AtomicInteger(1);
+        ThreadFactory defaults = Executors.defaultThreadFactory();
+        return runnable -> {
+            Thread thread = defaults.newThread(runnable);
+            thread.setName(threadPrefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    public <T> CompletableFuture<T> submit(DatabaseManager.SqlFunction<Connection, T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        execute(() -> {
+            Connection conn = null;
+            try {
+                conn = readRoute ? databaseManager.borrowReadConnection() : databaseManager.borrowConnection();
+                future.complete(work.apply(conn));
+            } catch (SQLException | RuntimeException e) {
+                future.completeExceptionally(e);
+            } finally {
+                databaseManager.releaseConnection(conn);
+            }
+        }, future);
+        return future;
+    }
+    
+    public <T> CompletableFuture<T> submitTransaction(DatabaseManager.SqlFunction<Connection, T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                future.complete(databaseManager.queryWithTransaction(work));
+            } catch (SQLException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }, future);
+        return future;
+    }
+    
+    public void execute(Runnable task) {
+        execute(task, null);
+    }
+    
+    // For write-behind flushes, which have already taken their data out of memory: a full queue on the
+    // server thread defers the task to a Bukkit async thread, where the caller-runs path slows it down instead
+    public void executeDeferrable(Runnable task) {
+        Runnable tracked = track(task, null);
+        try {
+            executor.execute(tracked);
+        } catch (RejectedExecutionException e) {
+            if (executor.isShutdown() || !plugin.isEnabled()) {
+                rejected.increment();
+                throw e;
+            }
+            
+            deferred.increment();
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                try {
+                    executor.execute(tracked);
+                } catch (RejectedExecutionException shutDown) {
+                    // Shut down in the meantime, still off the server thread so the work can run here
+                    tracked.run();
+                }
+            });
+        }
+    }
+    
+    // Runs a write-behind flush once the previous one has settled, so batches commit in order. A flush that is
+    // refused or throws hands its drained data back through onFailure, the returned future then fails with it
+    public CompletableFuture<Void> executeAfter(CompletableFuture<?> previous, Runnable task, Consumer<Throwable> onFailure) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        // An earlier failure has already been handed back by its own flush, it only has to be out of the way
+        previous.whenComplete((ignored, earlier) -> {
+            try {
+                executeDeferrable(() -> {
+                    try {
+                        task.run();
+                        done.complete(null);
+                    } catch (RuntimeException e) {
+                        fail(done, onFailure, e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                fail(done, onFailure, e);
+            }
+        });
+        return done;
+    }
+    
+    private void fail(CompletableFuture<Void> done, Consumer<Throwable> onFailure, Throwable error) {
+        try {
+            onFailure.accept(error);
+        } catch (RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error handing back a failed database flush", e);
+        } finally {
+            done.completeExceptionally(error);
+        }
+    }
+    
+    private void execute(Runnable task, CompletableFuture<?> future) {
+        try {
+            executor.execute(track(task, future));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            if (future == null) throw e;
+            future.completeExceptionally(e);
+        }
+    }
+    
+    private Runnable track(Runnable task, CompletableFuture<?> future) {
+        long queuedAt = System.nanoTime();
+        submitted.increment();
+        return () -> {
+            long startedAt = System.nanoTime();
+            long waited = startedAt - queuedAt;
+            totalWaitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                plugin.getLogger().log(Level.SEVERE, "Unhandled error in database task", e);
+            } finally {
+                totalExecNanos.add(System.nanoTime() - startedAt);
+                if (future != null && future.isCompletedExceptionally()) {
+                    failed.increment();
+                }
+                completed.increment();
+            }
+        };
+    }
+    
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Database executor did not drain in time, " + executor.getQueue().size() + " tasks dropped");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+    
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+    
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+    
+    public int getPoolSize() {
+        return executor.getMaximumPoolSize();
+    }
+    
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+    
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+    
+    public long getFailedCount() {
+        return failed.sum();
+    }
+    
+    public long getCallerRunsCount() {
+        return callerRuns.sum();
+    }
+    
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+    
+    public long getDeferredCount() {
+        return deferred.sum();
+    }
+    
+    public double getAverageWaitMillis() {
+        long count = completed.sum();
+        return count == 0 ? 0.0 : totalWaitNanos.sum() / (double) count / 1_000_000.0;
+    }
+    
+    public double getAverageExecMillis() {
+        long count = completed.sum();
+        return count == 0 ? 0.0 : totalExecNanos.sum() / (double) count / 1_000_000.0;
+    }
+    
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+    
+    private class CallerRunsWithWarning implements RejectedExecutionHandler {
+        
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor pool) {
+            if (pool.isShutdown()) {
+                throw new RejectedExecutionException("Database executor is shut down");
+            }
+            
+            // Blocking JDBC must never run on the server thread, so it gets a short wait for room and is refused after that
+            if (plugin.getServer().isPrimaryThread()) {
+                try {
+                    if (pool.getQueue().offer(task, MAIN_THREAD_OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                warnSaturated("Database queue is full (" + pool.getQueue().size() + " pending), refusing a query from the main thread");
+                throw new RejectedExecutionException("Database queue is full");
+            }
+            
+            // Off the main thread a full queue pushes the work back onto whoever submitted it, which slows producers down instead of losing writes
+            callerRuns.increment();
+            task.run();
+        }
+        
+        private void warnSaturated(String message) {
+            long now = System.currentTimeMillis();
+            long last = lastSaturationWarning.get();
+            if (now - last > SATURATION_WARNING_INTERVAL && lastSaturationWarning.compareAndSet(last, now)) {
+                plugin.getLogger().warning(message);
+            }
+        }
+    }
+}
@@ -4,9 +4,9 @@ import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import id.rnggagib.BlockMint;
 import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.scheduler.BukkitTask;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
@@ -14,33 +14,52 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+
 public class DatabaseManager {
     
     private final BlockMint plugin;
     private Connection connection;
     private HikariDataSource connectionPool;
     private final AtomicInteger pendingQueries = new AtomicInteger(0);
-    private final ConcurrentHashMap<UUID, BukkitTask> activeTasks = new ConcurrentHashMap<>();
-    private final Map<UUID, List<BatchOperation>> batchOperations = new ConcurrentHashMap<>();
-    private final long batchTimeThreshold = 2000;
-    private final int batchSizeThreshold = 20;
+    private final ConcurrentHashMap<UUID, Future<?>> activeTasks = new ConcurrentHashMap<>();
+    private DatabaseExecutor executor;
+    private HikariDataSource readPool;
+    private DatabaseExecutor readExecutor;
+    // When each player last wrote, so their own reads can skip a read pool that may not have caught up yet
+    private final Map<UUID, Long> recentWrites = new ConcurrentHashMap<>();
+    private long readYourWritesMillis;
+    private long syncWriteTimeoutMillis;
+    private SQLiteWriter sqliteWriter;
+    private String sqliteUrl;
+    private final WorldDictionary worldDictionary = new WorldDictionary();
+    private boolean binaryOwners;
+    private long startupSnapshotToken;
+    private long startupSnapshotFeedPosition = StateSnapshot.NO_FEED_POSITION;
+    private BatchWriter batchWriter;
+    private boolean mysql;
+    private ChangeFeed changeFeed;
     
     private final Map<String, PreparedStatement> statementCache = new ConcurrentHashMap<>();
-    private final Map<String, CachedQueryResult<?>> queryResultCache = new ConcurrentHashMap<>();
-    private final long DEFAULT_CACHE_EXPIRY = TimeUnit.MINUTES.toMillis(5);
-    private final int MAX_CACHE_SIZE = 100;
+    private QueryCache queryCache = new QueryCache(1000);
+    private long defaultCacheExpiry = TimeUnit.MINUTES.toMillis(5);
     
     public DatabaseManager(BlockMint plugin) {
         this.plugin = plugin;
@@ -50,7 +69,8 @@ public class DatabaseManager {
         FileConfiguration config = plugin.getConfigManager().getConfig();
         String dbType = config.getString("database.type", "sqlite");
         
-        if (dbType.equalsIgnoreCase("mysql")) {
+        mysql = dbType.equalsIgnoreCase("mysql");
+        if (mysql) {
             initializeMySQLPool();
         } else {
             if (!plugin.getDependencyManager().ensureSQLiteDriverLoaded()) {
@@ -62,13 +82,20 @@ public class DatabaseManager {
         
         setupTables();
         verifyTableStructure();
+        consumeSnapshotToken();
+        
+        changeFeed = new ChangeFeed(plugin, this);
+        changeFeed.initialize(mysql);
         
+        startExecutor();
+        startReadRoute();
         startBatchProcessor();
-        startCacheCleanupTask();
+        startQueryCache();
     }
     
     private void initializeSQLitePool() {
-        String fileName = plugin.getConfigManager().getConfig().getString("database.file", "blockmint.db");
+        FileConfiguration pluginConfig = plugin.getConfigManager().getConfig();
+        String fileName = pluginConfig.getString("database.file", "blockmint.db");
         File dataFolder = plugin.getDataFolder();
         
         if (!dataFolder.exists()) {
@@ -77,21 +104,29 @@ public class DatabaseManager {
         
         String jdbcUrl = "jdbc:sqlite:" + dataFolder + File.separator + fileName;
         
+        if (sqliteWriter == null && pluginConfig.getBoolean("database.sqlite.single-writer", true)) {
+            initializeSQLiteWriter(jdbcUrl);
+        }
+        
         try {
             HikariConfig config = new HikariConfig();
             config.setJdbcUrl(jdbcUrl);
-            config.setMaximumPoolSize(10);
-            config.setMinimumIdle(3);
+            config.setMaximumPoolSize(sqliteWriter != null ? Math.max(1, pluginConfig.getInt("database.sqlite.read-pool-size", 4)) : 10);
+            config.setMinimumIdle(sqliteWriter != null ? 1 : 3);
             config.setPoolName("BlockMint-SQLite");
             config.addDataSourceProperty("cachePrepStmts", "true");
             config.addDataSourceProperty("prepStmtCacheSize", "250");
             config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            if (sqliteWriter != null) {
+                // All pooled connections are readers, every write goes through the writer thread
+                sqlitePragmas(true).forEach((key, value) -> config.addDataSourceProperty((String) key, value));
+            }
             config.setConnectionTimeout(30000);
             config.setIdleTimeout(60000);
             config.setMaxLifetime(1800000);
             
             connectionPool = new HikariDataSource(config);
-            connection = connectionPool.getConnection();
+            connection = sqliteWriter != null ? openSQLiteConnection() : connectionPool.getConnection();
             connection.setAutoCommit(true);
             plugin.getLogger().info("Successfully initialized SQLite connection pool!");
         } catch (SQLException e) {
@@ -100,6 +135,48 @@ public class DatabaseManager {
         }
     }
     
+    private void initializeSQLiteWriter(String jdbcUrl) {
+        FileConfiguration config = plugin.getConfigManager().getConfig();
+        sqliteUrl = jdbcUrl;
+        
+        try {
+            Properties pragmas = sqlitePragmas(false);
+            // WAL is stored in the database file, so setting it once on the writer covers every connection
+            pragmas.setProperty("journal_mode", "WAL");
+            
+            syncWriteTimeoutMillis = Math.max(100L, config.getLong("database.sqlite.sync-write-timeout-ms", 2000));
+            SQLiteWriter writer = new SQLiteWriter(plugin, jdbcUrl, pragmas,
+                    Math.max(1, config.getInt("database.sqlite.writer-batch-size", 256)),
+                    Math.max(16, config.getInt("database.executor.queue-size", 1000)), this::invalidateTables);
+            writer.start();
+            sqliteWriter = writer;
+            plugin.getLogger().info("SQLite single-writer mode enabled (WAL)");
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not start the SQLite writer, using pooled writes instead", e);
+            sqliteUrl = null;
+        }
+    }
+    
+    private Properties sqlitePragmas(boolean readOnly) {
+        FileConfiguration config = plugin.getConfigManager().getConfig();
+        Properties pragmas = new Properties();
+        pragmas.setProperty("synchronous", "NORMAL");
+        pragmas.setProperty("busy_timeout", String.valueOf(Math.max(0, config.getInt("database.sqlite.busy-timeout-ms", 5000))));
+        // Negative cache_size is in KiB rather than pages
+        pragmas.setProperty("cache_size", String.valueOf(-Math.max(0, config.getInt("database.sqlite.cache-size-kb", 16384))));
+        pragmas.setProperty("mmap_size", String.valueOf(Math.max(0L, config.getLong("database.sqlite.mmap-size-mb", 128)) * 1024L * 1024L));
+        pragmas.setProperty("temp_store", "MEMORY");
+        if (readOnly) {
+            pragmas.setProperty("open_mode", "1");
+        }
+        return pragmas;
+    }
+    
+    private Connection openSQLiteConnection() throws SQLException {
+        // Only schema setup at startup still writes through this one, busy_timeout covers the overlap with the writer thread
+        return DriverManager.getConnection(sqliteUrl, sqlitePragmas(false));
+    }
+    
     private void fallbackToDirectConnection(String jdbcUrl) {
         try {
             plugin.getLogger().warning("Falling back to direct database connection...");
@@ -138,6 +215,8 @@ public class DatabaseManager {
             hikariConfig.addDataSourceProperty("useServerPrepStmts", "true");
             hikariConfig.addDataSourceProperty("useLocalSessionState", "true");
             hikariConfig.addDataSourceProperty("rewriteBatchedStatements", "true");
+            // Without it Connector/J ignores setFetchSize and buffers whole result sets, the generator load relies on it to stream
+            hikariConfig.addDataSourceProperty("useCursorFetch", "true");
             hikariConfig.addDataSourceProperty("cacheResultSetMetadata", "true");
             hikariConfig.addDataSourceProperty("cacheServerConfiguration", "true");
             hikariConfig.addDataSourceProperty("elideSetAutoCommits", "true");
@@ -155,22 +234,73 @@ public class DatabaseManager {
         }
     }
     
+    private void initializeMySQLReadPool() {
+        FileConfiguration config = plugin.getConfigManager().getConfig();
+        String host = config.getString("database.mysql.replica.host", "");
+        if (host == null || host.isEmpty()) return;
+        
+        int port = config.getInt("database.mysql.replica.port", config.getInt("database.mysql.port", 3306));
+        String database = config.getString("database.mysql.database", "blockmint");
+        boolean useSSL = config.getBoolean("database.mysql.ssl", false);
+        
+        try {
+            HikariConfig hikariConfig = new HikariConfig();
+            hikariConfig.setJdbcUrl("jdbc:mysql://" + host + ":" + port + "/" + database + "?useSSL=" + useSSL + "&allowPublicKeyRetrieval=true");
+            hikariConfig.setUsername(config.getString("database.mysql.replica.username", config.getString("database.mysql.username", "root")));
+            hikariConfig.setPassword(config.getString("database.mysql.replica.password", config.getString("database.mysql.password", "")));
+            hikariConfig.setReadOnly(true);
+            hikariConfig.setMaximumPoolSize(Math.max(1, config.getInt("database.read.pool-size", 4)));
+            hikariConfig.setMinimumIdle(1);
+            hikariConfig.setPoolName("BlockMint-MySQL-Read");
+            hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
+            hikariConfig.addDataSourceProperty("prepStmtCacheSize", "250");
+            hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            hikariConfig.addDataSourceProperty("useServerPrepStmts", "true");
+            hikariConfig.setConnectionTimeout(30000);
+            hikariConfig.setIdleTimeout(600000);
+            hikariConfig.setMaxLifetime(1800000);
+            
+            readPool = new HikariDataSource(hikariConfig);
+            plugin.getLogger().info("Reads are routed to the MySQL replica at " + host + ":" + port);
+        } catch (RuntimeException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not connect to the MySQL replica, reads stay on the primary", e);
+        }
+    }
+    
+    private void initializeSQLiteReadPool() {
+        // Readers only see a consistent file next to the writer thread in WAL mode
+        if (sqliteUrl == null) return;
+        
+        try {
+            HikariConfig config = new HikariConfig();
+            config.setJdbcUrl(sqliteUrl);
+            config.setMaximumPoolSize(Math.max(1, plugin.getConfigManager().getConfig().getInt("database.read.pool-size", 4)));
+            config.setMinimumIdle(1);
+            config.setPoolName("BlockMint-SQLite-Read");
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            sqlitePragmas(true).forEach((key, value) -> config.addDataSourceProperty((String) key, value));
+            config.setConnectionTimeout(30000);
+            config.setIdleTimeout(60000);
+            config.setMaxLifetime(1800000);
+            
+            readPool = new HikariDataSource(config);
+        } catch (RuntimeException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not open the SQLite read pool, reads share the worker pool", e);
+        }
+    }
+    
     private void setupTables() {
         try (Statement statement = getConnection().createStatement()) {
-            statement.execute("CREATE TABLE IF NOT EXISTS generators (" +
+            statement.execute("CREATE TABLE IF NOT EXISTS worlds (" +
                     "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "owner TEXT NOT NULL, " +
-                    "world TEXT NOT NULL, " +
-                    "x DOUBLE NOT NULL, " +
-                    "y DOUBLE NOT NULL, " +
-                    "z DOUBLE NOT NULL, " +
-                    "type TEXT NOT NULL, " +
-                    "level INTEGER DEFAULT 1, " +
-                    "last_generation BIGINT DEFAULT 0, " +
-                    "usage_count INTEGER DEFAULT 0, " +
-                    "resources_generated REAL DEFAULT 0.0" +
+                    "name TEXT NOT NULL UNIQUE" +
                     ")");
             
+            // Has to run before the create below, which would otherwise put an empty table where the migrated one belongs
+            finishGeneratorSwap();
+            statement.execute(generatorsTableSql("generators",
+                    plugin.getConfigManager().getConfig().getBoolean("database.binary-uuids", false)));
+            
             // Check if evolution columns exist and add them if not
             try {
                 ResultSet rs = getConnection().getMetaData().getColumns(null, null, "generators", "usage_count");
@@ -183,6 +313,10 @@ public class DatabaseManager {
                 plugin.getLogger().warning("Could not check for evolution columns: " + e.getMessage());
             }
             
+            migrateGeneratorCoordinates();
+            binaryOwners = isOwnerColumnBinary();
+            worldDictionary.load(getConnection());
+            
             statement.execute("CREATE TABLE IF NOT EXISTS player_stats (" +
                     "uuid TEXT PRIMARY KEY, " +
                     "player_name TEXT NOT NULL, " +
@@ -196,18 +330,50 @@ public class DatabaseManager {
                     "player_uuid TEXT NOT NULL, " +
                     "amount REAL NOT NULL, " +
                     "source TEXT NOT NULL, " +
+                    "type TEXT NOT NULL DEFAULT 'unknown', " +
                     "timestamp BIGINT NOT NULL" +
                     ")");
             
+            if (!hasColumn("economic_transactions", "type")) {
+                statement.execute("ALTER TABLE economic_transactions ADD COLUMN type TEXT NOT NULL DEFAULT 'unknown'");
+            }
+            
+            // Hourly totals per source and type, kept up to date by the transaction ledger
+            boolean rollupsExist = hasTable("economic_transactions_hourly");
+            statement.execute("CREATE TABLE IF NOT EXISTS economic_transactions_hourly (" +
+                    "hour_start BIGINT NOT NULL, " +
+                    "source TEXT NOT NULL, " +
+                    "type TEXT NOT NULL, " +
+                    "amount REAL NOT NULL DEFAULT 0.0, " +
+                    "transaction_count INTEGER NOT NULL DEFAULT 0, " +
+                    "PRIMARY KEY (hour_start, source, type)" +
+                    ")");
+            if (!rollupsExist) {
+                statement.execute("INSERT INTO economic_transactions_hourly (hour_start, source, type, amount, transaction_count) " +
+                        "SELECT timestamp - (timestamp % 3600000), source, type, SUM(amount), COUNT(*) " +
+                        "FROM economic_transactions GROUP BY timestamp - (timestamp % 3600000), source, type");
+            }
+            
+            statement.execute("CREATE TABLE IF NOT EXISTS plugin_state (" +
+                    "name TEXT PRIMARY KEY, " +
+                    "value BIGINT NOT NULL" +
+                    ")");
+            
+            statement.execute("CREATE TABLE IF NOT EXISTS economy_metrics (" +
+                    "name TEXT PRIMARY KEY, " +
+                    "value REAL NOT NULL, " +
+                    "updated_at BIGINT NOT NULL" +
+                    ")");
+            
             statement.execute("CREATE TABLE IF NOT EXISTS economy_balances (" +
                     "player_uuid TEXT PRIMARY KEY, " +
                     "balance REAL NOT NULL, " +
                     "last_updated BIGINT NOT NULL" +
                     ")");
-                    
+            
             statement.execute("CREATE INDEX IF NOT EXISTS idx_generators_owner ON generators(owner)");
             statement.execute("CREATE INDEX IF NOT EXISTS idx_generators_type ON generators(type)");
-            statement.execute("CREATE INDEX IF NOT EXISTS idx_generators_world ON generators(world)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_generators_chunk ON generators(world_id, chunk_x, chunk_z)");
             statement.execute("CREATE INDEX IF NOT EXISTS idx_transactions_timestamp ON economic_transactions(timestamp)");
             
             plugin.getLogger().info("Database tables and indexes initialized successfully.");
@@ -216,6 +382,274 @@ public class DatabaseManager {
         }
     }
     
+    private String generatorsTableSql(String table, boolean binaryUuids) {
+        return "CREATE TABLE IF NOT EXISTS " + table + " (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "owner " + (binaryUuids ? "BLOB" : "TEXT") + " NOT NULL, " +
+                "world_id INTEGER NOT NULL, " +
+                "x INTEGER NOT NULL, " +
+                "y INTEGER NOT NULL, " +
+                "z INTEGER NOT NULL, " +
+                "chunk_x INTEGER NOT NULL, " +
+                "chunk_z INTEGER NOT NULL, " +
+                "type TEXT NOT NULL, " +
+                "level INTEGER DEFAULT 1, " +
+                "last_generation BIGINT DEFAULT 0, " +
+                "usage_count INTEGER DEFAULT 0, " +
+                "resources_generated REAL DEFAULT 0.0" +
+                ")";
+    }
+    
+    private void migrateGeneratorCoordinates() throws SQLException {
+        Connection conn = getConnection();
+        if (hasColumn("generators", "chunk_x")) {
+            if (hasTable("generators_legacy")) {
+                // The swap went through last time, only the old copy was left to drop
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("DROP TABLE generators_legacy");
+                }
+            }
+            return;
+        }
+        
+        // Older tables store the world name and REAL coordinates, they are copied into the compact layout and then swapped in.
+        // Every step can be repeated, so a migration cut short picks up where it stopped on the next start.
+        boolean binaryUuids = plugin.getConfigManager().getConfig().getBoolean("database.binary-uuids", false);
+        plugin.getLogger().info("Migrating generators table to chunk-indexed layout" + (binaryUuids ? " with binary owners" : "") + "...");
+        
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(generatorsTableSql("generators_migrated", binaryUuids));
+        }
+        int copied = copyLegacyGenerators(conn, binaryUuids);
+        verifyMigratedGenerators(conn);
+        swapMigratedGenerators(conn);
+        
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE generators_legacy");
+        }
+        plugin.getLogger().info("Migrated generators to the chunk-indexed layout (" + copied + " copied in this run).");
+    }
+    
+    private int copyLegacyGenerators(Connection conn, boolean binaryUuids) throws SQLException {
+        long resumeAfter;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(id) FROM generators_migrated")) {
+            resumeAfter = rs.next() ? rs.getLong(1) : 0;
+        }
+        if (resumeAfter > 0) {
+            plugin.getLogger().info("Resuming the generator migration after id " + resumeAfter);
+            try (Statement stmt = conn.createStatement()) {
+                // Rows deleted from the old table since the last attempt would fail the check below
+                stmt.executeUpdate("DELETE FROM generators_migrated WHERE id NOT IN (SELECT id FROM generators)");
+            }
+        }
+        
+        WorldDictionary dictionary = new WorldDictionary();
+        dictionary.load(conn);
+        
+        boolean originalAutoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        int copied = 0;
+        try (PreparedStatement select = conn.prepareStatement("SELECT id, owner, world, x, y, z, type, level, last_generation, usage_count, resources_generated " +
+                "FROM generators WHERE id > ? ORDER BY id");
+             PreparedStatement insert = conn.prepareStatement("INSERT INTO generators_migrated " +
+                     "(id, owner, world_id, x, y, z, chunk_x, chunk_z, type, level, last_generation, usage_count, resources_generated) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            select.setLong(1, resumeAfter);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    int x = (int) Math.floor(rs.getDouble(4));
+                    int y = (int) Math.floor(rs.getDouble(5));
+                    int z = (int) Math.floor(rs.getDouble(6));
+                    UUID owner = UUID.fromString(rs.getString(2));
+                    
+                    insert.setInt(1, rs.getInt(1));
+                    insert.setObject(2, binaryUuids ? toBytes(owner) : owner.toString());
+                    String world = rs.getString(3);
+                    int worldId = dictionary.getOrCreateId(conn, world);
+                    // Only this attempt uses the dictionary, a rollback throws it away along with the rows
+                    dictionary.register(worldId, world);
+                    insert.setInt(3, worldId);
+                    insert.setInt(4, x);
+                    insert.setInt(5, y);
+                    insert.setInt(6, z);
+                    insert.setInt(7, x >> 4);
+                    insert.setInt(8, z >> 4);
+                    insert.setString(9, rs.getString(7));
+                    insert.setInt(10, rs.getInt(8));
+                    insert.setLong(11, rs.getLong(9));
+                    insert.setInt(12, rs.getInt(10));
+                    insert.setDouble(13, rs.getDouble(11));
+                    insert.addBatch();
+                    
+                    // Rows go in id order and commit in chunks, so MAX(id) is always a safe point to resume from
+                    if (++copied % 1000 == 0) {
+                        insert.executeBatch();
+                        conn.commit();
+                    }
+                }
+            }
+            insert.executeBatch();
+            conn.commit();
+            return copied;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(originalAutoCommit);
+        }
+    }
+    
+    private void verifyMigratedGenerators(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            long legacy = count(stmt, "SELECT COUNT(*) FROM generators");
+            long migrated = count(stmt, "SELECT COUNT(*) FROM generators_migrated");
+            long missing = count(stmt, "SELECT COUNT(*) FROM generators g LEFT JOIN generators_migrated m ON m.id = g.id WHERE m.id IS NULL");
+            if (legacy != migrated || missing > 0) {
+                throw new SQLException("Generator migration check failed: " + legacy + " rows in the old table, " + migrated
+                        + " copied, " + missing + " missing. The old table is left untouched");
+            }
+        }
+    }
+    
+    private static long count(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+    
+    private void swapMigratedGenerators(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (mysql) {
+                // A multi-table RENAME is atomic on MySQL, unlike DDL inside a transaction
+                stmt.execute("RENAME TABLE generators TO generators_legacy, generators_migrated TO generators");
+                return;
+            }
+        }
+        
+        // SQLite DDL is transactional, so both renames land together
+        boolean originalAutoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE generators RENAME TO generators_legacy");
+            stmt.execute("ALTER TABLE generators_migrated RENAME TO generators");
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(originalAutoCommit);
+        }
+    }
+    
+    private void finishGeneratorSwap() throws SQLException {
+        if (hasTable("generators") || !hasTable("generators_migrated") || !hasTable("generators_legacy")) return;
+        
+        // Stopped between the two renames, the copy was already verified before the first one
+        plugin.getLogger().warning("Finishing an interrupted generator table swap");
+        try (Statement stmt = getConnection().createStatement()) {
+            stmt.execute(mysql ? "RENAME TABLE generators_migrated TO generators" : "ALTER TABLE generators_migrated RENAME TO generators");
+        }
+    }
+    
+    private boolean isOwnerColumnBinary() throws SQLException {
+        try (ResultSet rs = getConnection().getMetaData().getColumns(null, null, "generators", "owner")) {
+            return rs.next() && "BLOB".equalsIgnoreCase(rs.getString("TYPE_NAME"));
+        }
+    }
+    
+    private boolean hasColumn(String table, String column) throws SQLException {
+        try (ResultSet rs = getConnection().getMetaData().getColumns(null, null, table, column)) {
+            return rs.next();
+        }
+    }
+    
+    private boolean hasTable(String table) throws SQLException {
+        try (ResultSet rs = getConnection().getMetaData().getTables(null, null, table, null)) {
+            return rs.next();
+        }
+    }
+    
+    public Object encodeOwner(UUID owner) {
+        return binaryOwners ? toBytes(owner) : owner.toString();
+    }
+    
+    public UUID decodeOwner(ResultSet rs, int column) throws SQLException {
+        if (!binaryOwners) {
+            return UUID.fromString(rs.getString(column));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(rs.getBytes(column));
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+    
+    private static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+    
+    public boolean isMySQL() {
+        return mysql;
+    }
+    
+    public ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+    
+    public WorldDictionary getWorldDictionary() {
+        return worldDictionary;
+    }
+    
+    private void consumeSnapshotToken() {
+        try {
+            startupSnapshotToken = getStateValue(StateSnapshot.TOKEN_KEY, 0);
+            startupSnapshotFeedPosition = getStateValue(StateSnapshot.FEED_POSITION_KEY, StateSnapshot.NO_FEED_POSITION);
+            
+            // Cleared before anything else can write, so a crash later on leaves the snapshot invalid
+            if (startupSnapshotToken != 0) {
+                setStateValue(StateSnapshot.TOKEN_KEY, 0);
+            }
+        } catch (SQLException e) {
+            startupSnapshotToken = 0;
+            plugin.getLogger().log(Level.WARNING, "Could not read the state snapshot token", e);
+        }
+    }
+    
+    public long getStartupSnapshotToken() {
+        return startupSnapshotToken;
+    }
+    
+    public long getStartupSnapshotFeedPosition() {
+        return startupSnapshotFeedPosition;
+    }
+    
+    private long getStateValue(String name, long defaultValue) throws SQLException {
+        try (PreparedStatement stmt = getConnection().prepareStatement("SELECT value FROM plugin_state WHERE name = ?")) {
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : defaultValue;
+            }
+        }
+    }
+    
+    public void setStateValue(String name, long value) throws SQLException {
+        Connection conn = getConnection();
+        try (PreparedStatement update = conn.prepareStatement("UPDATE plugin_state SET value = ? WHERE name = ?")) {
+            update.setLong(1, value);
+            update.setString(2, name);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+        }
+        
+        try (PreparedStatement insert = conn.prepareStatement("INSERT INTO plugin_state (name, value) VALUES (?, ?)")) {
+            insert.setString(1, name);
+            insert.setLong(2, value);
+            insert.executeUpdate();
+        }
+    }
+    
     private void verifyTableStructure() {
         try {
             boolean playerStatsNeedsMigration = false;
@@ -252,7 +686,7 @@ public class DatabaseManager {
                 }
                 plugin.getLogger().info("Column added successfully.");
             }
-            
+        
         } catch (SQLException e) {
             plugin.getLogger().log(Level.WARNING, "Error verifying table structure: " + e.getMessage());
             plugin.getLogger().log(Level.INFO, "This is not critical if using SQLite with older versions.");
@@ -298,12 +732,46 @@ public class DatabaseManager {
     }
     
     public int executeUpdate(String sql) throws SQLException {
-        try (PreparedStatement stmt = prepareStatement(sql)) {
-            return stmt.executeUpdate();
+        return queryWithTransaction(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                return stmt.executeUpdate(sql);
+            }
+        });
+    }
+    
+    Connection borrowReadConnection() throws SQLException {
+        if (readPool != null && !readPool.isClosed()) {
+            return readPool.getConnection();
+        }
+        return borrowConnection();
+    }
+    
+    Connection borrowConnection() throws SQLException {
+        // Each unit of work gets its own pooled connection, the shared one is only used without a pool
+        if (connectionPool != null && !connectionPool.isClosed()) {
+            return connectionPool.getConnection();
+        }
+        return getConnection();
+    }
+    
+    void releaseConnection(Connection conn) {
+        if (conn == null || conn == connection) return;
+        
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "Error returning connection to the pool", e);
         }
     }
     
     public Connection getConnection() throws SQLException {
+        if (sqliteUrl != null && connectionPool != null) {
+            if (connection == null || connection.isClosed()) {
+                connection = openSQLiteConnection();
+            }
+            return connection;
+        }
+        
         if (connectionPool != null) {
             if (connection == null || connection.isClosed()) {
                 connection = connectionPool.getConnection();
@@ -319,6 +787,35 @@ public class DatabaseManager {
     }
     
     public void close() {
+        if (changeFeed != null) {
+            changeFeed.shutdown();
+        }
+        
+        if (readExecutor != null) {
+            readExecutor.shutdown();
+        }
+        
+        if (readPool != null && !readPool.isClosed()) {
+            readPool.close();
+        }
+        
+        if (batchWriter != null) {
+            batchWriter.shutdown();
+        }
+        
+        if (executor != null) {
+            executor.shutdown();
+        }
+        
+        if (sqliteWriter != null) {
+            sqliteWriter.shutdown();
+        }
+        
+        // Only now is every write of this run in, so the snapshot can be checked against what other servers wrote meanwhile
+        if (plugin.getStateSnapshot() != null) {
+            plugin.getStateSnapshot().seal();
+        }
+        
         clearStatementCache();
         
         if (connection != null) {
@@ -342,84 +839,81 @@ public class DatabaseManager {
     
     public void executeAsync(String sql, Consumer<ResultSet> resultHandler, Consumer<SQLException> errorHandler) {
         String cacheKey = "query:" + sql;
-        CachedQueryResult<ResultSet> cachedResult = (CachedQueryResult<ResultSet>) queryResultCache.get(cacheKey);
-        if (cachedResult != null && !cachedResult.isExpired()) {
+        CachedRowSet cachedRows = queryCache.get(cacheKey);
+        if (cachedRows != null) {
             if (resultHandler != null) {
                 plugin.getServer().getScheduler().runTask(plugin, () -> {
-                    resultHandler.accept(cachedResult.getValue());
+                    try {
+                        cachedRows.beforeFirst();
+                        resultHandler.accept(cachedRows);
+                    } catch (SQLException e) {
+                        plugin.getLogger().log(Level.WARNING, "Error rewinding cached result", e);
+                    }
                 });
             }
             return;
         }
         
-        pendingQueries.incrementAndGet();
-        UUID taskId = UUID.randomUUID();
+        Set<String> tables = isCacheableQuery(sql) ? QueryCache.tablesRead(sql) : Collections.emptySet();
+        long stamp = queryCache.stamp(tables);
+        long startedAt = System.nanoTime();
         
-        BukkitTask task = plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                ResultSet resultSet = executeQuery(sql);
-                
-                if (resultHandler != null) {
-                    plugin.getServer().getScheduler().runTask(plugin, () -> {
-                        try {
-                            resultHandler.accept(resultSet);
-                            
-                            if (isCacheableQuery(sql)) {
-                                CachedQueryResult<ResultSet> newCache = new CachedQueryResult<>(resultSet, DEFAULT_CACHE_EXPIRY);
-                                addToCache(cacheKey, newCache);
-                            }
-                        } catch (Exception e) {
-                            plugin.getLogger().log(Level.SEVERE, "Error in query result handler", e);
-                        } finally {
-                            try {
-                                resultSet.close();
-                            } catch (SQLException e) {
-                                plugin.getLogger().log(Level.WARNING, "Error closing result set", e);
-                            }
-                        }
-                    });
-                }
-            } catch (SQLException e) {
+        // Rows are copied off the connection so it can go back to the pool before the handler runs
+        submitTracked(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql);
+                 ResultSet rs = stmt.executeQuery()) {
+                CachedRowSet rows = RowSetProvider.newFactory().createCachedRowSet();
+                rows.populate(rs);
+                return rows;
+            }
+        }, false).whenComplete((rows, error) -> {
+            if (error != null) {
+                SQLException sqlError = asSqlException(error);
                 if (errorHandler != null) {
-                    plugin.getServer().getScheduler().runTask(plugin, () -> errorHandler.accept(e));
+                    plugin.getServer().getScheduler().runTask(plugin, () -> errorHandler.accept(sqlError));
                 } else {
-                    plugin.getLogger().log(Level.SEVERE, "Error executing async query: " + sql, e);
+                    plugin.getLogger().log(Level.SEVERE, "Error executing async query: " + sql, sqlError);
                 }
-            } finally {
-                pendingQueries.decrementAndGet();
-                activeTasks.remove(taskId);
+                return;
+            }
+            
+            if (resultHandler != null) {
+                long loadNanos = System.nanoTime() - startedAt;
+                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    try {
+                        resultHandler.accept(rows);
+                        
+                        if (!tables.isEmpty()) {
+                            queryCache.put(cacheKey, rows, tables, defaultCacheExpiry, stamp, loadNanos);
+                        }
+                    } catch (Exception e) {
+                        plugin.getLogger().log(Level.SEVERE, "Error in query result handler", e);
+                    }
+                });
             }
         });
-        
-        activeTasks.put(taskId, task);
     }
     
     public void updateAsync(String sql, Consumer<Integer> resultHandler, Consumer<SQLException> errorHandler) {
-        pendingQueries.incrementAndGet();
-        UUID taskId = UUID.randomUUID();
-        
-        BukkitTask task = plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                int result = executeUpdate(sql);
-                
-                if (resultHandler != null) {
-                    plugin.getServer().getScheduler().runTask(plugin, () -> resultHandler.accept(result));
-                }
-                
-                invalidateCacheForUpdate(sql);
-            } catch (SQLException e) {
+        submitTracked(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                return stmt.executeUpdate();
+            }
+        }, true).whenComplete((result, error) -> {
+            if (error != null) {
+                SQLException sqlError = asSqlException(error);
                 if (errorHandler != null) {
-                    plugin.getServer().getScheduler().runTask(plugin, () -> errorHandler.accept(e));
+                    plugin.getServer().getScheduler().runTask(plugin, () -> errorHandler.accept(sqlError));
                 } else {
-                    plugin.getLogger().log(Level.SEVERE, "Error executing async update: " + sql, e);
+                    plugin.getLogger().log(Level.SEVERE, "Error executing async update: " + sql, sqlError);
                 }
-            } finally {
-                pendingQueries.decrementAndGet();
-                activeTasks.remove(taskId);
+                return;
+            }
+            
+            if (resultHandler != null) {
+                plugin.getServer().getScheduler().runTask(plugin, () -> resultHandler.accept(result));
             }
         });
-        
-        activeTasks.put(taskId, task);
     }
     
     public void updateAsync(String sql) {
@@ -438,88 +932,148 @@ public class DatabaseManager {
     }
     
     public CompletableFuture<Integer> updateAsync(String sql, Object... params) {
-        CompletableFuture<Integer> future = new CompletableFuture<>();
-        
-        pendingQueries.incrementAndGet();
-        UUID taskId = UUID.randomUUID();
-        
-        BukkitTask task = plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                PreparedStatement stmt = prepareStatement(sql);
+        CompletableFuture<Integer> future = submitTracked(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 for (int i = 0; i < params.length; i++) {
                     stmt.setObject(i + 1, params[i]);
                 }
-                
-                int result = stmt.executeUpdate();
-                future.complete(result);
-                
-                invalidateCacheForUpdate(sql);
-            } catch (SQLException e) {
-                future.completeExceptionally(e);
-                plugin.getLogger().log(Level.SEVERE, "Error executing async update with parameters", e);
-            } finally {
-                pendingQueries.decrementAndGet();
-                activeTasks.remove(taskId);
+                return stmt.executeUpdate();
             }
-        });
+        }, true);
         
-        activeTasks.put(taskId, task);
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.SEVERE, "Error executing async update with parameters", error);
+            }
+        });
         return future;
     }
     
     public <T> CompletableFuture<T> queryWithMapperAsync(String sql, ResultSetMapper<T> mapper) {
-        return queryWithMapperAsync(sql, mapper, DEFAULT_CACHE_EXPIRY);
+        return queryWithMapperAsync(sql, mapper, defaultCacheExpiry);
     }
     
     public <T> CompletableFuture<T> queryWithMapperAsync(String sql, ResultSetMapper<T> mapper, long cacheTimeMs) {
-        CompletableFuture<T> future = new CompletableFuture<>();
         String cacheKey = "mapper:" + sql;
         
-        CachedQueryResult<T> cachedResult = (CachedQueryResult<T>) queryResultCache.get(cacheKey);
-        if (cachedResult != null && !cachedResult.isExpired()) {
-            future.complete(cachedResult.getValue());
-            return future;
+        T cachedResult = queryCache.get(cacheKey);
+        if (cachedResult != null) {
+            return CompletableFuture.completedFuture(cachedResult);
         }
         
-        pendingQueries.incrementAndGet();
-        UUID taskId = UUID.randomUUID();
+        // Versions are read before the query so a write that lands while it runs keeps the result out of the cache
+        Set<String> tables = isCacheableQuery(sql) ? QueryCache.tablesRead(sql) : Collections.emptySet();
+        long stamp = queryCache.stamp(tables);
+        long startedAt = System.nanoTime();
         
-        BukkitTask task = plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try (PreparedStatement stmt = prepareStatement(sql);
+        CompletableFuture<T> future = submitTracked(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql);
                  ResultSet rs = stmt.executeQuery()) {
-                
-                T result = mapper.map(rs);
-                future.complete(result);
-                
-                if (isCacheableQuery(sql)) {
-                    CachedQueryResult<T> newCache = new CachedQueryResult<>(result, cacheTimeMs);
-                    addToCache(cacheKey, newCache);
-                }
-            } catch (SQLException e) {
-                future.completeExceptionally(e);
-                plugin.getLogger().log(Level.SEVERE, "Error executing async query with mapper", e);
-            } finally {
-                pendingQueries.decrementAndGet();
-                activeTasks.remove(taskId);
+                return mapper.map(rs);
+            }
+        }, false);
+        
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.SEVERE, "Error executing async query with mapper", error);
+            } else if (result != null && !tables.isEmpty()) {
+                queryCache.put(cacheKey, result, tables, cacheTimeMs, stamp, System.nanoTime() - startedAt);
             }
         });
+        return future;
+    }
+    
+    public <T> CompletableFuture<T> read(ReadConsistency consistency, UUID actor, SqlFunction<Connection, T> work) {
+        if (readExecutor == null || consistency == ReadConsistency.STRONG
+                || (consistency == ReadConsistency.READ_YOUR_WRITES && actor != null && hasRecentWrite(actor))) {
+            return readPrimary(work);
+        }
+        return readExecutor.submit(work);
+    }
+    
+    public <T> CompletableFuture<T> readCached(ReadConsistency consistency, UUID actor, String sql,
+                                              ResultSetMapper<T> mapper, Object... params) {
+        SqlFunction<Connection, T> work = conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < params.length; i++) {
+                    stmt.setObject(i + 1, params[i]);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return mapper.map(rs);
+                }
+            }
+        };
         
-        activeTasks.put(taskId, task);
+        // A player who just wrote must not be handed a cached copy from before the write
+        if (consistency == ReadConsistency.STRONG || !isCacheableQuery(sql)
+                || (consistency == ReadConsistency.READ_YOUR_WRITES && actor != null && hasRecentWrite(actor))) {
+            return read(consistency, actor, work);
+        }
+        
+        String cacheKey = "read:" + sql + Arrays.toString(params);
+        T cachedResult = queryCache.get(cacheKey);
+        if (cachedResult != null) {
+            return CompletableFuture.completedFuture(cachedResult);
+        }
+        
+        Set<String> tables = QueryCache.tablesRead(sql);
+        long stamp = queryCache.stamp(tables);
+        long startedAt = System.nanoTime();
+        
+        CompletableFuture<T> future = read(consistency, actor, work);
+        future.whenComplete((result, error) -> {
+            if (error == null && result != null && !tables.isEmpty()) {
+                queryCache.put(cacheKey, result, tables, defaultCacheExpiry, stamp, System.nanoTime() - startedAt);
+            }
+        });
         return future;
     }
     
+    public <T> CompletableFuture<T> read(SqlFunction<Connection, T> work) {
+        return read(ReadConsistency.EVENTUAL, null, work);
+    }
+    
+    private <T> CompletableFuture<T> readPrimary(SqlFunction<Connection, T> work) {
+        // The writer thread runs work in submission order, so the read sees every write queued before it
+        return sqliteWriter != null ? sqliteWriter.submit(work) : executor.submit(work);
+    }
+    
+    public void markWrite(UUID actor) {
+        if (readExecutor != null) {
+            recentWrites.put(actor, System.currentTimeMillis());
+        }
+    }
+    
+    private boolean hasRecentWrite(UUID actor) {
+        Long writtenAt = recentWrites.get(actor);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - writtenAt > readYourWritesMillis) {
+            recentWrites.remove(actor, writtenAt);
+            return false;
+        }
+        return true;
+    }
+    
     public <T> T queryWithTransaction(SqlFunction<Connection, T> function) throws SQLException {
+        if (sqliteWriter != null) {
+            return writeOnSQLiteWriter(function);
+        }
+        
         Connection conn = null;
         boolean originalAutoCommit = true;
         
         try {
-            conn = getConnection();
+            conn = borrowConnection();
             originalAutoCommit = conn.getAutoCommit();
             conn.setAutoCommit(false);
             
-            T result = function.apply(conn);
+            Set<String> written = new HashSet<>();
+            T result = function.apply(WriteTracker.wrap(conn, written));
             
             conn.commit();
+            invalidateTables(written);
             return result;
         } catch (SQLException e) {
             if (conn != null) {
@@ -537,123 +1091,141 @@ public class DatabaseManager {
                 } catch (SQLException resetEx) {
                     plugin.getLogger().log(Level.WARNING, "Error resetting auto-commit", resetEx);
                 }
+                releaseConnection(conn);
             }
         }
     }
     
+    private <T> T writeOnSQLiteWriter(SqlFunction<Connection, T> function) throws SQLException {
+        if (sqliteWriter.isWriterThread()) {
+            // Already inside the writer's transaction
+            return function.apply(sqliteWriter.getConnection());
+        }
+        
+        return sqliteWriter.write(function, syncWriteTimeoutMillis);
+    }
+    
     public CompletableFuture<Void> executeTransactionAsync(SqlConsumer<Connection> consumer) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture<Void> future = submitTracked(conn -> {
+            consumer.accept(conn);
+            return null;
+        }, true);
         
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.SEVERE, "Error executing async transaction", error);
+            }
+        });
+        return future;
+    }
+    
+    private <T> CompletableFuture<T> submitTracked(SqlFunction<Connection, T> work, boolean write) {
         pendingQueries.incrementAndGet();
         UUID taskId = UUID.randomUUID();
         
-        BukkitTask task = plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                queryWithTransaction(conn -> {
-                    consumer.accept(conn);
-                    return null;
-                });
-                future.complete(null);
-            } catch (SQLException e) {
-                future.completeExceptionally(e);
-                plugin.getLogger().log(Level.SEVERE, "Error executing async transaction", e);
-            } finally {
-                pendingQueries.decrementAndGet();
-                activeTasks.remove(taskId);
-            }
+        CompletableFuture<T> future;
+        if (!write) {
+            future = readExecutor != null ? readExecutor.submit(work) : executor.submit(work);
+        } else if (sqliteWriter != null) {
+            future = sqliteWriter.submit(work);
+        } else {
+            future = executor.submitTransaction(work);
+        }
+        activeTasks.put(taskId, future);
+        future.whenComplete((result, error) -> {
+            pendingQueries.decrementAndGet();
+            activeTasks.remove(taskId);
         });
-        
-        activeTasks.put(taskId, task);
         return future;
     }
     
+    private SQLException asSqlException(Throwable error) {
+        return error instanceof SQLException ? (SQLException) error : new SQLException(error);
+    }
+    
     public void addBatchOperation(String sql, Object[] params) {
-        UUID playerUUID = UUID.randomUUID(); 
-        addBatchOperation(playerUUID, sql, params);
+        batchWriter.add(null, sql, params);
     }
     
     public void addBatchOperation(UUID playerUUID, String sql, Object[] params) {
-        BatchOperation operation = new BatchOperation(sql, params, System.currentTimeMillis());
-        
-        batchOperations.computeIfAbsent(playerUUID, k -> new ArrayList<>()).add(operation);
-        
-        List<BatchOperation> playerBatch = batchOperations.get(playerUUID);
-        if (playerBatch.size() >= batchSizeThreshold) {
-            executeBatch(playerUUID);
-        }
+        // Keyed by player, so one player's statements are written in the order they were queued
+        batchWriter.add(playerUUID, sql, params);
     }
     
-    private void startBatchProcessor() {
-        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::processBatchOperations, 100L, 100L);
+    public void addIncrementOperation(String sql, double amount, Object... keyParams) {
+        batchWriter.addIncrement(Arrays.asList(keyParams), sql, amount, keyParams);
+    }
+    
+    public BatchWriter getBatchWriter() {
+        return batchWriter;
+    }
+    
+    public DatabaseExecutor getExecutor() {
+        return executor;
+    }
+    
+    public DatabaseExecutor getReadExecutor() {
+        return readExecutor;
+    }
+    
+    public boolean hasReadPool() {
+        return readPool != null;
+    }
+    
+    public SQLiteWriter getSQLiteWriter() {
+        return sqliteWriter;
     }
     
-    private void processBatchOperations() {
-        long now = System.currentTimeMillis();
+    private void startExecutor() {
+        if (executor != null) return;
         
-        for (UUID playerUUID : new ArrayList<>(batchOperations.keySet())) {
-            List<BatchOperation> operations = batchOperations.get(playerUUID);
-            if (operations == null || operations.isEmpty()) continue;
-            
-            BatchOperation oldest = operations.get(0);
-            if (now - oldest.timestamp > batchTimeThreshold) {
-                executeBatch(playerUUID);
-            }
+        FileConfiguration config = plugin.getConfigManager().getConfig();
+        // Without a pool there is only the one shared connection, so more than one worker would just contend for it
+        int threads = connectionPool != null ? Math.max(1, config.getInt("database.executor.threads", 4)) : 1;
+        if (sqliteWriter != null && connectionPool != null) {
+            // Workers only read in single-writer mode, more of them than readers would just queue on the pool
+            threads = Math.min(threads, connectionPool.getMaximumPoolSize());
         }
+        executor = new DatabaseExecutor(plugin, this, threads,
+                Math.max(16, config.getInt("database.executor.queue-size", 1000)),
+                config.getBoolean("database.executor.virtual-threads", true));
+        plugin.getLogger().info("Database executor started with " + threads + (executor.isVirtualThreads() ? " virtual" : "") + " worker(s)");
     }
     
-    private void executeBatch(UUID playerUUID) {
-        List<BatchOperation> operations = batchOperations.remove(playerUUID);
-        if (operations == null || operations.isEmpty()) return;
+    private void startReadRoute() {
+        FileConfiguration config = plugin.getConfigManager().getConfig();
+        if (readExecutor != null || connectionPool == null || !config.getBoolean("database.read.enabled", true)) return;
         
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            Connection conn = null;
-            try {
-                conn = getConnection();
-                
-                // Only start transaction for multiple operations
-                if (operations.size() > 1) {
-                    conn.setAutoCommit(false);
-                }
-                
-                for (BatchOperation operation : operations) {
-                    try (PreparedStatement stmt = conn.prepareStatement(operation.sql)) {
-                        if (operation.params != null) {
-                            for (int i = 0; i < operation.params.length; i++) {
-                                stmt.setObject(i + 1, operation.params[i]);
-                            }
-                        }
-                        stmt.executeUpdate();
-                    }
-                }
-                
-                // Only commit if we started a transaction
-                if (operations.size() > 1 && !conn.getAutoCommit()) {
-                    conn.commit();
-                    conn.setAutoCommit(true);
-                }
-                
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Error executing batch operation", e);
-                if (conn != null) {
-                    try {
-                        if (!conn.getAutoCommit()) {
-                            conn.rollback();
-                            conn.setAutoCommit(true);
-                        }
-                    } catch (SQLException rollbackEx) {
-                        plugin.getLogger().log(Level.SEVERE, "Error rolling back transaction", rollbackEx);
-                    }
-                }
-            } finally {
-                if (conn != null && connectionPool == null) {
-                    try {
-                        conn.close();
-                    } catch (SQLException e) {
-                        plugin.getLogger().log(Level.WARNING, "Error closing connection", e);
-                    }
-                }
-            }
-        });
+        if (mysql) {
+            initializeMySQLReadPool();
+        } else {
+            initializeSQLiteReadPool();
+        }
+        
+        // Own workers as well as own connections, so a read never queues behind a burst of writes
+        int threads = Math.max(1, config.getInt("database.read.threads", 2));
+        if (readPool != null) {
+            threads = Math.min(threads, readPool.getMaximumPoolSize());
+        }
+        readExecutor = new DatabaseExecutor(plugin, this, threads,
+                Math.max(16, config.getInt("database.executor.queue-size", 1000)),
+                config.getBoolean("database.executor.virtual-threads", true), true);
+        readYourWritesMillis = Math.max(0L, config.getLong("database.read.read-your-writes-ms", 2000));
+        
+        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+            long cutoff = System.currentTimeMillis() - readYourWritesMillis;
+            recentWrites.values().removeIf(writtenAt -> writtenAt < cutoff);
+        }, 20 * 60, 20 * 60);
+        plugin.getLogger().info("Read route started with " + threads + " worker(s)" + (readPool != null ? " on a dedicated read pool" : ""));
+    }
+    
+    private void startBatchProcessor() {
+        FileConfiguration config = plugin.getConfigManager().getConfig();
+        batchWriter = new BatchWriter(plugin, this,
+                Math.max(1, config.getInt("database.batch.max-size", 500)),
+                Math.max(50L, config.getLong("database.batch.max-delay-ms", 2000)),
+                Math.max(1, config.getInt("database.batch.max-attempts", 3)));
+        batchWriter.start();
     }
     
     private boolean isCacheableQuery(String sql) {
@@ -662,81 +1234,26 @@ public class DatabaseManager {
                !normalizedSql.contains("now()") && !normalizedSql.contains("current_timestamp");
     }
     
-    private void invalidateCacheForUpdate(String sql) {
-        String normalizedSql = sql.trim().toLowerCase();
-        String tableName = extractTableName(normalizedSql);
-        if (tableName != null) {
-            List<String> keysToRemove = new ArrayList<>();
-            for (String key : queryResultCache.keySet()) {
-                if (key.contains(tableName)) {
-                    keysToRemove.add(key);
-                }
-            }
-            for (String key : keysToRemove) {
-                queryResultCache.remove(key);
-            }
+    private void invalidateTables(Set<String> tables) {
+        for (String table : tables) {
+            queryCache.invalidateTable(table);
         }
     }
     
-    private String extractTableName(String sql) {
-        if (sql.contains("update ")) {
-            int updateIndex = sql.indexOf("update ") + 7;
-            int spaceIndex = sql.indexOf(' ', updateIndex);
-            if (spaceIndex > updateIndex) {
-                return sql.substring(updateIndex, spaceIndex).trim();
-            }
-        } else if (sql.contains("insert into ")) {
-            int insertIndex = sql.indexOf("insert into ") + 12;
-            int spaceIndex = sql.indexOf(' ', insertIndex);
-            if (spaceIndex > insertIndex) {
-                return sql.substring(insertIndex, spaceIndex).trim();
-            }
-        } else if (sql.contains("delete from ")) {
-            int deleteIndex = sql.indexOf("delete from ") + 12;
-            int spaceIndex = sql.indexOf(' ', deleteIndex);
-            if (spaceIndex > deleteIndex) {
-                return sql.substring(deleteIndex, spaceIndex).trim();
-            }
-        }
-        return null;
+    public void invalidateTable(String table) {
+        queryCache.invalidateTable(table);
     }
     
-    private <T> void addToCache(String key, CachedQueryResult<T> result) {
-        if (queryResultCache.size() >= MAX_CACHE_SIZE) {
-            String oldestKey = null;
-            long oldestTime = Long.MAX_VALUE;
-            
-            for (Map.Entry<String, CachedQueryResult<?>> entry : queryResultCache.entrySet()) {
-                CachedQueryResult<?> value = entry.getValue();
-                if (value.getCreationTime() < oldestTime) {
-                    oldestTime = value.getCreationTime();
-                    oldestKey = entry.getKey();
-                }
-            }
-            
-            if (oldestKey != null) {
-                queryResultCache.remove(oldestKey);
-            }
-        }
-        
-        queryResultCache.put(key, result);
+    public QueryCache getQueryCache() {
+        return queryCache;
     }
     
-    private void startCacheCleanupTask() {
-        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, () -> {
-            List<String> keysToRemove = new ArrayList<>();
-            
-            for (Map.Entry<String, CachedQueryResult<?>> entry : queryResultCache.entrySet()) {
-                if (entry.getValue().isExpired()) {
-                    keysToRemove.add(entry.getKey());
-                }
-            }
-            
-            for (String key : keysToRemove) {
-                queryResultCache.remove(key);
-            }
-            
-        }, 20 * 60, 20 * 60); // Run every minute
+    private void startQueryCache() {
+        FileConfiguration config = plugin.getConfigManager().getConfig();
+        queryCache = new QueryCache(config.getInt("database.cache.max-size", 1000));
+        defaultCacheExpiry = TimeUnit.SECONDS.toMillis(Math.max(1, config.getInt("database.cache.default-ttl-seconds", 300)));
+        
+        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, queryCache::removeExpired, 20 * 60, 20 * 60); // Run every minute
     }
     
     private void clearStatementCache() {
@@ -765,8 +1282,8 @@ public class DatabaseManager {
     }
     
     public void cancelAllTasks() {
-        for (BukkitTask task : activeTasks.values()) {
-            task.cancel();
+        for (Future<?> task : activeTasks.values()) {
+            task.cancel(false);
         }
         activeTasks.clear();
     }
@@ -834,49 +1351,13 @@ public class DatabaseManager {
         try (Statement stmt = getConnection().createStatement()) {
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_player_stats_uuid ON player_stats(uuid)");
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_player_stats_earnings ON player_stats(total_earnings)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_generators_location ON generators(world, x, y, z)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_generators_location ON generators(world_id, x, y, z)");
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_network_generators_generator_id ON network_generators(generator_id)");
         } catch (SQLException e) {
             plugin.getLogger().warning("Failed to create optimization indexes: " + e.getMessage());
         }
     }
     
-    private static class BatchOperation {
-        final String sql;
-        final Object[] params;
-        final long timestamp;
-        
-        BatchOperation(String sql, Object[] params, long timestamp) {
-            this.sql = sql;
-            this.params = params;
-            this.timestamp = timestamp;
-        }
-    }
-    
-    private static class CachedQueryResult<T> {
-        private final T value;
-        private final long expiryTime;
-        private final long creationTime;
-        
-        CachedQueryResult(T value, long cacheTimeMs) {
-            this.value = value;
-            this.creationTime = System.currentTimeMillis();
-            this.expiryTime = this.creationTime + cacheTimeMs;
-        }
-        
-        public T getValue() {
-            return value;
-        }
-        
-        public boolean isExpired() {
-            return System.currentTimeMillis() > expiryTime;
-        }
-        
-        public long getCreationTime() {
-            return creationTime;
-        }
-    }
-    
     @FunctionalInterface
     public interface SqlFunction<T, R> {
         R apply(T t) throws SQLException;
@@ -890,26 +1371,20 @@ public class DatabaseManager {
     public interface ResultSetMapper<T> {
         T map(ResultSet rs) throws SQLException;
     }
-
+    
     public <T> void prepareAndExecuteAsync(String sql, SqlFunction<PreparedStatement, T> statementConsumer, 
                                        Consumer<T> resultHandler, Consumer<SQLException> errorHandler) {
-    pendingQueries.incrementAndGet();
-    UUID taskId = UUID.randomUUID();
-    
-    BukkitTask task = plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-        try (PreparedStatement stmt = prepareStatement(sql)) {
-            T result = statementConsumer.apply(stmt);
-            plugin.getServer().getScheduler().runTask(plugin, () -> resultHandler.accept(result));
-        } catch (SQLException e) {
-            if (errorHandler != null) {
-                plugin.getServer().getScheduler().runTask(plugin, () -> errorHandler.accept(e));
+        submitTracked(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                return statementConsumer.apply(stmt);
             }
-        } finally {
-            pendingQueries.decrementAndGet();
-            activeTasks.remove(taskId);
-        }
-    });
-    
-    activeTasks.put(taskId, task);
-}
+        }, true).whenComplete((result, error) -> {
+            if (error == null) {
+                plugin.getServer().getScheduler().runTask(plugin, () -> resultHandler.accept(result));
+            } else if (errorHandler != null) {
+                SQLException sqlError = asSqlException(error);
+                plugin.getServer().getScheduler().runTask(plugin, () -> errorHandler.accept(sqlError));
+            }
+        });
+    }
 }
\ No newline at end of file
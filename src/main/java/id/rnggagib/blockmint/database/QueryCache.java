@@ -0,0 +1,283 @@
+package id.rnggagib.blockmint.database;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class QueryCache {
+    
+    private static final Set<String> KEYWORDS = Set.of("where", "join", "inner", "left", "right", "outer", "cross",
+            "on", "group", "order", "limit", "having", "union", "as", "select", "set", "values");
+    
+    private final int maxSize;
+    private final int protectedMaxSize;
+    
+    // Segmented LRU: new entries start in probation and move to the protected segment on their second hit,
+    // so a burst of one-off queries can only push out other one-off queries
+    private final LinkedHashMap<String, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Entry> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<String>> keysByTable = new HashMap<>();
+    private final Map<String, AtomicLong> tableVersions = new HashMap<>();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+    
+    public QueryCache(int maxSize) {
+        this.maxSize = Math.max(2, maxSize);
+        this.protectedMaxSize = Math.max(1, this.maxSize * 4 / 5);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T get(String key) {
+        long now = System.currentTimeMillis();
+        
+        Entry entry = probation.get(key);
+        if (entry != null) {
+            if (entry.isExpired(now)) {
+                removeEntry(key);
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+            
+            probation.remove(key);
+            protectedSegment.put(key, entry);
+            if (protectedSegment.size() > protectedMaxSize) {
+                // The coldest protected entry gets another chance in probation instead of being dropped
+                Iterator<Map.Entry<String, Entry>> iterator = protectedSegment.entrySet().iterator();
+                Map.Entry<String, Entry> demoted = iterator.next();
+                iterator.remove();
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+            hits.increment();
+            return (T) entry.value;
+        }
+        
+        entry = protectedSegment.get(key);
+        if (entry != null) {
+            if (entry.isExpired(now)) {
+                removeEntry(key);
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return (T) entry.value;
+        }
+        
+        misses.increment();
+        return null;
+    }
+    
+    public synchronized long stamp(Collection<String> tables) {
+        long stamp = 0;
+        for (String table : tables) {
+            AtomicLong version = tableVersions.get(table);
+            if (version != null) {
+                stamp += version.get();
+            }
+        }
+        return stamp;
+    }
+    
+    public synchronized void put(String key, Object value, Set<String> tables, long ttlMillis, long stamp, long loadNanos) {
+        loads.increment();
+        totalLoadNanos.add(loadNanos);
+        
+        // A write to one of the tables landed while this result was loading, so it may already be stale
+        if (tables.isEmpty() || stamp(tables) != stamp) {
+            return;
+        }
+        
+        removeEntry(key);
+        probation.put(key, new Entry(value, tables, System.currentTimeMillis() + ttlMillis));
+        for (String table : tables) {
+            keysByTable.computeIfAbsent(table, t -> new HashSet<>()).add(key);
+        }
+        
+        while (probation.size() + protectedSegment.size() > maxSize) {
+            LinkedHashMap<String, Entry> segment = probation.isEmpty() ? protectedSegment : probation;
+            String eldest = segment.keySet().iterator().next();
+            removeEntry(eldest);
+            evictions.increment();
+        }
+    }
+    
+    public synchronized void invalidateTable(String table) {
+        if (table == null) return;
+        
+        tableVersions.computeIfAbsent(table, t -> new AtomicLong()).incrementAndGet();
+        Set<String> keys = keysByTable.remove(table);
+        if (keys == null) return;
+        
+        for (String key : new ArrayList<>(keys)) {
+            if (removeEntry(key)) {
+                invalidations.increment();
+            }
+        }
+    }
+    
+    public synchronized void removeExpired() {
+        long now = System.currentTimeMillis();
+        List<String> expired = new ArrayList<>();
+        for (Map.Entry<String, Entry> entry : probation.entrySet()) {
+            if (entry.getValue().isExpired(now)) expired.add(entry.getKey());
+        }
+        for (Map.Entry<String, Entry> entry : protectedSegment.entrySet()) {
+            if (entry.getValue().isExpired(now)) expired.add(entry.getKey());
+        }
+        
+        for (String key : expired) {
+            removeEntry(key);
+            expirations.increment();
+        }
+    }
+    
+    public synchronized void clear() {
+        probation.clear();
+        protectedSegment.clear();
+        keysByTable.clear();
+    }
+    
+    private boolean removeEntry(String key) {
+        Entry entry = probation.remove(key);
+        if (entry == null) {
+            entry = protectedSegment.remove(key);
+        }
+        if (entry == null) {
+            return false;
+        }
+        
+        for (String table : entry.tables) {
+            Set<String> keys = keysByTable.get(table);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByTable.remove(table);
+                }
+            }
+        }
+        return true;
+    }
+    
+    public static Set<String> tablesRead(String sql) {
+        String[] tokens = tokenize(sql);
+        Set<String> tables = new HashSet<>();
+        
+        for (int i = 0; i < tokens.length - 1; i++) {
+            if (!tokens[i].equals("from") && !tokens[i].equals("join")) continue;
+            
+            // Handles "from a", "from a x, b y" and "join c as z"
+            int j = i + 1;
+            while (j < tokens.length && isIdentifier(tokens[j])) {
+                tables.add(tokens[j]);
+                j++;
+                if (j < tokens.length && tokens[j].equals("as")) j++;
+                if (j < tokens.length && isIdentifier(tokens[j])) j++;
+                if (j < tokens.length && tokens[j].equals(",")) {
+                    j++;
+                } else {
+                    break;
+                }
+            }
+        }
+        return tables;
+    }
+    
+    public static String tableWritten(String sql) {
+        String[] tokens = tokenize(sql);
+        for (int i = 0; i < tokens.length - 1; i++) {
+            switch (tokens[i]) {
+                case "update":
+                    return isIdentifier(tokens[i + 1]) ? tokens[i + 1] : null;
+                case "into":
+                case "from":
+                    if (i > 0 && (tokens[i - 1].equals("insert") || tokens[i - 1].equals("replace")
+                            || tokens[i - 1].equals("ignore") || tokens[i - 1].equals("delete"))) {
+                        return isIdentifier(tokens[i + 1]) ? tokens[i + 1] : null;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return null;
+    }
+    
+    private static String[] tokenize(String sql) {
+        return sql.toLowerCase(Locale.ROOT)
+                .replace(",", " , ")
+                .replaceAll("[`\"\\[\\]]", "")
+                .trim()
+                .split("[\\s();]+");
+    }
+    
+    private static boolean isIdentifier(String token) {
+        return !token.isEmpty() && !token.equals(",") && !KEYWORDS.contains(token)
+                && Character.isJavaIdentifierStart(token.charAt(0));
+    }
+    
+    public synchronized int size() {
+        return probation.size() + protectedSegment.size();
+    }
+    
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+    public double getHitRate() {
+        long total = hits.sum() + misses.sum();
+        return total == 0 ? 0.0 : hits.sum() / (double) total;
+    }
+    
+    public long getEvictions() {
+        return evictions.sum();
+    }
+    
+    public long getExpirations() {
+        return expirations.sum();
+    }
+    
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+    
+    public double getAverageLoadMillis() {
+        long count = loads.sum();
+        return count == 0 ? 0.0 : totalLoadNanos.sum() / (double) count / 1_000_000.0;
+    }
+    
+    private static class Entry {
+        final Object value;
+        final Set<String> tables;
+        final long expiresAt;
+        
+        Entry(Object value, Set<String> tables, long expiresAt) {
+            this.value = value;
+            this.tables = tables;
+            this.expiresAt = expiresAt;
+        }
+        
+        boolean isExpired(long now) {
+            return now > expiresAt;
+        }
+    }
+}
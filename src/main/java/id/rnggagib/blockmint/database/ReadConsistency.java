@@ -0,0 +1,10 @@
+package id.rnggagib.blockmint.database;
+
+public enum ReadConsistency {
+    // Read pool, may trail the primary by the replica lag
+    EVENTUAL,
+    // Read pool, unless the acting player wrote recently enough that the pool may not have caught up
+    READ_YOUR_WRITES,
+    // Always the primary, for reads that decide a write
+    STRONG
+}
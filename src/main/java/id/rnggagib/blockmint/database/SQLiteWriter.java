@@ -0,0 +1,296 @@
+package id.rnggagib.blockmint.database;
+
+import id.rnggagib.BlockMint;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+public class SQLiteWriter {
+    
+    private static final long SATURATION_WARNING_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+    private static final long MAIN_THREAD_OFFER_MILLIS = 50;
+    private static final long OFFER_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    
+    private final BlockMint plugin;
+    private final String jdbcUrl;
+    private final Properties properties;
+    private final int maxBatch;
+    private final BlockingQueue<WriteTask<?>> queue;
+    private final Consumer<Set<String>> onCommit;
+    private final Set<String> written = new HashSet<>();
+    
+    private Connection connection;
+    private Connection tracked;
+    private Thread thread;
+    private volatile boolean running;
+    
+    private final AtomicLong transactions = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong lastSaturationWarning = new AtomicLong();
+    
+    public SQLiteWriter(BlockMint plugin, String jdbcUrl, Properties properties, int maxBatch, int queueSize,
+                        Consumer<Set<String>> onCommit) {
+        this.plugin = plugin;
+        this.jdbcUrl = jdbcUrl;
+        this.properties = properties;
+        this.maxBatch = maxBatch;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.onCommit = onCommit;
+    }
+    
+    public void start() throws SQLException {
+        connection = DriverManager.getConnection(jdbcUrl, properties);
+        connection.setAutoCommit(false);
+        tracked = WriteTracker.wrap(connection, written);
+        
+        running = true;
+        thread = new Thread(this::run, "BlockMint-SQLite-Writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    public <T> CompletableFuture<T> submit(DatabaseManager.SqlFunction<Connection, T> work) {
+        return enqueue(new WriteTask<>(work)).future;
+    }
+    
+    public <T> T write(DatabaseManager.SqlFunction<Connection, T> work, long timeoutMillis) throws SQLException {
+        WriteTask<T> task = enqueue(new WriteTask<>(work));
+        try {
+            try {
+                return task.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Only give up while the writer has not picked the task up, otherwise the outcome is moments away
+                if (task.abandon()) {
+                    throw new SQLException("Timed out after " + timeoutMillis + "ms waiting for the SQLite writer, write abandoned", e);
+                }
+                return task.future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (task.abandon()) {
+                throw new SQLException("Interrupted while waiting for the SQLite writer", e);
+            }
+            throw new SQLException("Interrupted while the SQLite writer was applying a write", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof SQLException ? (SQLException) cause : new SQLException(cause);
+        }
+    }
+    
+    private <T> WriteTask<T> enqueue(WriteTask<T> task) {
+        if (!running) {
+            task.future.completeExceptionally(new SQLException("SQLite writer is not running"));
+            return task;
+        }
+        
+        // The server thread only gets a short grace period, background producers can afford to wait longer
+        long wait = plugin.getServer().isPrimaryThread() ? MAIN_THREAD_OFFER_MILLIS : OFFER_MILLIS;
+        try {
+            if (queue.offer(task, wait, TimeUnit.MILLISECONDS)) {
+                return task;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.future.completeExceptionally(new SQLException("Interrupted while queueing a write", e));
+            return task;
+        }
+        
+        rejected.incrementAndGet();
+        long now = System.currentTimeMillis();
+        long last = lastSaturationWarning.get();
+        if (now - last > SATURATION_WARNING_INTERVAL && lastSaturationWarning.compareAndSet(last, now)) {
+            plugin.getLogger().warning("SQLite write queue is full, refused a write from " + Thread.currentThread().getName()
+                    + " (" + rejected.get() + " refused so far)");
+        }
+        task.future.completeExceptionally(new SQLException("SQLite write queue is full"));
+        return task;
+    }
+    
+    public boolean isWriterThread() {
+        return Thread.currentThread() == thread;
+    }
+    
+    Connection getConnection() {
+        return tracked;
+    }
+    
+    private void run() {
+        List<WriteTask<?>> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                WriteTask<?> first = queue.poll(250, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                
+                // Everything already waiting rides along in the same transaction, so one fsync covers the lot
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                runBatch(batch);
+            } catch (InterruptedException e) {
+                if (!running) break;
+            } catch (RuntimeException e) {
+                plugin.getLogger().log(Level.SEVERE, "Unexpected error in SQLite writer", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private void runBatch(List<WriteTask<?>> batch) {
+        List<WriteTask<?>> applied = new ArrayList<>(batch.size());
+        boolean isolate = batch.size() > 1;
+        
+        try {
+            for (WriteTask<?> task : batch) {
+                if (!task.claim()) {
+                    // The caller stopped waiting before the writer got to it
+                    continue;
+                }
+                
+                // A savepoint per task keeps one bad statement from undoing everyone else's writes
+                Savepoint savepoint = isolate ? connection.setSavepoint() : null;
+                try {
+                    task.apply(tracked);
+                    if (savepoint != null) {
+                        connection.releaseSavepoint(savepoint);
+                    }
+                    applied.add(task);
+                } catch (SQLException | RuntimeException e) {
+                    if (savepoint != null) {
+                        connection.rollback(savepoint);
+                    } else {
+                        connection.rollback();
+                    }
+                    failedWrites.incrementAndGet();
+                    task.future.completeExceptionally(e);
+                }
+            }
+            
+            connection.commit();
+            transactions.incrementAndGet();
+            writes.addAndGet(applied.size());
+            // Cached reads are dropped before anyone waiting on the batch hears it landed
+            onCommit.accept(written);
+            for (WriteTask<?> task : applied) {
+                task.complete();
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error committing SQLite write batch", e);
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackEx) {
+                plugin.getLogger().log(Level.SEVERE, "Error rolling back SQLite write batch", rollbackEx);
+            }
+            
+            failedWrites.addAndGet(applied.size());
+            for (WriteTask<?> task : batch) {
+                task.future.completeExceptionally(e);
+            }
+        } finally {
+            written.clear();
+        }
+    }
+    
+    public void shutdown() {
+        running = false;
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            
+            if (thread.isAlive()) {
+                plugin.getLogger().warning("SQLite writer did not finish in time, " + queue.size() + " writes dropped");
+                thread.interrupt();
+            }
+        }
+        
+        WriteTask<?> task;
+        while ((task = queue.poll()) != null) {
+            task.future.completeExceptionally(new SQLException("SQLite writer has shut down"));
+        }
+        
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.WARNING, "Error closing SQLite writer connection", e);
+            }
+        }
+    }
+    
+    public int getQueueDepth() {
+        return queue.size();
+    }
+    
+    public long getTransactionCount() {
+        return transactions.get();
+    }
+    
+    public long getWriteCount() {
+        return writes.get();
+    }
+    
+    public long getFailedWriteCount() {
+        return failedWrites.get();
+    }
+    
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+    
+    public double getAverageBatchSize() {
+        long count = transactions.get();
+        return count == 0 ? 0.0 : writes.get() / (double) count;
+    }
+    
+    private static class WriteTask<T> {
+        final DatabaseManager.SqlFunction<Connection, T> work;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final AtomicBoolean claimed = new AtomicBoolean();
+        T result;
+        
+        WriteTask(DatabaseManager.SqlFunction<Connection, T> work) {
+            this.work = work;
+        }
+        
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+        
+        boolean abandon() {
+            if (!claimed.compareAndSet(false, true)) {
+                return false;
+            }
+            future.completeExceptionally(new SQLException("Write abandoned before the SQLite writer reached it"));
+            return true;
+        }
+        
+        void apply(Connection conn) throws SQLException {
+            result = work.apply(conn);
+        }
+        
+        void complete() {
+            future.complete(result);
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package id.rnggagib.blockmint.database;
+
+import id.rnggagib.BlockMint;
+import id.rnggagib.blockmint.network.NetworkBlock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+public class StateSnapshot {
+    
+    public static final String TOKEN_KEY = "snapshot_token";
+    public static final String FEED_POSITION_KEY = "snapshot_feed_position";
+    public static final long NO_FEED_POSITION = -1;
+    
+    private static final int MAGIC = 0x424D5353;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 * 4;
+    
+    // Fixed-width records, strings live once in the table at the front of the file
+    private static final int GENERATOR_RECORD = 64;
+    private static final int NETWORK_RECORD = 72;
+    
+    private final BlockMint plugin;
+    private final File file;
+    private Loaded loaded;
+    private boolean saved;
+    private long savedFeedPosition;
+    
+    public StateSnapshot(BlockMint plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(),
+                plugin.getConfigManager().getConfig().getString("database.snapshot.file", "state.snapshot"));
+    }
+    
+    public boolean isEnabled() {
+        return plugin.getConfigManager().getConfig().getBoolean("database.snapshot.enabled", false);
+    }
+    
+    public Loaded load() {
+        loaded = null;
+        if (!isEnabled() || !file.isFile()) {
+            return null;
+        }
+        
+        long expectedToken = plugin.getDatabaseManager().getStartupSnapshotToken();
+        if (expectedToken == 0) {
+            plugin.getLogger().info("State snapshot is out of date (last shutdown was not clean), loading from the database");
+            return null;
+        }
+        
+        // Servers sharing the database write without touching our token, the change feed is what shows they did
+        ChangeFeed feed = plugin.getDatabaseManager().getChangeFeed();
+        if (feed != null && feed.isEnabled() && plugin.getDatabaseManager().getStartupSnapshotFeedPosition() != feed.getStartPosition()) {
+            plugin.getLogger().info("State snapshot predates changes made by other servers, loading from the database");
+            return null;
+        }
+        
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                plugin.getLogger().warning("State snapshot has an unknown format, loading from the database");
+                return null;
+            }
+            
+            long token = buffer.getLong();
+            long checksum = buffer.getLong();
+            int generatorCount = buffer.getInt();
+            int networkCount = buffer.getInt();
+            int memberCount = buffer.getInt();
+            int stringCount = buffer.getInt();
+            
+            if (token != expectedToken) {
+                plugin.getLogger().info("State snapshot does not match the database, loading from the database");
+                return null;
+            }
+            
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if (crc.getValue() != checksum) {
+                plugin.getLogger().warning("State snapshot checksum mismatch, loading from the database");
+                return null;
+            }
+            
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            
+            ByteBuffer generators = section(buffer, generatorCount * GENERATOR_RECORD);
+            ByteBuffer networks = section(buffer, networkCount * NETWORK_RECORD);
+            ByteBuffer members = section(buffer, memberCount * 4);
+            
+            loaded = new Loaded(strings, generatorCount, generators, networkCount, networks, members);
+            return loaded;
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not read state snapshot, loading from the database", e);
+            return null;
+        }
+    }
+    
+    private static ByteBuffer section(ByteBuffer buffer, int length) {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+    
+    public Loaded takeLoaded() {
+        Loaded result = loaded;
+        loaded = null;
+        return result;
+    }
+    
+    public void save(Writer writer) {
+        long started = System.nanoTime();
+        long token = ThreadLocalRandom.current().nextLong();
+        if (token == 0) token = 1;
+        
+        try {
+            byte[] strings = writer.stringBytes();
+            byte[] generators = writer.generatorBytes.toByteArray();
+            byte[] networks = writer.networkBytes.toByteArray();
+            byte[] members = writer.memberBytes.toByteArray();
+            
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + strings.length + generators.length + networks.length + members.length);
+            buffer.position(HEADER_SIZE);
+            buffer.put(strings).put(generators).put(networks).put(members);
+            
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), HEADER_SIZE, buffer.capacity() - HEADER_SIZE);
+            
+            buffer.position(0);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(token).putLong(crc.getValue())
+                    .putInt(writer.generatorCount).putInt(writer.networkCount).putInt(writer.memberCount).putInt(writer.strings.size());
+            buffer.position(0);
+            
+            File temp = new File(file.getPath() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            
+            // The file only counts once the database carries the same token, the feed position is set when the database closes
+            plugin.getDatabaseManager().setStateValue(FEED_POSITION_KEY, NO_FEED_POSITION);
+            plugin.getDatabaseManager().setStateValue(TOKEN_KEY, token);
+            ChangeFeed feed = plugin.getDatabaseManager().getChangeFeed();
+            savedFeedPosition = feed != null && feed.isEnabled() ? feed.getAppliedCursor() : NO_FEED_POSITION;
+            saved = true;
+            plugin.getLogger().info("Wrote state snapshot with " + writer.generatorCount + " generators and "
+                    + writer.networkCount + " networks in " + (System.nanoTime() - started) / 1_000_000 + "ms");
+        } catch (IOException | SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not write state snapshot, the next start will load from the database", e);
+        }
+    }
+    
+    public void seal() {
+        if (!saved) return;
+        saved = false;
+        
+        ChangeFeed feed = plugin.getDatabaseManager().getChangeFeed();
+        if (feed == null || !feed.isEnabled()) return;
+        
+        try {
+            // A change from another server after the last one we applied is missing from the file
+            if (feed.hasForeignChangesAfter(savedFeedPosition)) {
+                plugin.getDatabaseManager().setStateValue(TOKEN_KEY, 0);
+                plugin.getLogger().info("Another server changed the database during shutdown, the state snapshot will not be used");
+                return;
+            }
+            plugin.getDatabaseManager().setStateValue(FEED_POSITION_KEY, feed.readHighWater());
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not record the change feed position, the next start will load from the database", e);
+            try {
+                plugin.getDatabaseManager().setStateValue(TOKEN_KEY, 0);
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+    
+    public static class Writer {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final ByteArrayOutputStream generatorBytes = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream networkBytes = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream memberBytes = new ByteArrayOutputStream();
+        private final DataOutputStream generators = new DataOutputStream(generatorBytes);
+        private final DataOutputStream networks = new DataOutputStream(networkBytes);
+        private final DataOutputStream members = new DataOutputStream(memberBytes);
+        private int generatorCount;
+        private int networkCount;
+        private int memberCount;
+        
+        public void addGenerator(int id, UUID owner, String world, int x, int y, int z, String type,
+                                 int level, long lastGeneration, int usageCount, double resourcesGenerated) throws IOException {
+            generators.writeInt(id);
+            generators.writeLong(owner.getMostSignificantBits());
+            generators.writeLong(owner.getLeastSignificantBits());
+            generators.writeInt(string(world));
+            generators.writeInt(x);
+            generators.writeInt(y);
+            generators.writeInt(z);
+            generators.writeInt(string(type));
+            generators.writeInt(level);
+            generators.writeLong(lastGeneration);
+            generators.writeInt(usageCount);
+            generators.writeDouble(resourcesGenerated);
+            generatorCount++;
+        }
+        
+        public void addNetwork(NetworkBlock network) throws IOException {
+            networks.writeInt(network.getNetworkId());
+            networks.writeLong(network.getOwner().getMostSignificantBits());
+            networks.writeLong(network.getOwner().getLeastSignificantBits());
+            networks.writeInt(string(network.getName()));
+            networks.writeInt(string(network.getLocation().getWorld().getName()));
+            networks.writeInt(network.getLocation().getBlockX());
+            networks.writeInt(network.getLocation().getBlockY());
+            networks.writeInt(network.getLocation().getBlockZ());
+            networks.writeInt(string(network.getTier().name()));
+            networks.writeLong(network.getCreationTime());
+            networks.writeInt(network.isAutoCollectEnabled() ? 1 : 0);
+            networks.writeLong(network.getLastAutoCollectTime());
+            networks.writeInt(memberCount);
+            networks.writeInt(network.getConnectedGenerators().size());
+            for (int generatorId : network.getConnectedGenerators()) {
+                members.writeInt(generatorId);
+                memberCount++;
+            }
+            networkCount++;
+        }
+        
+        private int string(String value) {
+            return strings.computeIfAbsent(value, k -> strings.size());
+        }
+        
+        private byte[] stringBytes() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            for (String value : strings.keySet()) {
+                byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(encoded.length);
+                out.write(encoded);
+            }
+            return bytes.toByteArray();
+        }
+    }
+    
+    public static class Loaded {
+        private final String[] strings;
+        private final int generatorCount;
+        private final ByteBuffer generators;
+        private final int networkCount;
+        private final ByteBuffer networks;
+        private final ByteBuffer members;
+        
+        Loaded(String[] strings, int generatorCount, ByteBuffer generators, int networkCount, ByteBuffer networks, ByteBuffer members) {
+            this.strings = strings;
+            this.generatorCount = generatorCount;
+            this.generators = generators;
+            this.networkCount = networkCount;
+            this.networks = networks;
+            this.members = members;
+        }
+        
+        public int getGeneratorCount() {
+            return generatorCount;
+        }
+        
+        public int generatorId(int i) {
+            return generators.getInt(i * GENERATOR_RECORD);
+        }
+        
+        public UUID generatorOwner(int i) {
+            return new UUID(generators.getLong(i * GENERATOR_RECORD + 4), generators.getLong(i * GENERATOR_RECORD + 12));
+        }
+        
+        public String generatorWorld(int i) {
+            return strings[generators.getInt(i * GENERATOR_RECORD + 20)];
+        }
+        
+        public int generatorX(int i) {
+            return generators.getInt(i * GENERATOR_RECORD + 24);
+        }
+        
+        public int generatorY(int i) {
+            return generators.getInt(i * GENERATOR_RECORD + 28);
+        }
+        
+        public int generatorZ(int i) {
+            return generators.getInt(i * GENERATOR_RECORD + 32);
+        }
+        
+        public String generatorType(int i) {
+            return strings[generators.getInt(i * GENERATOR_RECORD + 36)];
+        }
+        
+        public int generatorLevel(int i) {
+            return generators.getInt(i * GENERATOR_RECORD + 40);
+        }
+        
+        public long generatorLastGeneration(int i) {
+            return generators.getLong(i * GENERATOR_RECORD + 44);
+        }
+        
+        public int generatorUsageCount(int i) {
+            return generators.getInt(i * GENERATOR_RECORD + 52);
+        }
+        
+        public double generatorResources(int i) {
+            return generators.getDouble(i * GENERATOR_RECORD + 56);
+        }
+        
+        public int getNetworkCount() {
+            return networkCount;
+        }
+        
+        public int networkId(int i) {
+            return networks.getInt(i * NETWORK_RECORD);
+        }
+        
+        public UUID networkOwner(int i) {
+            return new UUID(networks.getLong(i * NETWORK_RECORD + 4), networks.getLong(i * NETWORK_RECORD + 12));
+        }
+        
+        public String networkName(int i) {
+            return strings[networks.getInt(i * NETWORK_RECORD + 20)];
+        }
+        
+        public String networkWorld(int i) {
+            return strings[networks.getInt(i * NETWORK_RECORD + 24)];
+        }
+        
+        public int networkX(int i) {
+            return networks.getInt(i * NETWORK_RECORD + 28);
+        }
+        
+        public int networkY(int i) {
+            return networks.getInt(i * NETWORK_RECORD + 32);
+        }
+        
+        public int networkZ(int i) {
+            return networks.getInt(i * NETWORK_RECORD + 36);
+        }
+        
+        public String networkTier(int i) {
+            return strings[networks.getInt(i * NETWORK_RECORD + 40)];
+        }
+        
+        public long networkCreationTime(int i) {
+            return networks.getLong(i * NETWORK_RECORD + 44);
+        }
+        
+        public boolean networkAutoCollect(int i) {
+            return networks.getInt(i * NETWORK_RECORD + 52) != 0;
+        }
+        
+        public long networkLastAutoCollect(int i) {
+            return networks.getLong(i * NETWORK_RECORD + 56);
+        }
+        
+        public int[] networkMembers(int i) {
+            int offset = networks.getInt(i * NETWORK_RECORD + 64);
+            int count = networks.getInt(i * NETWORK_RECORD + 68);
+            int[] ids = new int[count];
+            for (int j = 0; j < count; j++) {
+                ids[j] = members.getInt((offset + j) * 4);
+            }
+            return ids;
+        }
+    }
+}
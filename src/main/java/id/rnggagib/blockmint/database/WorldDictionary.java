@@ -0,0 +1,87 @@
+package id.rnggagib.blockmint.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class WorldDictionary {
+    
+    // World names are stored once in the worlds table, generator rows only carry the id
+    private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+    private final Map<Integer, String> namesById = new ConcurrentHashMap<>();
+    
+    public void load(Connection conn) throws SQLException {
+        idsByName.clear();
+        namesById.clear();
+        
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, name FROM worlds")) {
+            while (rs.next()) {
+                register(rs.getInt(1), rs.getString(2));
+            }
+        }
+    }
+    
+    // Runs on the caller's transaction, which may still roll back, so nothing is cached here. Call register
+    // with the result once that transaction has committed
+    public int getOrCreateId(Connection conn, String name) throws SQLException {
+        Integer id = idsByName.get(name);
+        if (id != null) {
+            return id;
+        }
+        
+        id = find(conn, name, false);
+        if (id != null) {
+            return id;
+        }
+        
+        try (PreparedStatement insert = conn.prepareStatement("INSERT INTO worlds (name) VALUES (?)", Statement.RETURN_GENERATED_KEYS)) {
+            insert.setString(1, name);
+            insert.executeUpdate();
+            try (ResultSet keys = insert.getGeneratedKeys()) {
+                if (keys.next()) {
+                    return keys.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            // Another server registered the same name first, its row is the one to use
+            Integer existing = find(conn, name, true);
+            if (existing != null) {
+                return existing;
+            }
+            throw e;
+        }
+        throw new SQLException("Could not register world " + name);
+    }
+    
+    private static Integer find(Connection conn, String name, boolean latest) throws SQLException {
+        String sql = "SELECT id FROM worlds WHERE name = ?";
+        // A plain read in a MySQL transaction only sees its snapshot, a locking read sees the other server's commit
+        if (latest && conn.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql")) {
+            sql += " FOR UPDATE";
+        }
+        try (PreparedStatement select = conn.prepareStatement(sql)) {
+            select.setString(1, name);
+            try (ResultSet rs = select.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+    
+    public Integer getId(String name) {
+        return idsByName.get(name);
+    }
+    
+    public String getName(int id) {
+        return namesById.get(id);
+    }
+    
+    public void register(int id, String name) {
+        idsByName.put(name, id);
+        namesById.put(id, name);
+    }
+}
@@ -0,0 +1,69 @@
+package id.rnggagib.blockmint.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Set;
+
+// Notes which tables a transaction writes to, so the query cache can drop them once it commits
+final class WriteTracker implements InvocationHandler {
+    
+    private final Object target;
+    private final Set<String> written;
+    
+    private WriteTracker(Object target, Set<String> written) {
+        this.target = target;
+        this.written = written;
+    }
+    
+    static Connection wrap(Connection connection, Set<String> written) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new WriteTracker(connection, written));
+    }
+    
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (args != null && args.length > 0 && args[0] instanceof String) {
+            switch (name) {
+                case "prepareStatement":
+                case "prepareCall":
+                case "execute":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                case "addBatch":
+                    record((String) args[0]);
+                    break;
+                default:
+                    break;
+            }
+        }
+        
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+        
+        // Plain statements take their SQL per call, so they are watched too
+        if (name.equals("createStatement") && result instanceof Statement
+                && !(result instanceof PreparedStatement) && !(result instanceof CallableStatement)) {
+            return Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                    new Class<?>[] {Statement.class}, new WriteTracker(result, written));
+        }
+        return result;
+    }
+    
+    private void record(String sql) {
+        String table = QueryCache.tableWritten(sql);
+        if (table != null) {
+            written.add(table);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package id.rnggagib.blockmint.economy;
+
+import id.rnggagib.BlockMint;
+import id.rnggagib.blockmint.database.ChangeFeed;
+import id.rnggagib.blockmint.database.ReadConsistency;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.logging.Level;
+
+public class EarningsLedger {
+    
+    private static final long IDLE_EVICTION_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final String TOTAL_SQL = "SELECT total_earnings FROM player_stats WHERE uuid = ?";
+    
+    private final BlockMint plugin;
+    private final EconomyMetrics metrics;
+    private final Map<UUID, Account> accounts = new ConcurrentHashMap<>();
+    private CompletableFuture<Void> inFlight = CompletableFuture.completedFuture(null);
+    private BukkitTask flushTask;
+    
+    public EarningsLedger(BlockMint plugin, EconomyMetrics metrics) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+    }
+    
+    public void start() {
+        stop();
+        
+        long intervalTicks = Math.max(1, plugin.getConfigManager().getConfig()
+                .getInt("settings.performance.earnings-flush-seconds", 10)) * 20L;
+        flushTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::flushAsync, intervalTicks, intervalTicks);
+    }
+    
+    public void stop() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+    }
+    
+    public void record(UUID playerUuid, double amount) {
+        Account account = accounts.computeIfAbsent(playerUuid, k -> new Account());
+        account.earned.add(amount);
+        account.lastAccess = System.currentTimeMillis();
+        // Every payout passes through here, so the server-wide figures see all of them
+        metrics.recordEarnings(amount);
+    }
+    
+    public double getTotalEarnings(UUID playerUuid) {
+        Account account = accounts.computeIfAbsent(playerUuid, k -> new Account());
+        account.lastAccess = System.currentTimeMillis();
+        if (!account.loaded && !account.loading) {
+            account.loading = true;
+            loadAsync(playerUuid, account);
+        }
+        return account.total();
+    }
+    
+    public double getPendingEarnings(UUID playerUuid) {
+        Account account = accounts.get(playerUuid);
+        return account != null ? account.pending() : 0.0;
+    }
+    
+    // A local flush landing between the read and now may or may not be in the total, so it only counts when none did
+    private static boolean setPersisted(Account account, long writes, double totalEarnings) {
+        synchronized (account) {
+            if (account.writes != writes || account.inFlight != 0) {
+                return false;
+            }
+            account.persisted = totalEarnings;
+            account.loaded = true;
+            account.loading = false;
+            return true;
+        }
+    }
+    
+    public void refresh(UUID playerUuid) {
+        // Another server added to this player's total, only accounts already in memory need the new figure
+        Account account = accounts.get(playerUuid);
+        if (account == null || !account.loaded) return;
+        
+        long writes = account.writeCount();
+        // The change came from another server, so only the primary is sure to have it already
+        plugin.getDatabaseManager().read(ReadConsistency.STRONG, playerUuid, conn -> readTotal(conn, playerUuid)).whenComplete((total, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Could not refresh total earnings for " + playerUuid, error);
+                return;
+            }
+            // Skipped when a local flush got in between, the next remote change catches it up
+            setPersisted(account, writes, total);
+        });
+    }
+    
+    private static double readTotal(Connection conn, UUID playerUuid) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(TOTAL_SQL)) {
+            stmt.setString(1, playerUuid.toString());
+            try (ResultSet rs = stmt.executeQuery()) {
+                return mapTotal(rs);
+            }
+        }
+    }
+    
+    private static double mapTotal(ResultSet rs) throws SQLException {
+        return rs.next() ? rs.getDouble("total_earnings") : 0.0;
+    }
+    
+    private void loadAsync(UUID playerUuid, Account account) {
+        long writes = account.writeCount();
+        plugin.getDatabaseManager().readCached(ReadConsistency.READ_YOUR_WRITES, playerUuid, TOTAL_SQL,
+                EarningsLedger::mapTotal, playerUuid.toString()).whenComplete((total, error) -> {
+            if (error == null) {
+                if (!setPersisted(account, writes, total) && plugin.isEnabled()) {
+                    // Read again once the flush has settled rather than guess whether the total includes it
+                    plugin.getServer().getScheduler().runTaskLater(plugin, () -> loadAsync(playerUuid, account), 20L);
+                }
+                return;
+            }
+            
+            plugin.getLogger().severe("Could not retrieve total earnings from database: " + error.getMessage());
+            account.loading = false;
+        });
+    }
+    
+    public void flushAsync() {
+        List<Delta> deltas = takeDeltas(true);
+        if (deltas.isEmpty()) return;
+        
+        inFlight = plugin.getDatabaseManager().getExecutor().executeAfter(inFlight, () -> write(deltas), error -> {
+            plugin.getLogger().log(Level.SEVERE, "Earnings flush did not run, retrying the amounts with the next one", error);
+            for (Delta delta : deltas) {
+                Account account = delta.account;
+                synchronized (account) {
+                    account.flushed -= delta.amount;
+                    account.inFlight -= delta.amount;
+                }
+            }
+        });
+    }
+    
+    public void shutdown() {
+        stop();
+        
+        try {
+            inFlight.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.WARNING, "Pending earnings flush did not finish before shutdown", e);
+        }
+        
+        List<Delta> deltas = takeDeltas(false);
+        if (!deltas.isEmpty()) {
+            write(deltas);
+        }
+    }
+    
+    private List<Delta> takeDeltas(boolean evictIdle) {
+        long now = System.currentTimeMillis();
+        List<Delta> deltas = new ArrayList<>();
+        
+        Iterator<Map.Entry<UUID, Account>> iterator = accounts.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, Account> entry = iterator.next();
+            Account account = entry.getValue();
+            
+            double amount;
+            synchronized (account) {
+                // The adder is never reset, so additions racing with this read are picked up next flush
+                amount = account.earned.sum() - account.flushed;
+                if (amount != 0) {
+                    account.flushed += amount;
+                    account.inFlight += amount;
+                } else if (evictIdle && account.inFlight == 0 && now - account.lastAccess > IDLE_EVICTION_MILLIS
+                        && plugin.getServer().getPlayer(entry.getKey()) == null) {
+                    iterator.remove();
+                }
+            }
+            
+            if (amount != 0) {
+                deltas.add(new Delta(entry.getKey(), account, amount));
+            }
+        }
+        return deltas;
+    }
+    
+    private void write(List<Delta> deltas) {
+        boolean committed = false;
+        for (Delta delta : deltas) {
+            plugin.getDatabaseManager().markWrite(delta.playerUuid);
+        }
+        try {
+            plugin.getDatabaseManager().queryWithTransaction(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE player_stats SET total_earnings = total_earnings + ? WHERE uuid = ?")) {
+                    for (Delta delta : deltas) {
+                        stmt.setDouble(1, delta.amount);
+                        stmt.setString(2, delta.playerUuid.toString());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                
+                List<UUID> players = new ArrayList<>(deltas.size());
+                for (Delta delta : deltas) {
+                    players.add(delta.playerUuid);
+                }
+                plugin.getDatabaseManager().getChangeFeed().append(conn, ChangeFeed.EntityType.PLAYER, players);
+                return null;
+            });
+            committed = true;
+            // Measured from the commit, which is when the read pool starts catching up
+            for (Delta delta : deltas) {
+                plugin.getDatabaseManager().markWrite(delta.playerUuid);
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error flushing player earnings", e);
+        }
+        
+        for (Delta delta : deltas) {
+            Account account = delta.account;
+            synchronized (account) {
+                account.inFlight -= delta.amount;
+                account.writes++;
+                if (committed) {
+                    account.persisted += delta.amount;
+                } else {
+                    // Hand the amount back so the next flush retries it
+                    account.flushed -= delta.amount;
+                }
+            }
+        }
+    }
+    
+    public int getAccountCount() {
+        return accounts.size();
+    }
+    
+    private static class Account {
+        private final DoubleAdder earned = new DoubleAdder();
+        private double flushed;
+        private double inFlight;
+        private double persisted;
+        private long writes;
+        private volatile boolean loaded;
+        private volatile boolean loading;
+        private volatile long lastAccess = System.currentTimeMillis();
+        
+        private synchronized double total() {
+            return persisted + inFlight + (earned.sum() - flushed);
+        }
+        
+        private synchronized long writeCount() {
+            return writes;
+        }
+        
+        private synchronized double pending() {
+            return inFlight + (earned.sum() - flushed);
+        }
+    }
+    
+    private static class Delta {
+        final UUID playerUuid;
+        final Account account;
+        final double amount;
+        
+        Delta(UUID playerUuid, Account account, double amount) {
+            this.playerUuid = playerUuid;
+            this.account = account;
+            this.amount = amount;
+        }
+    }
+}
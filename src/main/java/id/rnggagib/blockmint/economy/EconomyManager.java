@@ -3,45 +3,55 @@ package id.rnggagib.blockmint.economy;
 import id.rnggagib.BlockMint;
 import org.bukkit.scheduler.BukkitTask;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class EconomyManager {
     
     private final BlockMint plugin;
-    private final AtomicReference<Double> economyMultiplier = new AtomicReference<>(1.0);
-    private final Map<String, Double> generatorTypeMultipliers = new HashMap<>();
+    private volatile MultiplierSnapshot multipliers = MultiplierSnapshot.NEUTRAL;
     
     // Economic metrics
     private double totalGeneratorCount = 0;
     private double totalValueGenerated = 0;
     private double lastHourValueGenerated = 0;
+    private double lastDayValueGenerated = 0;
     private double serverBalanceTotal = 0;
     private double lastBalanceCheck = 0;
     private long lastMetricsUpdate = 0;
     
     private BukkitTask economyUpdateTask;
+    private final EarningsLedger earningsLedger;
+    private final TransactionLedger transactionLedger;
+    private final EconomyMetrics metrics;
     private static final long UPDATE_INTERVAL = 5 * 60 * 20; // 5 minutes in ticks
     
     public EconomyManager(BlockMint plugin) {
         this.plugin = plugin;
+        this.metrics = new EconomyMetrics(plugin);
+        this.earningsLedger = new EarningsLedger(plugin, metrics);
+        this.transactionLedger = new TransactionLedger(plugin);
         initialize();
     }
     
     private void initialize() {
         loadConfig();
         startUpdateTask();
+        earningsLedger.start();
+        transactionLedger.start();
+        metrics.start();
     }
     
     private void loadConfig() {
-        economyMultiplier.set(plugin.getConfigManager().getConfig().getDouble("economy.smart-generation.base-multiplier", 1.0));
+        boolean enabled = plugin.getConfigManager().getConfig().getBoolean("economy.smart-generation.enabled", true);
+        publishMultipliers(enabled, plugin.getConfigManager().getConfig().getDouble("economy.smart-generation.base-multiplier", 1.0),
+                multipliers.getTypeMultipliers());
         
-        if (plugin.getConfigManager().getConfig().getBoolean("economy.smart-generation.enabled", true)) {
+        if (enabled) {
             plugin.getLogger().info("Smart Resource Generation is enabled");
         } else {
             plugin.getLogger().info("Smart Resource Generation is disabled");
@@ -62,84 +72,92 @@ public class EconomyManager {
             economyUpdateTask.cancel();
             economyUpdateTask = null;
         }
+        earningsLedger.shutdown();
+        transactionLedger.shutdown();
+        metrics.shutdown();
+    }
+    
+    public EarningsLedger getEarningsLedger() {
+        return earningsLedger;
+    }
+    
+    public TransactionLedger getTransactionLedger() {
+        return transactionLedger;
+    }
+    
+    public EconomyMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public double getLastHourValueGenerated() {
+        return lastHourValueGenerated;
+    }
+    
+    public double getLastDayValueGenerated() {
+        return lastDayValueGenerated;
     }
     
     public double getGeneratorValueMultiplier(String generatorType) {
-        if (!plugin.getConfigManager().getConfig().getBoolean("economy.smart-generation.enabled", true)) {
-            return 1.0;
-        }
-        
-        Double typeMultiplier = generatorTypeMultipliers.getOrDefault(generatorType, 1.0);
-        return economyMultiplier.get() * typeMultiplier;
+        return multipliers.getMultiplier(generatorType);
+    }
+    
+    public MultiplierSnapshot getMultiplierSnapshot() {
+        return multipliers;
+    }
+    
+    private synchronized void publishMultipliers(boolean enabled, double economyMultiplier, Map<String, Double> typeMultipliers) {
+        // A new epoch tells generators their cached values are stale
+        multipliers = new MultiplierSnapshot(multipliers.getEpoch() + 1, enabled, economyMultiplier, new HashMap<>(typeMultipliers));
     }
     
     private void updateEconomyMetrics() {
         updateGeneratorMetrics();
         updateServerBalanceMetrics();
         calculateMultipliers();
+        
+        // Generation times depend on the multipliers, so ready times have to be recomputed
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            if (plugin.getGeneratorManager() != null) {
+                plugin.getGeneratorManager().rescheduleAllGenerators();
+            }
+        });
     }
     
     private void updateGeneratorMetrics() {
+        // Counts and totals are kept current by place, remove and collect events
+        totalGeneratorCount = metrics.getGeneratorCount();
+        totalValueGenerated = metrics.getTotalValueGenerated();
+        lastHourValueGenerated = metrics.getWindowEarnings();
+        
         try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                    "SELECT COUNT(*) as count FROM generators"
-            );
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                totalGeneratorCount = rs.getDouble("count");
-            }
-            
-            stmt = plugin.getDatabaseManager().prepareStatement(
-                    "SELECT SUM(total_earnings) as total FROM player_stats"
-            );
-            rs = stmt.executeQuery();
-            if (rs.next()) {
-                totalValueGenerated = rs.getDouble("total");
-            }
-            
-            long oneHourAgo = System.currentTimeMillis() - (3600 * 1000);
-            stmt = plugin.getDatabaseManager().prepareStatement(
-                    "SELECT SUM(total_earnings) as last_hour FROM economic_transactions WHERE timestamp > ?"
-            );
-            stmt.setLong(1, oneHourAgo);
-            rs = stmt.executeQuery();
-            if (rs.next()) {
-                lastHourValueGenerated = rs.getDouble("last_hour");
-                if (rs.wasNull()) lastHourValueGenerated = 0;
-            }
-            
-        } catch (SQLException e) {
-            plugin.getLogger().warning("Error updating economy metrics: " + e.getMessage());
+            // Read from the hourly rollups, so the cost does not grow with the number of transactions
+            lastDayValueGenerated = transactionLedger.getRollingTotal(TimeUnit.DAYS.toMillis(1)).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            plugin.getLogger().warning("Error reading transaction rollups: " + e.getMessage());
         }
     }
     
     private void updateServerBalanceMetrics() {
-        double currentBalance = 0;
+        if (!metrics.isTotalLoaded()) return;
         
-        try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                    "SELECT SUM(balance) as total FROM economy_balances"
-            );
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                currentBalance = rs.getDouble("total");
-                if (rs.wasNull()) currentBalance = 0;
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().warning("Error getting server balance: " + e.getMessage());
+        // Nothing here sees player balances, so the inflation factor stays neutral unless the minted total is opted in as the money supply
+        if (!plugin.getConfigManager().getConfig().getBoolean("economy.smart-generation.inflation-from-generated", false)) {
+            lastBalanceCheck = 0;
+            serverBalanceTotal = 0;
             return;
         }
         
-        // Store the previous balance and update with current
         lastBalanceCheck = serverBalanceTotal;
-        serverBalanceTotal = currentBalance;
+        serverBalanceTotal = metrics.getTotalValueGenerated();
         
         lastMetricsUpdate = System.currentTimeMillis();
     }
     
     private void calculateMultipliers() {
         if (!plugin.getConfigManager().getConfig().getBoolean("economy.smart-generation.enabled", true)) {
-            economyMultiplier.set(1.0);
+            publishMultipliers(false, 1.0, multipliers.getTypeMultipliers());
             return;
         }
         
@@ -155,10 +173,8 @@ public class EconomyManager {
         double maxMultiplier = plugin.getConfigManager().getConfig().getDouble("economy.smart-generation.max-multiplier", 2.0);
         newMultiplier = Math.max(minMultiplier, Math.min(maxMultiplier, newMultiplier));
         
-        economyMultiplier.set(newMultiplier);
-        
         // Calculate type-specific multipliers based on rarity and usage
-        calculateTypeMultipliers();
+        publishMultipliers(true, newMultiplier, calculateTypeMultipliers());
         
         plugin.getLogger().info("Updated economy multiplier: " + newMultiplier);
     }
@@ -196,7 +212,7 @@ public class EconomyManager {
     }
     
     private double calculateSaturationFactor() {
-        int totalGenerators = plugin.getGeneratorManager().getDatabaseGeneratorCount();
+        int totalGenerators = metrics.getGeneratorCount();
         int expectedGenerators = plugin.getConfigManager().getConfig().getInt("economy.smart-generation.expected-generators", 1000);
         
         if (expectedGenerators <= 0 || totalGenerators <= 0) return 1.0;
@@ -213,29 +229,16 @@ public class EconomyManager {
         return Math.min(1.3, 1.0 + ((1.0 - saturationRatio) * 0.1));
     }
     
-    private void calculateTypeMultipliers() {
-        generatorTypeMultipliers.clear();
+    private Map<String, Double> calculateTypeMultipliers() {
+        Map<String, Double> generatorTypeMultipliers = new HashMap<>();
         
-        Map<String, Integer> generatorTypeCounts = new HashMap<>();
+        Map<String, Integer> generatorTypeCounts = metrics.getGeneratorCountsByType();
         int totalGenerators = 0;
-        
-        try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                    "SELECT type, COUNT(*) as count FROM generators GROUP BY type"
-            );
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                String type = rs.getString("type");
-                int count = rs.getInt("count");
-                generatorTypeCounts.put(type, count);
-                totalGenerators += count;
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().warning("Error counting generator types: " + e.getMessage());
-            return;
+        for (int count : generatorTypeCounts.values()) {
+            totalGenerators += count;
         }
         
-        if (totalGenerators == 0) return;
+        if (totalGenerators == 0) return generatorTypeMultipliers;
         
         // Calculate rarity-based multipliers
         for (String type : plugin.getGeneratorManager().getGeneratorTypes().keySet()) {
@@ -250,23 +253,16 @@ public class EconomyManager {
             
             generatorTypeMultipliers.put(type, 1.0 + rarityBonus);
         }
+        return generatorTypeMultipliers;
     }
     
     public void logTransaction(UUID playerUUID, double amount, String source) {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                        "INSERT INTO economic_transactions (player_uuid, amount, source, timestamp) VALUES (?, ?, ?, ?)"
-                );
-                stmt.setString(1, playerUUID.toString());
-                stmt.setDouble(2, amount);
-                stmt.setString(3, source);
-                stmt.setLong(4, System.currentTimeMillis());
-                stmt.executeUpdate();
-            } catch (SQLException e) {
-                plugin.getLogger().warning("Error logging economic transaction: " + e.getMessage());
-            }
-        });
+        logTransaction(playerUUID, amount, source, "unknown");
+    }
+    
+    public void logTransaction(UUID playerUUID, double amount, String source, String type) {
+        // Earnings metrics are fed by the earnings ledger, which every payout goes through
+        transactionLedger.record(playerUUID, amount, source, type);
     }
     
     public void reload() {
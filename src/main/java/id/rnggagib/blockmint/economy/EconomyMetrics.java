@@ -0,0 +1,226 @@
+package id.rnggagib.blockmint.economy;
+
+import id.rnggagib.BlockMint;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+public class EconomyMetrics {
+    
+    private static final String TOTAL_VALUE_KEY = "total_value_generated";
+    private static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    
+    private final BlockMint plugin;
+    private final Map<String, LongAdder> generatorsByType = new ConcurrentHashMap<>();
+    private final LongAdder generatorCount = new LongAdder();
+    private final DoubleAdder totalValueGenerated = new DoubleAdder();
+    // Earnings not yet added to the stored total, which servers sharing the database all add to
+    private final DoubleAdder uncheckpointed = new DoubleAdder();
+    private volatile boolean totalLoaded;
+    
+    // One bucket per minute, the window total is the sum of the buckets still inside it
+    private final double[] windowBuckets;
+    private final long[] bucketMinutes;
+    
+    private BukkitTask checkpointTask;
+    
+    public EconomyMetrics(BlockMint plugin) {
+        this.plugin = plugin;
+        int windowMinutes = Math.max(1, plugin.getConfigManager().getConfig().getInt("economy.metrics.rate-window-minutes", 60));
+        this.windowBuckets = new double[windowMinutes];
+        this.bucketMinutes = new long[windowMinutes];
+    }
+    
+    public void start() {
+        stop();
+        loadCheckpointAsync();
+        
+        long intervalTicks = Math.max(1, plugin.getConfigManager().getConfig()
+                .getInt("economy.metrics.checkpoint-minutes", 5)) * 60L * 20L;
+        checkpointTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::checkpointAsync, intervalTicks, intervalTicks);
+    }
+    
+    public void stop() {
+        if (checkpointTask != null) {
+            checkpointTask.cancel();
+            checkpointTask = null;
+        }
+    }
+    
+    public void shutdown() {
+        stop();
+        if (totalLoaded) {
+            try {
+                checkpoint();
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.WARNING, "Could not checkpoint economy metrics", e);
+            }
+        }
+    }
+    
+    public void resetGeneratorCounts() {
+        generatorsByType.clear();
+        generatorCount.reset();
+    }
+    
+    public void generatorAdded(String type) {
+        generatorsByType.computeIfAbsent(type, k -> new LongAdder()).increment();
+        generatorCount.increment();
+    }
+    
+    public void generatorRemoved(String type) {
+        LongAdder count = generatorsByType.get(type);
+        if (count != null) {
+            count.decrement();
+        }
+        generatorCount.decrement();
+    }
+    
+    public void generatorTypeChanged(String oldType, String newType) {
+        if (oldType.equals(newType)) return;
+        generatorRemoved(oldType);
+        generatorAdded(newType);
+    }
+    
+    public void recordEarnings(double amount) {
+        totalValueGenerated.add(amount);
+        uncheckpointed.add(amount);
+        
+        long minute = System.currentTimeMillis() / BUCKET_MILLIS;
+        int index = (int) (minute % windowBuckets.length);
+        synchronized (windowBuckets) {
+            if (bucketMinutes[index] != minute) {
+                bucketMinutes[index] = minute;
+                windowBuckets[index] = 0;
+            }
+            windowBuckets[index] += amount;
+        }
+    }
+    
+    public double getWindowEarnings() {
+        long oldestMinute = System.currentTimeMillis() / BUCKET_MILLIS - windowBuckets.length;
+        double total = 0;
+        synchronized (windowBuckets) {
+            for (int i = 0; i < windowBuckets.length; i++) {
+                if (bucketMinutes[i] > oldestMinute) {
+                    total += windowBuckets[i];
+                }
+            }
+        }
+        return total;
+    }
+    
+    public int getWindowMinutes() {
+        return windowBuckets.length;
+    }
+    
+    public int getGeneratorCount() {
+        return (int) Math.max(0, generatorCount.sum());
+    }
+    
+    public Map<String, Integer> getGeneratorCountsByType() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map.Entry<String, LongAdder> entry : generatorsByType.entrySet()) {
+            int count = (int) entry.getValue().sum();
+            if (count > 0) {
+                counts.put(entry.getKey(), count);
+            }
+        }
+        return counts;
+    }
+    
+    public double getTotalValueGenerated() {
+        return totalValueGenerated.sum();
+    }
+    
+    public boolean isTotalLoaded() {
+        return totalLoaded;
+    }
+    
+    private void loadCheckpointAsync() {
+        // A transaction because the first server to start may seed the row
+        plugin.getDatabaseManager().getExecutor().submitTransaction(conn -> {
+            Double stored = readTotal(conn);
+            if (stored != null) {
+                return stored;
+            }
+            
+            // First start with metrics, seed the stored total from the player totals once
+            double seed;
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT SUM(total_earnings) FROM player_stats");
+                 ResultSet rs = stmt.executeQuery()) {
+                seed = rs.next() ? rs.getDouble(1) : 0.0;
+            }
+            try (PreparedStatement insert = conn.prepareStatement("INSERT INTO economy_metrics (name, value, updated_at) VALUES (?, ?, ?)")) {
+                insert.setString(1, TOTAL_VALUE_KEY);
+                insert.setDouble(2, seed);
+                insert.setLong(3, System.currentTimeMillis());
+                insert.executeUpdate();
+                return seed;
+            } catch (SQLException e) {
+                // Another server seeded it first
+                stored = readTotal(conn);
+                if (stored == null) throw e;
+                return stored;
+            }
+        }).whenComplete((total, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Could not load economy metrics checkpoint", error);
+                return;
+            }
+            totalValueGenerated.add(total);
+            totalLoaded = true;
+        });
+    }
+    
+    private static Double readTotal(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT value FROM economy_metrics WHERE name = ?")) {
+            stmt.setString(1, TOTAL_VALUE_KEY);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getDouble(1) : null;
+            }
+        }
+    }
+    
+    public void checkpointAsync() {
+        if (!totalLoaded) return;
+        
+        plugin.getDatabaseManager().getExecutor().executeDeferrable(() -> {
+            try {
+                checkpoint();
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.WARNING, "Could not checkpoint economy metrics", e);
+            }
+        });
+    }
+    
+    // Adds this server's earnings since the last checkpoint, so servers sharing the database do not overwrite each other
+    private void checkpoint() throws SQLException {
+        double delta = uncheckpointed.sumThenReset();
+        if (delta == 0) return;
+        
+        try {
+            plugin.getDatabaseManager().queryWithTransaction(conn -> {
+                try (PreparedStatement update = conn.prepareStatement("UPDATE economy_metrics SET value = value + ?, updated_at = ? WHERE name = ?")) {
+                    update.setDouble(1, delta);
+                    update.setLong(2, System.currentTimeMillis());
+                    update.setString(3, TOTAL_VALUE_KEY);
+                    return update.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            uncheckpointed.add(delta);
+            throw e;
+        }
+    }
+}
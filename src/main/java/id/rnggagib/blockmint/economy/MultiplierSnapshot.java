@@ -0,0 +1,45 @@
+package id.rnggagib.blockmint.economy;
+
+import java.util.Collections;
+import java.util.Map;
+
+public final class MultiplierSnapshot {
+    
+    public static final MultiplierSnapshot NEUTRAL = new MultiplierSnapshot(0, false, 1.0, Collections.emptyMap());
+    
+    private final long epoch;
+    private final boolean enabled;
+    private final double economyMultiplier;
+    private final Map<String, Double> typeMultipliers;
+    
+    // Published whole, so readers never see a global multiplier from one update next to type multipliers from another
+    public MultiplierSnapshot(long epoch, boolean enabled, double economyMultiplier, Map<String, Double> typeMultipliers) {
+        this.epoch = epoch;
+        this.enabled = enabled;
+        this.economyMultiplier = economyMultiplier;
+        this.typeMultipliers = Collections.unmodifiableMap(typeMultipliers);
+    }
+    
+    public long getEpoch() {
+        return epoch;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public double getEconomyMultiplier() {
+        return economyMultiplier;
+    }
+    
+    public Map<String, Double> getTypeMultipliers() {
+        return typeMultipliers;
+    }
+    
+    public double getMultiplier(String generatorType) {
+        if (!enabled) {
+            return 1.0;
+        }
+        return economyMultiplier * typeMultipliers.getOrDefault(generatorType, 1.0);
+    }
+}
@@ -0,0 +1,290 @@
+package id.rnggagib.blockmint.economy;
+
+import id.rnggagib.BlockMint;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+public class TransactionLedger {
+    
+    public static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long PRUNE_SLICE_MILLIS = TimeUnit.HOURS.toMillis(6);
+    private static final String SQLITE_ROLLUP_SQL = "INSERT INTO economic_transactions_hourly (hour_start, source, type, amount, transaction_count) " +
+            "VALUES (?, ?, ?, ?, ?) ON CONFLICT (hour_start, source, type) DO UPDATE SET " +
+            "amount = amount + excluded.amount, transaction_count = transaction_count + excluded.transaction_count";
+    private static final String MYSQL_ROLLUP_SQL = "INSERT INTO economic_transactions_hourly (hour_start, source, type, amount, transaction_count) " +
+            "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+            "amount = amount + VALUES(amount), transaction_count = transaction_count + VALUES(transaction_count)";
+    
+    private final BlockMint plugin;
+    private final ConcurrentLinkedQueue<Entry> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private CompletableFuture<Void> inFlight = CompletableFuture.completedFuture(null);
+    private BukkitTask flushTask;
+    private BukkitTask retentionTask;
+    private int maxBatch;
+    
+    public TransactionLedger(BlockMint plugin) {
+        this.plugin = plugin;
+    }
+    
+    public void start() {
+        stop();
+        
+        maxBatch = Math.max(1, plugin.getConfigManager().getConfig().getInt("economy.ledger.max-batch", 500));
+        long flushTicks = Math.max(1, plugin.getConfigManager().getConfig().getInt("economy.ledger.flush-seconds", 5)) * 20L;
+        flushTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::flushAsync, flushTicks, flushTicks);
+        
+        long retentionTicks = Math.max(1, plugin.getConfigManager().getConfig().getInt("economy.ledger.retention-interval-minutes", 60)) * 60L * 20L;
+        retentionTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::pruneAsync, 20L * 60, retentionTicks);
+    }
+    
+    public void stop() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        if (retentionTask != null) {
+            retentionTask.cancel();
+            retentionTask = null;
+        }
+    }
+    
+    public void record(UUID playerUuid, double amount, String source, String type) {
+        buffer.add(new Entry(playerUuid, amount, source, type, System.currentTimeMillis()));
+        if (buffered.incrementAndGet() >= maxBatch && plugin.getServer().isPrimaryThread()) {
+            flushAsync();
+        }
+    }
+    
+    public void flushAsync() {
+        List<Entry> entries = drain();
+        if (entries.isEmpty()) return;
+        
+        inFlight = plugin.getDatabaseManager().getExecutor().executeAfter(inFlight, () -> write(entries), error -> {
+            plugin.getLogger().log(Level.SEVERE, "Transaction flush did not run, keeping the transactions for the next one", error);
+            requeue(entries);
+        });
+    }
+    
+    public void shutdown() {
+        stop();
+        
+        try {
+            inFlight.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.WARNING, "Pending transaction flush did not finish before shutdown", e);
+        }
+        
+        List<Entry> entries = drain();
+        if (!entries.isEmpty()) {
+            write(entries);
+        }
+    }
+    
+    private List<Entry> drain() {
+        List<Entry> entries = new ArrayList<>();
+        Entry entry;
+        while ((entry = buffer.poll()) != null) {
+            entries.add(entry);
+        }
+        buffered.addAndGet(-entries.size());
+        return entries;
+    }
+    
+    private void write(List<Entry> entries) {
+        // Rows are folded into per hour, source and type totals before touching the rollup table
+        Map<RollupKey, double[]> rollups = new HashMap<>();
+        for (Entry entry : entries) {
+            RollupKey key = new RollupKey(hourStart(entry.timestamp), entry.source, entry.type);
+            double[] totals = rollups.computeIfAbsent(key, k -> new double[2]);
+            totals[0] += entry.amount;
+            totals[1]++;
+        }
+        
+        String rollupSql = plugin.getDatabaseManager().isMySQL() ? MYSQL_ROLLUP_SQL : SQLITE_ROLLUP_SQL;
+        try {
+            plugin.getDatabaseManager().queryWithTransaction(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO economic_transactions (player_uuid, amount, source, type, timestamp) VALUES (?, ?, ?, ?, ?)")) {
+                    for (Entry entry : entries) {
+                        stmt.setString(1, entry.playerUuid.toString());
+                        stmt.setDouble(2, entry.amount);
+                        stmt.setString(3, entry.source);
+                        stmt.setString(4, entry.type);
+                        stmt.setLong(5, entry.timestamp);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                
+                // A single upsert per bucket, so servers flushing the same hour at once add to each other instead of colliding
+                try (PreparedStatement stmt = conn.prepareStatement(rollupSql)) {
+                    for (Map.Entry<RollupKey, double[]> rollup : rollups.entrySet()) {
+                        stmt.setLong(1, rollup.getKey().hourStart);
+                        stmt.setString(2, rollup.getKey().source);
+                        stmt.setString(3, rollup.getKey().type);
+                        stmt.setDouble(4, rollup.getValue()[0]);
+                        stmt.setLong(5, (long) rollup.getValue()[1]);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error flushing economic transactions", e);
+            // The whole transaction rolled back, so handing the rows back cannot count them twice
+            requeue(entries);
+        }
+    }
+    
+    private void requeue(List<Entry> entries) {
+        buffer.addAll(entries);
+        buffered.addAndGet(entries.size());
+    }
+    
+    public CompletableFuture<Double> getRollingTotal(long windowMillis) {
+        long now = System.currentTimeMillis();
+        long currentHour = hourStart(now);
+        long oldestHour = hourStart(now - windowMillis);
+        
+        // At most one row per hour in the window, regardless of how many raw transactions there were
+        return plugin.getDatabaseManager().getExecutor().submit(conn -> {
+            double total = 0;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT hour_start, SUM(amount) AS total FROM economic_transactions_hourly WHERE hour_start >= ? GROUP BY hour_start")) {
+                stmt.setLong(1, oldestHour);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        long hour = rs.getLong("hour_start");
+                        double amount = rs.getDouble("total");
+                        if (hour == oldestHour && oldestHour != currentHour) {
+                            // The oldest bucket only partly overlaps the window, so count the overlapping share
+                            amount *= (double) (oldestHour + HOUR_MILLIS - (now - windowMillis)) / HOUR_MILLIS;
+                        }
+                        total += amount;
+                    }
+                }
+            }
+            return total;
+        });
+    }
+    
+    public void pruneAsync() {
+        int rawDays = plugin.getConfigManager().getConfig().getInt("economy.ledger.raw-retention-days", 0);
+        int rollupDays = plugin.getConfigManager().getConfig().getInt("economy.ledger.rollup-retention-days", 365);
+        if (rawDays <= 0 && rollupDays <= 0) return;
+        
+        inFlight = plugin.getDatabaseManager().getExecutor().executeAfter(inFlight, () -> prune(rawDays, rollupDays),
+                error -> plugin.getLogger().log(Level.WARNING, "Transaction pruning did not run", error));
+    }
+    
+    private void prune(int rawDays, int rollupDays) {
+        long now = System.currentTimeMillis();
+        try {
+            int removed = 0;
+            if (rawDays > 0) {
+                // The hourly rollups already hold these totals, so old raw rows can go without losing metrics
+                long cutoff = now - TimeUnit.DAYS.toMillis(rawDays);
+                Long oldest = plugin.getDatabaseManager().queryWithTransaction(conn -> {
+                    try (PreparedStatement stmt = conn.prepareStatement("SELECT MIN(timestamp) AS oldest FROM economic_transactions");
+                         ResultSet rs = stmt.executeQuery()) {
+                        return rs.next() && rs.getObject("oldest") != null ? rs.getLong("oldest") : null;
+                    }
+                });
+                
+                // Deleting in slices keeps each write transaction short
+                long bound = oldest != null ? oldest : cutoff;
+                while (bound < cutoff) {
+                    bound = Math.min(cutoff, bound + PRUNE_SLICE_MILLIS);
+                    long sliceEnd = bound;
+                    removed += plugin.getDatabaseManager().queryWithTransaction(conn -> {
+                        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM economic_transactions WHERE timestamp < ?")) {
+                            stmt.setLong(1, sliceEnd);
+                            return stmt.executeUpdate();
+                        }
+                    });
+                }
+            }
+            
+            if (rollupDays > 0) {
+                long cutoff = hourStart(now - TimeUnit.DAYS.toMillis(rollupDays));
+                plugin.getDatabaseManager().queryWithTransaction(conn -> {
+                    try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM economic_transactions_hourly WHERE hour_start < ?")) {
+                        stmt.setLong(1, cutoff);
+                        return stmt.executeUpdate();
+                    }
+                });
+            }
+            
+            if (removed > 0) {
+                plugin.getLogger().info("Pruned " + removed + " economic transactions older than " + rawDays + " days");
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "Error pruning economic transactions", e);
+        }
+    }
+    
+    public int getBufferedCount() {
+        return buffered.get();
+    }
+    
+    public static long hourStart(long timestamp) {
+        return timestamp - Math.floorMod(timestamp, HOUR_MILLIS);
+    }
+    
+    private static class Entry {
+        final UUID playerUuid;
+        final double amount;
+        final String source;
+        final String type;
+        final long timestamp;
+        
+        Entry(UUID playerUuid, double amount, String source, String type, long timestamp) {
+            this.playerUuid = playerUuid;
+            this.amount = amount;
+            this.source = source;
+            this.type = type;
+            this.timestamp = timestamp;
+        }
+    }
+    
+    private static class RollupKey {
+        final long hourStart;
+        final String source;
+        final String type;
+        
+        RollupKey(long hourStart, String source, String type) {
+            this.hourStart = hourStart;
+            this.source = source;
+            this.type = type;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RollupKey)) return false;
+            RollupKey other = (RollupKey) o;
+            return hourStart == other.hourStart && source.equals(other.source) && type.equals(other.type);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(hourStart, source, type);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package id.rnggagib.blockmint.generators;
+
+import id.rnggagib.blockmint.chunk.GeneratorChunkIndex;
+import id.rnggagib.blockmint.database.StateSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public class DormantGeneratorStore {
+    
+    // Generators in unloaded chunks, kept as flat per-chunk rows until the chunk loads. Changed on the main
+    // thread only, the lock is there for placeholders that read an owner's generators from elsewhere
+    private final Map<World, Map<Long, DormantChunk>> worlds = new HashMap<>();
+    // Read by the generator limit check and the generator list, which have to see dormant generators too
+    private final Map<UUID, Set<Integer>> idsByOwner = new HashMap<>();
+    // Where each dormant id lives, so a remote change finds its row without scanning every chunk
+    private final Map<Integer, Placement> placements = new HashMap<>();
+    private int size;
+    
+    public synchronized void add(World world, int id, UUID owner, double x, double y, double z, GeneratorType type,
+                    int level, long lastGeneration, int usageCount, double resourcesGenerated) {
+        long key = GeneratorChunkIndex.chunkKey((int) Math.floor(x) >> 4, (int) Math.floor(z) >> 4);
+        worlds.computeIfAbsent(world, w -> new HashMap<>())
+                .computeIfAbsent(key, k -> new DormantChunk())
+                .add(id, owner, x, y, z, type, level, lastGeneration, usageCount, resourcesGenerated);
+        placements.put(id, new Placement(world, key));
+        idsByOwner.computeIfAbsent(owner, k -> new HashSet<>()).add(id);
+        size++;
+    }
+    
+    public void add(Generator generator) {
+        Location location = generator.getLocation();
+        add(location.getWorld(), generator.getId(), generator.getOwner(), location.getX(), location.getY(), location.getZ(),
+                generator.getType(), generator.getLevel(), generator.getLastGeneration(),
+                generator.getUsageCount(), generator.getResourcesGenerated());
+    }
+    
+    public synchronized List<Generator> take(World world, int chunkX, int chunkZ) {
+        Map<Long, DormantChunk> chunks = worlds.get(world);
+        if (chunks == null) {
+            return Collections.emptyList();
+        }
+        
+        DormantChunk chunk = chunks.remove(GeneratorChunkIndex.chunkKey(chunkX, chunkZ));
+        if (chunk == null) {
+            return Collections.emptyList();
+        }
+        
+        size -= chunk.count;
+        List<Generator> generators = new ArrayList<>(chunk.count);
+        for (int i = 0; i < chunk.count; i++) {
+            Generator generator = chunk.toGenerator(world, i);
+            uncount(generator.getOwner(), generator.getId());
+            placements.remove(generator.getId());
+            generators.add(generator);
+        }
+        return generators;
+    }
+    
+    // Takes out a single generator whose chunk is still unloaded, it keeps its place in the chunk index
+    public synchronized Generator take(int id) {
+        Placement placement = placements.get(id);
+        DormantChunk chunk = placement != null ? chunk(placement) : null;
+        int row = chunk != null ? chunk.indexOf(id) : -1;
+        if (row < 0) {
+            return null;
+        }
+        
+        Generator generator = chunk.toGenerator(placement.world, row);
+        placements.remove(id);
+        chunk.remove(id);
+        uncount(generator.getOwner(), id);
+        size--;
+        if (chunk.count == 0) {
+            worlds.get(placement.world).remove(placement.chunkKey);
+        }
+        return generator;
+    }
+    
+    // Copies of the owner's dormant rows, changes made to them are not kept
+    public synchronized List<Generator> copyByOwner(UUID owner) {
+        Set<Integer> ids = idsByOwner.get(owner);
+        if (ids == null) {
+            return new ArrayList<>();
+        }
+        
+        List<Generator> generators = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            Placement placement = placements.get(id);
+            DormantChunk chunk = placement != null ? chunk(placement) : null;
+            int row = chunk != null ? chunk.indexOf(id) : -1;
+            if (row >= 0) {
+                generators.add(chunk.toGenerator(placement.world, row));
+            }
+        }
+        return generators;
+    }
+    
+    public synchronized List<Integer> getIdsByOwner(UUID owner) {
+        Set<Integer> ids = idsByOwner.get(owner);
+        return ids != null ? new ArrayList<>(ids) : new ArrayList<>();
+    }
+    
+    private DormantChunk chunk(Placement placement) {
+        Map<Long, DormantChunk> chunks = worlds.get(placement.world);
+        return chunks != null ? chunks.get(placement.chunkKey) : null;
+    }
+    
+    public synchronized boolean remove(int id, GeneratorChunkIndex index) {
+        Placement placement = placements.remove(id);
+        if (placement == null) {
+            return false;
+        }
+        
+        // The chunk index still points at the old position, which may not be where the generator is now
+        index.remove(placement.world, placement.chunkKey, id);
+        
+        Map<Long, DormantChunk> chunks = worlds.get(placement.world);
+        DormantChunk chunk = chunks != null ? chunks.get(placement.chunkKey) : null;
+        UUID owner = chunk != null ? chunk.remove(id) : null;
+        if (owner == null) {
+            return false;
+        }
+        
+        uncount(owner, id);
+        size--;
+        if (chunk.count == 0) {
+            chunks.remove(placement.chunkKey);
+        }
+        return true;
+    }
+    
+    private void uncount(UUID owner, int id) {
+        Set<Integer> ids = idsByOwner.get(owner);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            idsByOwner.remove(owner);
+        }
+    }
+    
+    public synchronized int countByOwner(UUID owner) {
+        Set<Integer> ids = idsByOwner.get(owner);
+        return ids != null ? ids.size() : 0;
+    }
+    
+    public synchronized void indexInto(GeneratorChunkIndex index) {
+        for (Map.Entry<World, Map<Long, DormantChunk>> world : worlds.entrySet()) {
+            for (Map.Entry<Long, DormantChunk> chunk : world.getValue().entrySet()) {
+                DormantChunk rows = chunk.getValue();
+                for (int i = 0; i < rows.count; i++) {
+                    index.add(world.getKey(), chunk.getKey(), rows.ids[i]);
+                }
+            }
+        }
+    }
+    
+    public synchronized void writeTo(StateSnapshot.Writer writer) throws IOException {
+        for (Map.Entry<World, Map<Long, DormantChunk>> world : worlds.entrySet()) {
+            String worldName = world.getKey().getName();
+            for (DormantChunk chunk : world.getValue().values()) {
+                for (int i = 0; i < chunk.count; i++) {
+                    writer.addGenerator(chunk.ids[i], new UUID(chunk.ownerMost[i], chunk.ownerLeast[i]), worldName,
+                            (int) Math.floor(chunk.xs[i]), (int) Math.floor(chunk.ys[i]), (int) Math.floor(chunk.zs[i]), chunk.types[i].getId(), chunk.levels[i],
+                            chunk.lastGenerations[i], chunk.usageCounts[i], chunk.resources[i]);
+                }
+            }
+        }
+    }
+    
+    public synchronized List<long[]> getLoadedChunks(World world) {
+        List<long[]> loaded = new ArrayList<>();
+        Map<Long, DormantChunk> chunks = worlds.get(world);
+        if (chunks == null) {
+            return loaded;
+        }
+        
+        for (long key : chunks.keySet()) {
+            int chunkX = GeneratorChunkIndex.chunkX(key);
+            int chunkZ = GeneratorChunkIndex.chunkZ(key);
+            if (world.isChunkLoaded(chunkX, chunkZ)) {
+                loaded.add(new long[]{chunkX, chunkZ});
+            }
+        }
+        return loaded;
+    }
+    
+    public synchronized List<World> getWorlds() {
+        return new ArrayList<>(worlds.keySet());
+    }
+    
+    public synchronized int size() {
+        return size;
+    }
+    
+    public synchronized void clear() {
+        worlds.clear();
+        idsByOwner.clear();
+        placements.clear();
+        size = 0;
+    }
+    
+    private static class Placement {
+        final World world;
+        final long chunkKey;
+        
+        Placement(World world, long chunkKey) {
+            this.world = world;
+            this.chunkKey = chunkKey;
+        }
+    }
+    
+    private static class DormantChunk {
+        private int[] ids = new int[2];
+        private long[] ownerMost = new long[2];
+        private long[] ownerLeast = new long[2];
+        private double[] xs = new double[2];
+        private double[] ys = new double[2];
+        private double[] zs = new double[2];
+        private GeneratorType[] types = new GeneratorType[2];
+        private int[] levels = new int[2];
+        private long[] lastGenerations = new long[2];
+        private int[] usageCounts = new int[2];
+        private double[] resources = new double[2];
+        private int count;
+        
+        void add(int id, UUID owner, double x, double y, double z, GeneratorType type,
+                 int level, long lastGeneration, int usageCount, double resourcesGenerated) {
+            if (count == ids.length) {
+                grow(count * 2);
+            }
+            ids[count] = id;
+            ownerMost[count] = owner.getMostSignificantBits();
+            ownerLeast[count] = owner.getLeastSignificantBits();
+            xs[count] = x;
+            ys[count] = y;
+            zs[count] = z;
+            types[count] = type;
+            levels[count] = level;
+            lastGenerations[count] = lastGeneration;
+            usageCounts[count] = usageCount;
+            resources[count] = resourcesGenerated;
+            count++;
+        }
+        
+        int indexOf(int id) {
+            for (int i = 0; i < count; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        
+        Generator toGenerator(World world, int i) {
+            return new Generator(ids[i], new UUID(ownerMost[i], ownerLeast[i]), new Location(world, xs[i], ys[i], zs[i]),
+                    types[i], levels[i], usageCounts[i], resources[i], lastGenerations[i]);
+        }
+        
+        UUID remove(int id) {
+            for (int i = 0; i < count; i++) {
+                if (ids[i] != id) continue;
+                
+                UUID owner = new UUID(ownerMost[i], ownerLeast[i]);
+                // Swap the last row into the gap, row order within a chunk does not matter
+                int last = --count;
+                ids[i] = ids[last];
+                ownerMost[i] = ownerMost[last];
+                ownerLeast[i] = ownerLeast[last];
+                xs[i] = xs[last];
+                ys[i] = ys[last];
+                zs[i] = zs[last];
+                types[i] = types[last];
+                levels[i] = levels[last];
+                lastGenerations[i] = lastGenerations[last];
+                usageCounts[i] = usageCounts[last];
+                resources[i] = resources[last];
+                types[last] = null;
+                return owner;
+            }
+            return null;
+        }
+        
+        private void grow(int capacity) {
+            ids = Arrays.copyOf(ids, capacity);
+            ownerMost = Arrays.copyOf(ownerMost, capacity);
+            ownerLeast = Arrays.copyOf(ownerLeast, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            types = Arrays.copyOf(types, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            lastGenerations = Arrays.copyOf(lastGenerations, capacity);
+            usageCounts = Arrays.copyOf(usageCounts, capacity);
+            resources = Arrays.copyOf(resources, capacity);
+        }
+    }
+}
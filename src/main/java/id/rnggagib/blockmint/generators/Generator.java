@@ -3,6 +3,7 @@ package id.rnggagib.blockmint.generators;
 import org.bukkit.Location;
 
 import id.rnggagib.BlockMint;
+import id.rnggagib.blockmint.economy.MultiplierSnapshot;
 import id.rnggagib.blockmint.network.GeneratorNetwork;
 import id.rnggagib.blockmint.network.NetworkBlock;
 
@@ -23,6 +24,9 @@ public class Generator {
     private long lastEvolutionCheck;
     private boolean evolutionReady;
     
+    // Rebuilt when the multiplier epoch, type or level no longer match
+    private Derived derived;
+    
     private final BlockMint plugin;
     
     public Generator(int id, UUID owner, Location location, GeneratorType type, int level) {
@@ -47,6 +51,12 @@ public class Generator {
         checkEvolutionEligibility();
     }
     
+    public Generator(int id, UUID owner, Location location, GeneratorType type, int level, 
+                     int usageCount, double resourcesGenerated, long lastGeneration) {
+        this(id, owner, location, type, level, usageCount, resourcesGenerated);
+        this.lastGeneration = lastGeneration;
+    }
+    
     public int getId() {
         return id;
     }
@@ -65,6 +75,8 @@ public class Generator {
     
     public void setType(GeneratorType type) {
         this.type = type;
+        markDirty(GeneratorStateStore.TYPE);
+        rescheduleReadiness();
     }
     
     public int getLevel() {
@@ -73,6 +85,8 @@ public class Generator {
     
     public void setLevel(int level) {
         this.level = Math.min(level, type.getMaxLevel());
+        markDirty(GeneratorStateStore.LEVEL);
+        rescheduleReadiness();
     }
     
     public long getLastGeneration() {
@@ -81,6 +95,32 @@ public class Generator {
     
     public void setLastGeneration(long lastGeneration) {
         this.lastGeneration = lastGeneration;
+        markDirty(GeneratorStateStore.LAST_GENERATION);
+        rescheduleReadiness();
+    }
+    
+    public void applyRemoteState(GeneratorType type, int level, long lastGeneration, int usageCount, double resourcesGenerated) {
+        // Already persisted by the server that made the change, so nothing is marked dirty here
+        this.type = type;
+        this.level = Math.min(level, type.getMaxLevel());
+        this.lastGeneration = lastGeneration;
+        this.usageCount = usageCount;
+        this.resourcesGenerated = resourcesGenerated;
+        this.evolutionReady = false;
+        checkEvolutionEligibility();
+        rescheduleReadiness();
+    }
+    
+    private void rescheduleReadiness() {
+        if (plugin != null && plugin.getGeneratorManager() != null) {
+            plugin.getGeneratorManager().getReadinessScheduler().schedule(this);
+        }
+    }
+    
+    private void markDirty(int fields) {
+        if (plugin != null && plugin.getGeneratorManager() != null) {
+            plugin.getGeneratorManager().getStateStore().markDirty(id, fields);
+        }
     }
     
     public int getUsageCount() {
@@ -90,39 +130,25 @@ public class Generator {
     public void incrementUsage(double amount) {
         this.usageCount++;
         this.resourcesGenerated += amount;
+        markDirty(GeneratorStateStore.USAGE_COUNT | GeneratorStateStore.RESOURCES_GENERATED);
         checkEvolutionEligibility();
     }
     
     public void incrementUsageCount() {
         this.usageCount++;
-        
-        if (this.usageCount % 5 == 0) {
-            saveUsageCountToDatabase();
-        }
+        markDirty(GeneratorStateStore.USAGE_COUNT);
     }
-
-    private void saveUsageCountToDatabase() {
-        plugin.getDatabaseManager().addBatchOperation(
-            owner,
-            "UPDATE generators SET usage_count = ? WHERE id = ?",
-            new Object[]{usageCount, id}
-        );
-    }
-
+    
     public void addResourcesGenerated(double amount) {
         this.resourcesGenerated += amount;
-        
-        if (this.resourcesGenerated % 100 < amount) {
-            saveResourcesToDatabase();
-        }
+        markDirty(GeneratorStateStore.RESOURCES_GENERATED);
     }
-
-    private void saveResourcesToDatabase() {
-        plugin.getDatabaseManager().addBatchOperation(
-            owner,
-            "UPDATE generators SET resources_generated = ? WHERE id = ?",
-            new Object[]{resourcesGenerated, id}
-        );
+    
+    public void resetEvolutionProgress() {
+        this.usageCount = 0;
+        this.resourcesGenerated = 0;
+        this.evolutionReady = false;
+        markDirty(GeneratorStateStore.USAGE_COUNT | GeneratorStateStore.RESOURCES_GENERATED);
     }
     
     public double getResourcesGenerated() {
@@ -146,13 +172,13 @@ public class Generator {
         if (usageCount % 5 != 0) {
             return;
         }
-
+        
         // No evolution path defined
         if (!type.hasEvolution()) {
             evolutionReady = false;
             return;
         }
-
+        
         // Check if requirements are met
         if (usageCount >= type.getEvolutionRequiredUsage() && 
             resourcesGenerated >= type.getEvolutionRequiredResources()) {
@@ -163,38 +189,37 @@ public class Generator {
     }
     
     public boolean canGenerate() {
-        return System.currentTimeMillis() - lastGeneration >= getAdjustedGenerationTime() * 1000;
+        return System.currentTimeMillis() - lastGeneration >= derived().generationTimeMillis;
     }
     
     public double getValue() {
-        double baseValue = type.getBaseValue() * Math.pow(type.getValueMultiplier(), level - 1);
+        Derived values = derived();
         double networkBonus = getNetworkBonus();
-        double economyMultiplier = getEconomyMultiplier();
         
-        return baseValue * (1 + networkBonus) * economyMultiplier;
+        return values.baseValue * (1 + networkBonus) * values.economyMultiplier;
     }
     
     public long getAdjustedGenerationTime() {
-        // For high demand periods, slightly reduce generation time
-        double economyMultiplier = getEconomyMultiplier();
-        long baseTime = type.getGenerationTime();
-        
-        if (economyMultiplier > 1.0) {
-            // Higher multiplier = slight reduction in time (max 20%)
-            return (long)(baseTime * (1.0 - Math.min(0.2, (economyMultiplier - 1.0) * 0.5)));
-        } else if (economyMultiplier < 1.0) {
-            // Lower multiplier = slight increase in time (max 30%)
-            return (long)(baseTime * (1.0 + Math.min(0.3, (1.0 - economyMultiplier) * 0.7)));
-        }
-        
-        return baseTime;
+        return derived().generationTime;
     }
     
     public double getEconomyMultiplier() {
-        if (BlockMint.getInstance().getEconomyManager() != null) {
-            return BlockMint.getInstance().getEconomyManager().getGeneratorValueMultiplier(type.getId());
+        return derived().economyMultiplier;
+    }
+    
+    private Derived derived() {
+        MultiplierSnapshot snapshot = BlockMint.getInstance().getEconomyManager() != null
+                ? BlockMint.getInstance().getEconomyManager().getMultiplierSnapshot()
+                : MultiplierSnapshot.NEUTRAL;
+        
+        Derived current = derived;
+        if (current != null && current.epoch == snapshot.getEpoch() && current.type == type && current.level == level) {
+            return current;
         }
-        return 1.0;
+        
+        current = new Derived(snapshot.getEpoch(), type, level, snapshot.getMultiplier(type.getId()));
+        derived = current;
+        return current;
     }
     
     public double getNetworkBonus() {
@@ -262,4 +287,35 @@ public class Generator {
         // Return the minimum of the two percentages (both requirements must be met)
         return Math.min(usageProgress, resourceProgress);
     }
+    
+    private static final class Derived {
+        final long epoch;
+        final GeneratorType type;
+        final int level;
+        final double economyMultiplier;
+        final double baseValue;
+        final long generationTime;
+        final long generationTimeMillis;
+        
+        Derived(long epoch, GeneratorType type, int level, double economyMultiplier) {
+            this.epoch = epoch;
+            this.type = type;
+            this.level = level;
+            this.economyMultiplier = economyMultiplier;
+            this.baseValue = type.getValueAtLevel(level);
+            
+            // For high demand periods, slightly reduce generation time
+            long baseTime = type.getGenerationTimeMillis();
+            if (economyMultiplier > 1.0) {
+                // Higher multiplier = slight reduction in time (max 20%)
+                this.generationTimeMillis = (long)(baseTime * (1.0 - Math.min(0.2, (economyMultiplier - 1.0) * 0.5)));
+            } else if (economyMultiplier < 1.0) {
+                // Lower multiplier = slight increase in time (max 30%)
+                this.generationTimeMillis = (long)(baseTime * (1.0 + Math.min(0.3, (1.0 - economyMultiplier) * 0.7)));
+            } else {
+                this.generationTimeMillis = baseTime;
+            }
+            this.generationTime = generationTimeMillis / 1000;
+        }
+    }
 }
\ No newline at end of file
@@ -1,19 +1,27 @@
 package id.rnggagib.blockmint.generators;
 
 import id.rnggagib.BlockMint;
+import id.rnggagib.blockmint.chunk.GeneratorChunkIndex;
+import id.rnggagib.blockmint.database.ChangeFeed;
+import id.rnggagib.blockmint.database.DatabaseManager;
+import id.rnggagib.blockmint.database.StateSnapshot;
+import id.rnggagib.blockmint.economy.EconomyMetrics;
 import id.rnggagib.blockmint.utils.DisplayManager;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 
+import java.io.IOException;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -29,13 +37,17 @@ public class GeneratorManager {
     private int loadedGeneratorCount = 0;
     private int activeHologramCount = 0;
     private List<Generator> pendingGenerators = new ArrayList<>();
-    private final Map<Integer, Generator> generatorIdCache = new ConcurrentHashMap<>();
-    private final Map<UUID, List<Integer>> playerGeneratorCache = new ConcurrentHashMap<>();
-    private long lastCacheCleanup = System.currentTimeMillis();
-    private static final long CACHE_CLEANUP_INTERVAL = 300000; // 5 minutes
+    private final GeneratorRegistry registry = new GeneratorRegistry();
+    private final GeneratorSpatialQuery spatialQuery = new GeneratorSpatialQuery(registry);
+    private final ReadinessScheduler readinessScheduler = new ReadinessScheduler();
+    private final DormantGeneratorStore dormantGenerators = new DormantGeneratorStore();
+    private boolean lazyLoading;
+    private boolean completeLoad;
+    private final GeneratorStateStore stateStore;
     
     public GeneratorManager(BlockMint plugin) {
         this.plugin = plugin;
+        this.stateStore = new GeneratorStateStore(plugin);
     }
     
     public void loadGeneratorTypes() {
@@ -110,79 +122,181 @@ public class GeneratorManager {
     }
     
     public void loadGeneratorsFromDatabaseAsync() {
+        long started = System.nanoTime();
         activeGenerators.clear();
         pendingGenerators.clear();
+        dormantGenerators.clear();
+        readinessScheduler.clear();
         databaseGeneratorCount = 0;
         loadedGeneratorCount = 0;
+        completeLoad = false;
         
-        plugin.getLogger().info("Loading generator data from database...");
+        EconomyMetrics metrics = plugin.getEconomyManager() != null ? plugin.getEconomyManager().getMetrics() : null;
+        if (metrics != null) {
+            metrics.resetGeneratorCounts();
+        }
         
-        try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                    "SELECT * FROM generators"
-            );
-            
-            ResultSet rs = stmt.executeQuery();
+        FileConfiguration config = plugin.getConfigManager().getConfig();
+        lazyLoading = config.getBoolean("settings.performance.lazy-generator-loading", false);
+        int fetchSize = Math.max(1, config.getInt("settings.performance.generator-load-fetch-size", 1000));
+        
+        StateSnapshot.Loaded snapshot = plugin.getStateSnapshot() != null ? plugin.getStateSnapshot().load() : null;
+        if (snapshot != null && loadGeneratorsFromSnapshot(snapshot, metrics)) {
+            completeLoad = true;
+            plugin.getLogger().info("Loaded " + loadedGeneratorCount + " generators from the state snapshot in "
+                    + (System.nanoTime() - started) / 1_000_000 + "ms" + (lazyLoading ? " (chunk-lazy)" : ""));
+            return;
+        }
+        
+        plugin.getLogger().info("Loading generator data from database" + (lazyLoading ? " (chunk-lazy)..." : "..."));
+        
+        DatabaseManager database = plugin.getDatabaseManager();
+        Map<Integer, World> worlds = new HashMap<>();
+        Map<String, Integer> skippedByWorld = new HashMap<>();
+        
+        // Rows are streamed and read by column index, the order here must match the reads below
+        try (PreparedStatement stmt = database.prepareStatement(
+                "SELECT id, owner, world_id, x, y, z, type, level, last_generation, usage_count, resources_generated FROM generators")) {
+            stmt.setFetchSize(fetchSize);
             
-            while (rs.next()) {
-                databaseGeneratorCount++;
-                
-                int id = rs.getInt("id");
-                UUID owner = UUID.fromString(rs.getString("owner"));
-                String world = rs.getString("world");
-                double x = rs.getDouble("x");
-                double y = rs.getDouble("y");
-                double z = rs.getDouble("z");
-                String type = rs.getString("type");
-                int level = rs.getInt("level");
-                long lastGeneration = rs.getLong("last_generation");
-                
-                // Load evolution data (defaults to 0 if columns don't exist)
-                int usageCount = 0;
-                double resourcesGenerated = 0.0;
-                try {
-                    usageCount = rs.getInt("usage_count");
-                    resourcesGenerated = rs.getDouble("resources_generated");
-                } catch (SQLException e) {
-                    // Columns might not exist yet, that's fine
-                }
-                
-                if (!generatorTypes.containsKey(type)) {
-                    plugin.getLogger().warning("Unknown generator type: " + type + " for generator " + id + ", skipping");
-                    continue;
-                }
-                
-                GeneratorType generatorType = generatorTypes.get(type);
-                
-                if (plugin.getServer().getWorld(world) == null) {
-                    plugin.getLogger().warning("World " + world + " not found for generator " + id + ", skipping");
-                    continue;
-                }
-                
-                try {
-                    Location location = new Location(plugin.getServer().getWorld(world), x, y, z);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    databaseGeneratorCount++;
                     
-                    Generator generator = new Generator(id, owner, location, generatorType, level, usageCount, resourcesGenerated);
-                    generator.setLastGeneration(lastGeneration);
+                    int id = rs.getInt(1);
+                    int worldId = rs.getInt(3);
+                    String type = rs.getString(7);
+                    if (metrics != null) {
+                        metrics.generatorAdded(type);
+                    }
                     
-                    activeGenerators.put(location, generator);
-                    pendingGenerators.add(generator);
-                    loadedGeneratorCount++;
-                } catch (Exception e) {
-                    plugin.getLogger().log(Level.WARNING, "Error loading generator " + id + ": " + e.getMessage());
+                    GeneratorType generatorType = generatorTypes.get(type);
+                    if (generatorType == null) {
+                        plugin.getLogger().warning("Unknown generator type: " + type + " for generator " + id + ", skipping");
+                        continue;
+                    }
+                    
+                    if (!worlds.containsKey(worldId)) {
+                        String worldName = database.getWorldDictionary().getName(worldId);
+                        worlds.put(worldId, worldName != null ? plugin.getServer().getWorld(worldName) : null);
+                    }
+                    World world = worlds.get(worldId);
+                    if (world == null) {
+                        skippedByWorld.merge(String.valueOf(database.getWorldDictionary().getName(worldId)), 1, Integer::sum);
+                        continue;
+                    }
+                    
+                    try {
+                        addLoadedGenerator(world, id, database.decodeOwner(rs, 2), rs.getInt(4), rs.getInt(5), rs.getInt(6),
+                                generatorType, rs.getInt(8), rs.getLong(9), rs.getInt(10), rs.getDouble(11));
+                    } catch (Exception e) {
+                        plugin.getLogger().log(Level.WARNING, "Error loading generator " + id + ": " + e.getMessage());
+                    }
                 }
             }
             
-            plugin.getLogger().info("Loaded " + loadedGeneratorCount + " out of " + databaseGeneratorCount + " generators from database.");
+            for (Map.Entry<String, Integer> skipped : skippedByWorld.entrySet()) {
+                plugin.getLogger().warning("World " + skipped.getKey() + " not found, skipped " + skipped.getValue() + " generators");
+            }
             
+            // A snapshot taken from a partial load would hide the skipped rows on the next start
+            completeLoad = loadedGeneratorCount == databaseGeneratorCount;
+            plugin.getLogger().info("Loaded " + loadedGeneratorCount + " out of " + databaseGeneratorCount + " generators from database in "
+                    + (System.nanoTime() - started) / 1_000_000 + "ms.");
+        
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Error loading generators from database!", e);
         }
     }
     
+    private boolean loadGeneratorsFromSnapshot(StateSnapshot.Loaded snapshot, EconomyMetrics metrics) {
+        int count = snapshot.getGeneratorCount();
+        Map<String, World> worlds = new HashMap<>();
+        
+        // Anything the snapshot cannot place exactly as the database would sends us back to the SQL path
+        for (int i = 0; i < count; i++) {
+            String worldName = snapshot.generatorWorld(i);
+            if (!worlds.containsKey(worldName)) {
+                World world = plugin.getServer().getWorld(worldName);
+                if (world == null) {
+                    plugin.getLogger().info("World " + worldName + " from the state snapshot is not loaded, loading from the database");
+                    return false;
+                }
+                worlds.put(worldName, world);
+            }
+            if (!generatorTypes.containsKey(snapshot.generatorType(i))) {
+                plugin.getLogger().info("Generator type " + snapshot.generatorType(i) + " from the state snapshot no longer exists, loading from the database");
+                return false;
+            }
+        }
+        
+        for (int i = 0; i < count; i++) {
+            String type = snapshot.generatorType(i);
+            addLoadedGenerator(worlds.get(snapshot.generatorWorld(i)), snapshot.generatorId(i), snapshot.generatorOwner(i),
+                    snapshot.generatorX(i), snapshot.generatorY(i), snapshot.generatorZ(i), generatorTypes.get(type),
+                    snapshot.generatorLevel(i), snapshot.generatorLastGeneration(i), snapshot.generatorUsageCount(i),
+                    snapshot.generatorResources(i));
+            if (metrics != null) {
+                metrics.generatorAdded(type);
+            }
+        }
+        databaseGeneratorCount = count;
+        return true;
+    }
+    
+    private void addLoadedGenerator(World world, int id, UUID owner, int x, int y, int z, GeneratorType generatorType,
+                                    int level, long lastGeneration, int usageCount, double resourcesGenerated) {
+        if (lazyLoading) {
+            dormantGenerators.add(world, id, owner, x, y, z, generatorType, level, lastGeneration, usageCount, resourcesGenerated);
+        } else {
+            Location location = new Location(world, x, y, z);
+            Generator generator = new Generator(id, owner, location, generatorType, level, usageCount, resourcesGenerated, lastGeneration);
+            
+            activeGenerators.put(location, generator);
+            readinessScheduler.schedule(generator);
+            pendingGenerators.add(generator);
+        }
+        loadedGeneratorCount++;
+    }
+    
+    public boolean writeSnapshot(StateSnapshot.Writer writer) throws IOException {
+        if (!completeLoad) {
+            return false;
+        }
+        
+        for (Generator generator : activeGenerators.values()) {
+            Location location = generator.getLocation();
+            writer.addGenerator(generator.getId(), generator.getOwner(), location.getWorld().getName(),
+                    location.getBlockX(), location.getBlockY(), location.getBlockZ(), generator.getType().getId(),
+                    generator.getLevel(), generator.getLastGeneration(), generator.getUsageCount(), generator.getResourcesGenerated());
+        }
+        dormantGenerators.writeTo(writer);
+        return true;
+    }
+    
     public void processLoadedGenerators() {
         plugin.getLogger().info("Processing " + pendingGenerators.size() + " generators on main thread...");
         
+        // The registry is only touched from the main thread, so it is built here rather than in the loader
+        registry.clear();
+        for (Generator generator : activeGenerators.values()) {
+            registry.add(generator);
+        }
+        dormantGenerators.indexInto(registry.getChunkIndex());
+        
+        if (lazyLoading) {
+            for (World world : dormantGenerators.getWorlds()) {
+                for (long[] chunk : dormantGenerators.getLoadedChunks(world)) {
+                    pendingGenerators.addAll(activateChunk(world, (int) chunk[0], (int) chunk[1]));
+                }
+            }
+            // Networks collect their members with the chunk unloaded, so those never go dormant
+            for (int generatorId : registry.getConnectedGenerators()) {
+                findOrLoadGenerator(generatorId);
+            }
+            plugin.getLogger().info(dormantGenerators.size() + " generators stay dormant until their chunk loads");
+        }
+        
         int blocksPlaced = 0;
         
         for (Generator generator : pendingGenerators) {
@@ -227,31 +341,46 @@ public class GeneratorManager {
         }
         
         try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                    "INSERT INTO generators (owner, world, x, y, z, type, level, last_generation) VALUES (?, ?, ?, ?, ?, ?, ?, ?)"
-            );
-            stmt.setString(1, owner.toString());
-            stmt.setString(2, location.getWorld().getName());
-            stmt.setDouble(3, location.getX());
-            stmt.setDouble(4, location.getY());
-            stmt.setDouble(5, location.getZ());
-            stmt.setString(6, type);
-            stmt.setInt(7, 1);
-            stmt.setLong(8, System.currentTimeMillis());
-            
-            int result = stmt.executeUpdate();
-            
-            if (result > 0) {
-                int id = -1;
-                ResultSet rs = stmt.getGeneratedKeys();
-                if (rs.next()) {
-                    id = rs.getInt(1);
+            DatabaseManager database = plugin.getDatabaseManager();
+            String worldName = location.getWorld().getName();
+            int[] worldId = new int[1];
+            // Goes through the SQLite writer when it runs, the block place needs the new id before it can finish
+            Integer id = database.queryWithTransaction(conn -> {
+                worldId[0] = database.getWorldDictionary().getOrCreateId(conn, worldName);
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO generators (owner, world_id, x, y, z, chunk_x, chunk_z, type, level, last_generation) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setObject(1, database.encodeOwner(owner));
+                    stmt.setInt(2, worldId[0]);
+                    stmt.setInt(3, location.getBlockX());
+                    stmt.setInt(4, location.getBlockY());
+                    stmt.setInt(5, location.getBlockZ());
+                    stmt.setInt(6, location.getBlockX() >> 4);
+                    stmt.setInt(7, location.getBlockZ() >> 4);
+                    stmt.setString(8, type);
+                    stmt.setInt(9, 1);
+                    stmt.setLong(10, System.currentTimeMillis());
+                    
+                    if (stmt.executeUpdate() == 0) {
+                        return null;
+                    }
+                    try (ResultSet rs = stmt.getGeneratedKeys()) {
+                        return rs.next() ? rs.getInt(1) : -1;
+                    }
                 }
-                
+            });
+            // Committed now, so the world row is safe to remember
+            database.getWorldDictionary().register(worldId[0], worldName);
+            
+            if (id != null) {
                 GeneratorType generatorType = generatorTypes.get(type);
                 Generator generator = new Generator(id, owner, location, generatorType, 1);
                 activeGenerators.put(location, generator);
+                registry.add(generator);
+                readinessScheduler.schedule(generator);
                 loadedGeneratorCount++;
+                plugin.getEconomyManager().getMetrics().generatorAdded(type);
+                database.getChangeFeed().publish(ChangeFeed.EntityType.GENERATOR, id);
                 
                 updatePlayerStats(owner);
                 
@@ -273,16 +402,24 @@ public class GeneratorManager {
         }
         
         try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                    "DELETE FROM generators WHERE id = ?"
-            );
-            stmt.setInt(1, generator.getId());
-            
-            int result = stmt.executeUpdate();
+            int result = plugin.getDatabaseManager().queryWithTransaction(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM generators WHERE id = ?")) {
+                    stmt.setInt(1, generator.getId());
+                    return stmt.executeUpdate();
+                }
+            });
             
             if (result > 0) {
                 activeGenerators.remove(location);
+                registry.remove(generator);
+                readinessScheduler.cancel(generator);
+                stateStore.discard(generator.getId());
+                if (plugin.getNetworkManager() != null) {
+                    plugin.getNetworkManager().handleGeneratorRemoved(generator.getId());
+                }
                 loadedGeneratorCount--;
+                plugin.getEconomyManager().getMetrics().generatorRemoved(generator.getType().getId());
+                plugin.getDatabaseManager().getChangeFeed().publish(ChangeFeed.EntityType.GENERATOR, generator.getId());
                 
                 DisplayManager.removeHologram(location);
                 activeHologramCount--;
@@ -297,31 +434,121 @@ public class GeneratorManager {
         return false;
     }
     
+    public void applyRemoteChanges(int[] generatorIds) {
+        if (generatorIds.length == 0) return;
+        
+        plugin.getDatabaseManager().getExecutor().submit(conn -> readRemoteRows(conn, generatorIds)).whenComplete((rows, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Could not reload generators changed on another server", error);
+                return;
+            }
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                for (int generatorId : generatorIds) {
+                    applyRemoteRow(generatorId, rows.get(generatorId));
+                }
+            });
+        });
+    }
+    
+    private Map<Integer, RemoteRow> readRemoteRows(Connection conn, int[] generatorIds) throws SQLException {
+        DatabaseManager database = plugin.getDatabaseManager();
+        Map<Integer, RemoteRow> rows = new HashMap<>();
+        
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT owner, world_id, x, y, z, type, level, last_generation, usage_count, resources_generated FROM generators WHERE id = ?")) {
+            for (int generatorId : generatorIds) {
+                stmt.setInt(1, generatorId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) continue;
+                    
+                    int worldId = rs.getInt(2);
+                    if (database.getWorldDictionary().getName(worldId) == null) {
+                        // Another server registered a world this one has not seen yet
+                        database.getWorldDictionary().load(conn);
+                    }
+                    rows.put(generatorId, new RemoteRow(database.decodeOwner(rs, 1), database.getWorldDictionary().getName(worldId),
+                            rs.getInt(3), rs.getInt(4), rs.getInt(5), rs.getString(6), rs.getInt(7), rs.getLong(8), rs.getInt(9), rs.getDouble(10)));
+                }
+            }
+        }
+        return rows;
+    }
+    
+    private void applyRemoteRow(int generatorId, RemoteRow row) {
+        Generator generator = findGeneratorById(generatorId);
+        World world = row != null && row.worldName != null ? plugin.getServer().getWorld(row.worldName) : null;
+        GeneratorType generatorType = row != null ? generatorTypes.get(row.type) : null;
+        EconomyMetrics metrics = plugin.getEconomyManager().getMetrics();
+        
+        if (generator != null && row != null && world != null && generatorType != null
+                && generator.getLocation().getWorld() == world && generator.getLocation().getBlockX() == row.x
+                && generator.getLocation().getBlockY() == row.y && generator.getLocation().getBlockZ() == row.z) {
+            metrics.generatorTypeChanged(generator.getType().getId(), row.type);
+            generator.applyRemoteState(generatorType, row.level, row.lastGeneration, row.usageCount, row.resourcesGenerated);
+            DisplayManager.updateHologram(plugin, generator);
+            return;
+        }
+        
+        // Removed elsewhere, or changed so much that rebuilding it is simpler than patching it
+        if (generator != null) {
+            forgetGenerator(generator);
+        } else if (lazyLoading && dormantGenerators.remove(generatorId, registry.getChunkIndex())) {
+            loadedGeneratorCount--;
+        }
+        
+        if (row == null || world == null || generatorType == null) return;
+        
+        Location location = new Location(world, row.x, row.y, row.z);
+        if (lazyLoading && !world.isChunkLoaded(row.x >> 4, row.z >> 4) && !registry.isConnected(generatorId)) {
+            dormantGenerators.add(world, generatorId, row.owner, row.x, row.y, row.z, generatorType,
+                    row.level, row.lastGeneration, row.usageCount, row.resourcesGenerated);
+            registry.getChunkIndex().add(world, GeneratorChunkIndex.chunkKey(location), generatorId);
+        } else {
+            Generator added = new Generator(generatorId, row.owner, location, generatorType, row.level,
+                    row.usageCount, row.resourcesGenerated, row.lastGeneration);
+            activeGenerators.put(location, added);
+            registry.add(added);
+            readinessScheduler.schedule(added);
+        }
+        loadedGeneratorCount++;
+        metrics.generatorAdded(row.type);
+    }
+    
+    private void forgetGenerator(Generator generator) {
+        // Memory only, the row is already gone or rewritten by the server that changed it
+        Location location = generator.getLocation();
+        activeGenerators.remove(location);
+        registry.remove(generator);
+        readinessScheduler.cancel(generator);
+        stateStore.discard(generator.getId());
+        loadedGeneratorCount--;
+        plugin.getEconomyManager().getMetrics().generatorRemoved(generator.getType().getId());
+        
+        if (DisplayManager.hasHologram(location)) {
+            DisplayManager.removeHologram(location);
+            activeHologramCount--;
+        }
+    }
+    
     private void updatePlayerStats(UUID playerUUID) {
-        try {
-            PreparedStatement selectStmt = plugin.getDatabaseManager().prepareStatement(
-                    "SELECT COUNT(*) FROM player_stats WHERE uuid = ?"
-            );
-            selectStmt.setString(1, playerUUID.toString());
-            ResultSet rs = selectStmt.executeQuery();
-            
-            if (rs.next() && rs.getInt(1) > 0) {
-                PreparedStatement updateStmt = plugin.getDatabaseManager().prepareStatement(
-                        "UPDATE player_stats SET generators_owned = generators_owned + 1 WHERE uuid = ?"
-                );
+        String playerName = plugin.getServer().getOfflinePlayer(playerUUID).getName();
+        plugin.getDatabaseManager().markWrite(playerUUID);
+        plugin.getDatabaseManager().executeTransactionAsync(conn -> {
+            try (PreparedStatement updateStmt = conn.prepareStatement(
+                    "UPDATE player_stats SET generators_owned = generators_owned + 1 WHERE uuid = ?")) {
                 updateStmt.setString(1, playerUUID.toString());
-                updateStmt.executeUpdate();
-            } else {
-                PreparedStatement insertStmt = plugin.getDatabaseManager().prepareStatement(
-                        "INSERT INTO player_stats (uuid, player_name, generators_owned, total_earnings) VALUES (?, ?, 1, 0.0)"
-                );
+                if (updateStmt.executeUpdate() > 0) {
+                    return;
+                }
+            }
+            
+            try (PreparedStatement insertStmt = conn.prepareStatement(
+                    "INSERT INTO player_stats (uuid, player_name, generators_owned, total_earnings) VALUES (?, ?, 1, 0.0)")) {
                 insertStmt.setString(1, playerUUID.toString());
-                insertStmt.setString(2, plugin.getServer().getOfflinePlayer(playerUUID).getName());
+                insertStmt.setString(2, playerName);
                 insertStmt.executeUpdate();
             }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Error updating player stats: " + e.getMessage(), e);
-        }
+        });
     }
     
     public void reloadGeneratorTypes() {
@@ -374,21 +601,27 @@ public class GeneratorManager {
     }
     
     public void handleChunkLoad(Chunk chunk) {
-        for (Map.Entry<Location, Generator> entry : activeGenerators.entrySet()) {
-            Location location = entry.getKey();
+        if (lazyLoading) {
+            activateChunk(chunk.getWorld(), chunk.getX(), chunk.getZ());
+        }
+        
+        for (int generatorId : registry.getChunkIndex().getGeneratorIds(chunk)) {
+            Generator generator = registry.get(generatorId);
+            if (generator == null) continue;
             
-            if (isLocationInChunk(location, chunk)) {
-                Generator generator = entry.getValue();
-                
-                if (location.getBlock().getType() != Material.valueOf(generator.getType().getMaterial())) {
-                    location.getBlock().setType(Material.valueOf(generator.getType().getMaterial()));
-                }
-                
-                if (plugin.getConfigManager().getConfig().getBoolean("settings.use-holograms", true) && 
-                    !DisplayManager.hasHologram(location)) {
-                    DisplayManager.createHologram(plugin, location, generator.getType(), generator.getLevel());
-                    activeHologramCount++;
-                }
+            Location location = generator.getLocation();
+            
+            if (location.getBlock().getType() != Material.valueOf(generator.getType().getMaterial())) {
+                location.getBlock().setType(Material.valueOf(generator.getType().getMaterial()));
+            }
+            
+            // Generators that came due while unloaded were parked, queue them again
+            readinessScheduler.schedule(generator);
+            
+            if (plugin.getConfigManager().getConfig().getBoolean("settings.use-holograms", true) && 
+                !DisplayManager.hasHologram(location)) {
+                DisplayManager.createHologram(plugin, location, generator.getType(), generator.getLevel());
+                activeHologramCount++;
             }
         }
     }
@@ -396,28 +629,87 @@ public class GeneratorManager {
     public void handleChunkUnload(Chunk chunk) {
         int removedHolograms = 0;
         
-        for (Map.Entry<Location, Generator> entry : activeGenerators.entrySet()) {
-            Location location = entry.getKey();
+        for (int generatorId : registry.getChunkIndex().getGeneratorIds(chunk)) {
+            Generator generator = registry.get(generatorId);
+            if (generator == null) continue;
             
-            if (isLocationInChunk(location, chunk)) {
-                if (DisplayManager.hasHologram(location)) {
-                    DisplayManager.removeHologram(location);
-                    activeHologramCount--;
-                    removedHolograms++;
-                }
+            Location location = generator.getLocation();
+            if (DisplayManager.hasHologram(location)) {
+                DisplayManager.removeHologram(location);
+                activeHologramCount--;
+                removedHolograms++;
             }
         }
         
+        if (lazyLoading) {
+            deactivateChunk(chunk);
+        }
+        
         if (removedHolograms > 0 && plugin.getConfigManager().getConfig().getBoolean("settings.debug.chunk-events", false)) {
             plugin.getLogger().fine("Removed " + removedHolograms + " holograms due to chunk unload at " + 
                     chunk.getWorld().getName() + " [" + chunk.getX() + ", " + chunk.getZ() + "]");
         }
     }
     
-    private boolean isLocationInChunk(Location location, Chunk chunk) {
-        return location.getWorld().equals(chunk.getWorld()) 
-                && location.getBlockX() >> 4 == chunk.getX() 
-                && location.getBlockZ() >> 4 == chunk.getZ();
+    public void activateLoadedChunks() {
+        // Chunks that loaded before chunk events were being handled never got their generators created
+        if (!lazyLoading) return;
+        
+        for (World world : dormantGenerators.getWorlds()) {
+            for (long[] chunk : dormantGenerators.getLoadedChunks(world)) {
+                handleChunkLoad(world.getChunkAt((int) chunk[0], (int) chunk[1]));
+            }
+        }
+    }
+    
+    private List<Generator> activateChunk(World world, int chunkX, int chunkZ) {
+        List<Generator> generators = dormantGenerators.take(world, chunkX, chunkZ);
+        for (Generator generator : generators) {
+            activeGenerators.put(generator.getLocation(), generator);
+            registry.activate(generator);
+            stateStore.reattach(generator.getId());
+            readinessScheduler.schedule(generator);
+        }
+        return generators;
+    }
+    
+    private void deactivateChunk(Chunk chunk) {
+        for (int generatorId : registry.getChunkIndex().getGeneratorIds(chunk)) {
+            if (registry.isConnected(generatorId)) continue;
+            
+            Generator generator = registry.deactivate(generatorId);
+            if (generator == null) continue;
+            
+            // The chunk index keeps the id, only the full object is dropped
+            stateStore.detach(generator);
+            readinessScheduler.cancel(generator);
+            activeGenerators.remove(generator.getLocation());
+            dormantGenerators.add(generator);
+        }
+    }
+    
+    public List<Generator> getGeneratorsInChunk(World world, int chunkX, int chunkZ) {
+        int[] ids = registry.getChunkIndex().getGeneratorIds(world, chunkX, chunkZ);
+        List<Generator> generators = new ArrayList<>(ids.length);
+        for (int generatorId : ids) {
+            Generator generator = registry.get(generatorId);
+            if (generator != null) {
+                generators.add(generator);
+            }
+        }
+        return generators;
+    }
+    
+    public GeneratorRegistry getRegistry() {
+        return registry;
+    }
+    
+    public GeneratorSpatialQuery getSpatialQuery() {
+        return spatialQuery;
+    }
+    
+    public GeneratorChunkIndex getChunkIndex() {
+        return registry.getChunkIndex();
     }
     
     public Generator getGenerator(Location location) {
@@ -428,6 +720,20 @@ public class GeneratorManager {
         return activeGenerators;
     }
     
+    public ReadinessScheduler getReadinessScheduler() {
+        return readinessScheduler;
+    }
+    
+    public GeneratorStateStore getStateStore() {
+        return stateStore;
+    }
+    
+    public void rescheduleAllGenerators() {
+        for (Generator generator : activeGenerators.values()) {
+            readinessScheduler.schedule(generator);
+        }
+    }
+    
     public Map<String, GeneratorType> getGeneratorTypes() {
         return generatorTypes;
     }
@@ -440,123 +746,89 @@ public class GeneratorManager {
         return databaseGeneratorCount;
     }
     
+    public int getDormantGeneratorCount() {
+        return dormantGenerators.size();
+    }
+    
+    public boolean isLazyLoading() {
+        return lazyLoading;
+    }
+    
     public int getActiveHologramCount() {
         return activeHologramCount;
     }
     
     public Generator findGeneratorById(int generatorId) {
-        // First check the ID cache
-        Generator cachedGenerator = generatorIdCache.get(generatorId);
-        if (cachedGenerator != null) {
-            return cachedGenerator;
-        }
-        
-        // If not in cache, look through active generators
-        for (Generator generator : activeGenerators.values()) {
-            if (generator.getId() == generatorId) {
-                // Add to cache for future lookups
-                generatorIdCache.put(generatorId, generator);
-                return generator;
-            }
-        }
-        
-        return null;
+        return registry.get(generatorId);
     }
     
-    public List<Generator> getPlayerGenerators(UUID playerUUID) {
-        List<Generator> playerGenerators = new ArrayList<>();
-        
-        // Check if we need to clean the cache
-        long now = System.currentTimeMillis();
-        if (now - lastCacheCleanup > CACHE_CLEANUP_INTERVAL) {
-            cleanupCaches();
-            lastCacheCleanup = now;
-        }
-        
-        // Check if the player generators are cached
-        List<Integer> cachedIds = playerGeneratorCache.get(playerUUID);
-        if (cachedIds != null) {
-            for (Integer id : cachedIds) {
-                Generator generator = findGeneratorById(id);
-                if (generator != null) {
-                    playerGenerators.add(generator);
-                }
-            }
-            return playerGenerators;
+    // Loads a dormant generator out of its unloaded chunk for callers that need the live object
+    public Generator findOrLoadGenerator(int generatorId) {
+        Generator generator = registry.get(generatorId);
+        if (generator != null || !lazyLoading) {
+            return generator;
         }
         
-        // If not cached, build the list and cache it
-        List<Integer> generatorIds = new ArrayList<>();
-        for (Generator generator : activeGenerators.values()) {
-            if (generator.getOwner().equals(playerUUID)) {
-                playerGenerators.add(generator);
-                generatorIds.add(generator.getId());
-            }
+        generator = dormantGenerators.take(generatorId);
+        if (generator != null) {
+            activeGenerators.put(generator.getLocation(), generator);
+            registry.activate(generator);
+            stateStore.reattach(generatorId);
+            readinessScheduler.schedule(generator);
         }
-        
-        playerGeneratorCache.put(playerUUID, generatorIds);
-        return playerGenerators;
+        return generator;
     }
     
-    private void cleanupCaches() {
-        // Remove any generators from cache that are no longer active
-        Iterator<Map.Entry<Integer, Generator>> idIterator = generatorIdCache.entrySet().iterator();
-        while (idIterator.hasNext()) {
-            Map.Entry<Integer, Generator> entry = idIterator.next();
-            if (!isGeneratorActive(entry.getValue())) {
-                idIterator.remove();
-            }
+    public List<Generator> getPlayerGenerators(UUID playerUUID) {
+        List<Generator> generators = registry.getByOwner(playerUUID);
+        if (dormantGenerators.countByOwner(playerUUID) == 0) {
+            return generators;
         }
         
-        // Clean up player generator cache
-        for (UUID playerUUID : playerGeneratorCache.keySet()) {
-            List<Integer> ids = playerGeneratorCache.get(playerUUID);
-            if (ids != null) {
-                boolean changed = false;
-                Iterator<Integer> iterator = ids.iterator();
-                while (iterator.hasNext()) {
-                    Integer id = iterator.next();
-                    if (generatorIdCache.get(id) == null || !isGeneratorActive(generatorIdCache.get(id))) {
-                        iterator.remove();
-                        changed = true;
-                    }
-                }
-                
-                if (changed) {
-                    if (ids.isEmpty()) {
-                        playerGeneratorCache.remove(playerUUID);
-                    } else {
-                        playerGeneratorCache.put(playerUUID, ids);
-                    }
+        if (plugin.getServer().isPrimaryThread()) {
+            // Callers may collect or upgrade what they get, so dormant generators are loaded rather than copied
+            for (int generatorId : dormantGenerators.getIdsByOwner(playerUUID)) {
+                Generator generator = findOrLoadGenerator(generatorId);
+                if (generator != null) {
+                    generators.add(generator);
                 }
             }
+        } else {
+            // Placeholders only read, copies of the dormant rows leave the store to the main thread
+            generators.addAll(dormantGenerators.copyByOwner(playerUUID));
         }
-        
-        plugin.getLogger().fine("Generator cache cleanup complete");
+        return generators;
     }
     
-    private boolean isGeneratorActive(Generator generator) {
-        return activeGenerators.containsValue(generator);
+    public int countPlayerGenerators(UUID playerUUID) {
+        // Dormant generators count toward the limit too, or unloading chunks would free up slots
+        return registry.countByOwner(playerUUID) + dormantGenerators.countByOwner(playerUUID);
     }
     
-    public void invalidatePlayerCache(UUID playerUUID) {
-        playerGeneratorCache.remove(playerUUID);
-    }
-    
-    public void invalidateGeneratorCache(int generatorId) {
-        generatorIdCache.remove(generatorId);
-        
-        // Also update player caches
-        for (UUID playerUUID : playerGeneratorCache.keySet()) {
-            List<Integer> ids = playerGeneratorCache.get(playerUUID);
-            if (ids != null && ids.contains(generatorId)) {
-                ids.remove(Integer.valueOf(generatorId));
-                if (ids.isEmpty()) {
-                    playerGeneratorCache.remove(playerUUID);
-                } else {
-                    playerGeneratorCache.put(playerUUID, ids);
-                }
-            }
+    private static class RemoteRow {
+        final UUID owner;
+        final String worldName;
+        final int x;
+        final int y;
+        final int z;
+        final String type;
+        final int level;
+        final long lastGeneration;
+        final int usageCount;
+        final double resourcesGenerated;
+        
+        RemoteRow(UUID owner, String worldName, int x, int y, int z, String type,
+                  int level, long lastGeneration, int usageCount, double resourcesGenerated) {
+            this.owner = owner;
+            this.worldName = worldName;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.type = type;
+            this.level = level;
+            this.lastGeneration = lastGeneration;
+            this.usageCount = usageCount;
+            this.resourcesGenerated = resourcesGenerated;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,214 @@
+package id.rnggagib.blockmint.generators;
+
+import id.rnggagib.blockmint.chunk.GeneratorChunkIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class GeneratorRegistry {
+    
+    private static final int DEFAULT_CAPACITY = 256;
+    private static final float LOAD_FACTOR = 0.6f;
+    
+    // Loaded generators by id, only touched from the main thread; open addressing with linear probing, a slot is empty when its generator is null
+    private int[] ids;
+    private Generator[] generators;
+    private int size;
+    private int resizeThreshold;
+    
+    // Only covers loaded generators like the id table, but placeholders may read it off the main thread
+    private final Map<UUID, Map<Integer, Generator>> byOwner = new ConcurrentHashMap<>();
+    // Chunk and network membership also cover dormant generators, so they are keyed by id alone
+    private final GeneratorChunkIndex chunkIndex = new GeneratorChunkIndex();
+    private final Map<Integer, Integer> networkByGenerator = new ConcurrentHashMap<>();
+    
+    public GeneratorRegistry() {
+        allocate(DEFAULT_CAPACITY);
+    }
+    
+    private void allocate(int capacity) {
+        ids = new int[capacity];
+        generators = new Generator[capacity];
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+    
+    public void add(Generator generator) {
+        activate(generator);
+        chunkIndex.add(generator);
+    }
+    
+    public void remove(Generator generator) {
+        deactivate(generator.getId());
+        chunkIndex.remove(generator);
+    }
+    
+    // For generators moving between loaded and dormant, which keep their place in the chunk index
+    public void activate(Generator generator) {
+        Generator previous = put(generator);
+        if (previous != null && previous != generator) {
+            removeOwned(previous);
+        }
+        byOwner.computeIfAbsent(generator.getOwner(), k -> new ConcurrentHashMap<>()).put(generator.getId(), generator);
+    }
+    
+    public Generator deactivate(int generatorId) {
+        Generator generator = take(generatorId);
+        if (generator != null) {
+            removeOwned(generator);
+        }
+        return generator;
+    }
+    
+    private void removeOwned(Generator generator) {
+        Map<Integer, Generator> owned = byOwner.get(generator.getOwner());
+        if (owned != null && owned.remove(generator.getId(), generator) && owned.isEmpty()) {
+            byOwner.remove(generator.getOwner(), owned);
+        }
+    }
+    
+    public Generator get(int generatorId) {
+        int mask = ids.length - 1;
+        int slot = mix(generatorId) & mask;
+        while (generators[slot] != null) {
+            if (ids[slot] == generatorId) {
+                return generators[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+    
+    public List<Generator> getByOwner(UUID owner) {
+        Map<Integer, Generator> owned = byOwner.get(owner);
+        return owned != null ? new ArrayList<>(owned.values()) : new ArrayList<>();
+    }
+    
+    public int countByOwner(UUID owner) {
+        Map<Integer, Generator> owned = byOwner.get(owner);
+        return owned != null ? owned.size() : 0;
+    }
+    
+    public GeneratorChunkIndex getChunkIndex() {
+        return chunkIndex;
+    }
+    
+    public void connect(int generatorId, int networkId) {
+        networkByGenerator.put(generatorId, networkId);
+    }
+    
+    public Integer disconnect(int generatorId) {
+        return networkByGenerator.remove(generatorId);
+    }
+    
+    public boolean disconnect(int generatorId, int networkId) {
+        return networkByGenerator.remove(generatorId, networkId);
+    }
+    
+    public Integer getNetworkId(int generatorId) {
+        return networkByGenerator.get(generatorId);
+    }
+    
+    public boolean isConnected(int generatorId) {
+        return networkByGenerator.containsKey(generatorId);
+    }
+    
+    public List<Integer> getConnectedGenerators() {
+        return new ArrayList<>(networkByGenerator.keySet());
+    }
+    
+    public void clearNetworks() {
+        networkByGenerator.clear();
+    }
+    
+    // Network membership is owned by the network loader and survives a generator reload
+    public void clear() {
+        allocate(DEFAULT_CAPACITY);
+        size = 0;
+        byOwner.clear();
+        chunkIndex.clear();
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    private Generator put(Generator generator) {
+        int generatorId = generator.getId();
+        int mask = ids.length - 1;
+        int slot = mix(generatorId) & mask;
+        while (generators[slot] != null) {
+            if (ids[slot] == generatorId) {
+                Generator previous = generators[slot];
+                generators[slot] = generator;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        ids[slot] = generatorId;
+        generators[slot] = generator;
+        if (++size > resizeThreshold) {
+            rehash(ids.length << 1);
+        }
+        return null;
+    }
+    
+    private Generator take(int generatorId) {
+        int mask = ids.length - 1;
+        int slot = mix(generatorId) & mask;
+        while (generators[slot] != null) {
+            if (ids[slot] == generatorId) {
+                Generator generator = generators[slot];
+                removeSlot(slot);
+                return generator;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+    
+    private void removeSlot(int slot) {
+        int mask = ids.length - 1;
+        generators[slot] = null;
+        size--;
+        
+        // Shift following entries back so probe chains stay unbroken without tombstones
+        int next = (slot + 1) & mask;
+        while (generators[next] != null) {
+            int home = mix(ids[next]) & mask;
+            boolean movable = slot <= next ? (home <= slot || home > next) : (home <= slot && home > next);
+            if (movable) {
+                ids[slot] = ids[next];
+                generators[slot] = generators[next];
+                generators[next] = null;
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+    
+    private void rehash(int capacity) {
+        int[] oldIds = ids;
+        Generator[] oldGenerators = generators;
+        allocate(capacity);
+        
+        int mask = capacity - 1;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldGenerators[i] == null) continue;
+            int slot = mix(oldIds[i]) & mask;
+            while (generators[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            ids[slot] = oldIds[i];
+            generators[slot] = oldGenerators[i];
+        }
+    }
+    
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,114 @@
+package id.rnggagib.blockmint.generators;
+
+import id.rnggagib.blockmint.chunk.GeneratorChunkIndex;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+public class GeneratorSpatialQuery {
+    
+    private final GeneratorRegistry registry;
+    
+    public GeneratorSpatialQuery(GeneratorRegistry registry) {
+        this.registry = registry;
+    }
+    
+    public List<Generator> within(Location center, double radius) {
+        return within(center.getWorld(), center.getX(), center.getY(), center.getZ(), radius);
+    }
+    
+    public List<Generator> within(World world, double x, double y, double z, double radius) {
+        Hits hits = new Hits();
+        scanChunks(world, x, y, z, radius, null, hits);
+        return hits.sorted();
+    }
+    
+    public List<Generator> withinOwnedBy(UUID owner, Location center, double radius) {
+        return withinOwnedBy(owner, center.getWorld(), center.getX(), center.getY(), center.getZ(), radius);
+    }
+    
+    public List<Generator> withinOwnedBy(UUID owner, World world, double x, double y, double z, double radius) {
+        Hits hits = new Hits();
+        if (world == null || radius < 0) {
+            return hits.sorted();
+        }
+        
+        // Whichever is smaller, the owner's generators or the chunks under the radius, is the one walked
+        long chunkSpan = (long) ((((int) Math.floor(x + radius) >> 4) - ((int) Math.floor(x - radius) >> 4)) + 1)
+                * ((((int) Math.floor(z + radius) >> 4) - ((int) Math.floor(z - radius) >> 4)) + 1);
+        if (registry.countByOwner(owner) <= chunkSpan) {
+            double radiusSquared = radius * radius;
+            for (Generator generator : registry.getByOwner(owner)) {
+                hits.offer(generator, world, x, y, z, radiusSquared);
+            }
+        } else {
+            scanChunks(world, x, y, z, radius, owner, hits);
+        }
+        return hits.sorted();
+    }
+    
+    private void scanChunks(World world, double x, double y, double z, double radius, UUID owner, Hits hits) {
+        if (world == null || radius < 0) return;
+        
+        GeneratorChunkIndex chunkIndex = registry.getChunkIndex();
+        double radiusSquared = radius * radius;
+        int minChunkX = (int) Math.floor(x - radius) >> 4;
+        int maxChunkX = (int) Math.floor(x + radius) >> 4;
+        int minChunkZ = (int) Math.floor(z - radius) >> 4;
+        int maxChunkZ = (int) Math.floor(z + radius) >> 4;
+        
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                for (int generatorId : chunkIndex.getGeneratorIds(world, chunkX, chunkZ)) {
+                    Generator generator = registry.get(generatorId);
+                    if (generator == null || (owner != null && !owner.equals(generator.getOwner()))) continue;
+                    
+                    hits.offer(generator, world, x, y, z, radiusSquared);
+                }
+            }
+        }
+    }
+    
+    private static class Hits {
+        private Generator[] generators = new Generator[16];
+        private double[] distances = new double[16];
+        private int count;
+        
+        void offer(Generator generator, World world, double x, double y, double z, double radiusSquared) {
+            Location location = generator.getLocation();
+            if (location.getWorld() != world) return;
+            
+            double dx = location.getX() - x;
+            double dy = location.getY() - y;
+            double dz = location.getZ() - z;
+            double distanceSquared = dx * dx + dy * dy + dz * dz;
+            if (distanceSquared > radiusSquared) return;
+            
+            if (count == generators.length) {
+                generators = Arrays.copyOf(generators, count * 2);
+                distances = Arrays.copyOf(distances, count * 2);
+            }
+            generators[count] = generator;
+            distances[count] = distanceSquared;
+            count++;
+        }
+        
+        List<Generator> sorted() {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+            
+            List<Generator> result = new ArrayList<>(count);
+            for (int i : order) {
+                result.add(generators[i]);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package id.rnggagib.blockmint.generators;
+
+import id.rnggagib.BlockMint;
+import id.rnggagib.blockmint.database.ChangeFeed;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+public class GeneratorStateStore {
+    
+    public static final int LEVEL = 1;
+    public static final int TYPE = 1 << 1;
+    public static final int LAST_GENERATION = 1 << 2;
+    public static final int USAGE_COUNT = 1 << 3;
+    public static final int RESOURCES_GENERATED = 1 << 4;
+    
+    private static final String[] COLUMNS = {"level", "type", "last_generation", "usage_count", "resources_generated"};
+    
+    private final BlockMint plugin;
+    // Changed fields per generator id, merged until the next flush
+    private final Map<Integer, Integer> dirtyFields = new ConcurrentHashMap<>();
+    private final Map<Integer, String> statementsByMask = new ConcurrentHashMap<>();
+    // Snapshots of dirty generators that were unloaded before their next flush
+    private final Map<Integer, StateSnapshot> detached = new ConcurrentHashMap<>();
+    private CompletableFuture<Void> inFlight = CompletableFuture.completedFuture(null);
+    private BukkitTask flushTask;
+    private final AtomicLong flushedRows = new AtomicLong();
+    
+    public GeneratorStateStore(BlockMint plugin) {
+        this.plugin = plugin;
+    }
+    
+    public void start() {
+        stop();
+        
+        long intervalTicks = Math.max(1, plugin.getConfigManager().getConfig()
+                .getInt("settings.performance.state-flush-seconds", 10)) * 20L;
+        flushTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::flushAsync, intervalTicks, intervalTicks);
+    }
+    
+    public void stop() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+    }
+    
+    public void markDirty(int generatorId, int fields) {
+        dirtyFields.merge(generatorId, fields, (current, added) -> current | added);
+    }
+    
+    public void discard(int generatorId) {
+        dirtyFields.remove(generatorId);
+        detached.remove(generatorId);
+    }
+    
+    public void detach(Generator generator) {
+        Integer mask = dirtyFields.remove(generator.getId());
+        if (mask != null) {
+            StateSnapshot snapshot = new StateSnapshot(generator);
+            snapshot.mask = mask;
+            detached.merge(generator.getId(), snapshot, (current, added) -> {
+                added.mask |= current.mask;
+                return added;
+            });
+        }
+    }
+    
+    public void reattach(int generatorId) {
+        // The generator is live again, so its pending changes are flushed from the live object
+        StateSnapshot snapshot = detached.remove(generatorId);
+        if (snapshot != null) {
+            markDirty(generatorId, snapshot.mask);
+        }
+    }
+    
+    public int getDirtyCount() {
+        return dirtyFields.size() + detached.size();
+    }
+    
+    public long getFlushedRows() {
+        return flushedRows.get();
+    }
+    
+    public void flushAsync() {
+        Map<Integer, List<StateSnapshot>> batches = takeSnapshots();
+        if (batches.isEmpty()) return;
+        
+        // Chained so an older snapshot can never commit after a newer one
+        inFlight = plugin.getDatabaseManager().getExecutor().executeAfter(inFlight, () -> write(batches), error -> {
+            plugin.getLogger().log(Level.SEVERE, "Generator state flush did not run, keeping the changes for the next one", error);
+            restore(batches);
+        });
+    }
+    
+    public void shutdown() {
+        stop();
+        
+        try {
+            inFlight.get(10, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            plugin.getLogger().warning("Timed out waiting for generator state flush, writing remaining changes anyway");
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.WARNING, "Generator state flush failed during shutdown", e);
+        }
+        
+        Map<Integer, List<StateSnapshot>> batches = takeSnapshots();
+        if (!batches.isEmpty()) {
+            write(batches);
+        }
+    }
+    
+    private Map<Integer, List<StateSnapshot>> takeSnapshots() {
+        // Field values are read here on the main thread, the database only ever sees the copies
+        Map<Integer, List<StateSnapshot>> batches = new HashMap<>();
+        for (Integer generatorId : new ArrayList<>(detached.keySet())) {
+            StateSnapshot snapshot = detached.remove(generatorId);
+            if (snapshot == null) continue;
+            
+            // Loaded again since, the live object is at least as new as the copy
+            if (plugin.getGeneratorManager().findGeneratorById(generatorId) != null) {
+                markDirty(generatorId, snapshot.mask);
+            } else {
+                batches.computeIfAbsent(snapshot.mask, k -> new ArrayList<>()).add(snapshot);
+            }
+        }
+        
+        for (Integer generatorId : new ArrayList<>(dirtyFields.keySet())) {
+            Integer mask = dirtyFields.remove(generatorId);
+            if (mask == null) continue;
+            
+            Generator generator = plugin.getGeneratorManager().findGeneratorById(generatorId);
+            if (generator == null) continue;
+            
+            StateSnapshot snapshot = new StateSnapshot(generator);
+            snapshot.mask = mask;
+            batches.computeIfAbsent(mask, k -> new ArrayList<>()).add(snapshot);
+        }
+        return batches;
+    }
+    
+    private void write(Map<Integer, List<StateSnapshot>> batches) {
+        try {
+            int rows = plugin.getDatabaseManager().queryWithTransaction(conn -> {
+                int written = 0;
+                for (Map.Entry<Integer, List<StateSnapshot>> batch : batches.entrySet()) {
+                    written += writeBatch(conn, batch.getKey(), batch.getValue());
+                }
+                publishChanges(conn, batches);
+                return written;
+            });
+            flushedRows.addAndGet(rows);
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error flushing generator state", e);
+            restore(batches);
+        }
+    }
+    
+    private void restore(Map<Integer, List<StateSnapshot>> batches) {
+        // Kept as detached copies, the generator may be unloaded by the next flush and its values would be lost with it
+        for (List<StateSnapshot> batch : batches.values()) {
+            for (StateSnapshot snapshot : batch) {
+                detached.merge(snapshot.id, snapshot, (current, failed) -> {
+                    current.mask |= failed.mask;
+                    return current;
+                });
+            }
+        }
+    }
+    
+    private void publishChanges(Connection conn, Map<Integer, List<StateSnapshot>> batches) throws SQLException {
+        ChangeFeed changeFeed = plugin.getDatabaseManager().getChangeFeed();
+        if (!changeFeed.isEnabled()) return;
+        
+        // Generation progress changes on every cycle, other servers only hear about it when asked to
+        int structural = changeFeed.isIncludeProgress() ? ~0 : LEVEL | TYPE;
+        Set<Integer> ids = new HashSet<>();
+        for (Map.Entry<Integer, List<StateSnapshot>> batch : batches.entrySet()) {
+            if ((batch.getKey() & structural) == 0) continue;
+            for (StateSnapshot snapshot : batch.getValue()) {
+                ids.add(snapshot.id);
+            }
+        }
+        changeFeed.append(conn, ChangeFeed.EntityType.GENERATOR, ids);
+    }
+    
+    private int writeBatch(Connection conn, int mask, List<StateSnapshot> snapshots) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(statementsByMask.computeIfAbsent(mask, this::buildUpdate))) {
+            for (StateSnapshot snapshot : snapshots) {
+                int index = 1;
+                if ((mask & LEVEL) != 0) stmt.setInt(index++, snapshot.level);
+                if ((mask & TYPE) != 0) stmt.setString(index++, snapshot.typeId);
+                if ((mask & LAST_GENERATION) != 0) stmt.setLong(index++, snapshot.lastGeneration);
+                if ((mask & USAGE_COUNT) != 0) stmt.setInt(index++, snapshot.usageCount);
+                if ((mask & RESOURCES_GENERATED) != 0) stmt.setDouble(index++, snapshot.resourcesGenerated);
+                stmt.setInt(index, snapshot.id);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        return snapshots.size();
+    }
+    
+    private String buildUpdate(int mask) {
+        StringBuilder sql = new StringBuilder("UPDATE generators SET ");
+        boolean first = true;
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if ((mask & (1 << i)) == 0) continue;
+            if (!first) sql.append(", ");
+            sql.append(COLUMNS[i]).append(" = ?");
+            first = false;
+        }
+        return sql.append(" WHERE id = ?").toString();
+    }
+    
+    private static class StateSnapshot {
+        final int id;
+        final int level;
+        final String typeId;
+        final long lastGeneration;
+        final int usageCount;
+        final double resourcesGenerated;
+        int mask;
+        
+        StateSnapshot(Generator generator) {
+            this.id = generator.getId();
+            this.level = generator.getLevel();
+            this.typeId = generator.getType().getId();
+            this.lastGeneration = generator.getLastGeneration();
+            this.usageCount = generator.getUsageCount();
+            this.resourcesGenerated = generator.getResourcesGenerated();
+        }
+    }
+}
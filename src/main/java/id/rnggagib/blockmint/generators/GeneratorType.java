@@ -19,6 +19,11 @@ public class GeneratorType {
     private final double evolutionRequiredResources;
     private final double evolutionCost;
     
+    // Indexed by level, one past the max so upgrade previews stay in the table
+    private final double[] valueByLevel;
+    private final double[] upgradeCostByLevel;
+    private final long generationTimeMillis;
+    
     public GeneratorType(
             String id, 
             String name, 
@@ -48,6 +53,15 @@ public class GeneratorType {
         this.evolutionRequiredUsage = evolutionRequiredUsage;
         this.evolutionRequiredResources = evolutionRequiredResources;
         this.evolutionCost = evolutionCost;
+        
+        int levels = Math.max(1, maxLevel) + 2;
+        this.valueByLevel = new double[levels];
+        this.upgradeCostByLevel = new double[levels];
+        for (int level = 1; level < levels; level++) {
+            valueByLevel[level] = baseValue * Math.pow(valueMultiplier, level - 1);
+            upgradeCostByLevel[level] = upgradeCostBase * Math.pow(upgradeCostMultiplier, level - 1);
+        }
+        this.generationTimeMillis = generationTime * 1000;
     }
     
     public String getId() {
@@ -82,11 +96,21 @@ public class GeneratorType {
         return textureValue;
     }
     
+    public long getGenerationTimeMillis() {
+        return generationTimeMillis;
+    }
+    
     public double getUpgradeCost(int currentLevel) {
+        if (currentLevel > 0 && currentLevel < upgradeCostByLevel.length) {
+            return upgradeCostByLevel[currentLevel];
+        }
         return upgradeCostBase * Math.pow(upgradeCostMultiplier, currentLevel - 1);
     }
     
     public double getValueAtLevel(int level) {
+        if (level > 0 && level < valueByLevel.length) {
+            return valueByLevel[level];
+        }
         return baseValue * Math.pow(valueMultiplier, level - 1);
     }
     
@@ -0,0 +1,179 @@
+package id.rnggagib.blockmint.generators;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ReadinessScheduler {
+
+    // Four wheels of 64 slots each, one slot per server tick (50ms) on the finest wheel.
+    // Together they cover 64^4 ticks (~9.7 days) which is well beyond any generation cycle.
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELAY_TICKS = (1L << (WHEEL_BITS * LEVELS)) - 1;
+    private static final long MILLIS_PER_TICK = 50;
+
+    private final List<List<Entry>> wheels = new ArrayList<>();
+    private final int[] levelCounts = new int[LEVELS];
+    private final Map<Generator, Entry> scheduled = new HashMap<>();
+    private final List<Entry> due = new ArrayList<>();
+    private long currentTick;
+
+    public ReadinessScheduler() {
+        for (int i = 0; i < LEVELS * WHEEL_SIZE; i++) {
+            wheels.add(new ArrayList<>());
+        }
+        this.currentTick = toTick(System.currentTimeMillis());
+    }
+
+    public synchronized void schedule(Generator generator) {
+        long readyAt = generator.getLastGeneration() + generator.getAdjustedGenerationTime() * 1000;
+        scheduleAt(generator, readyAt);
+    }
+
+    public synchronized void scheduleAfter(Generator generator, long delayMillis) {
+        scheduleAt(generator, System.currentTimeMillis() + delayMillis);
+    }
+
+    public synchronized void cancel(Generator generator) {
+        Entry entry = scheduled.remove(generator);
+        if (entry != null) {
+            entry.cancelled = true;
+        }
+    }
+
+    public synchronized void clear() {
+        for (List<Entry> slot : wheels) {
+            slot.clear();
+        }
+        for (int i = 0; i < LEVELS; i++) {
+            levelCounts[i] = 0;
+        }
+        scheduled.clear();
+        due.clear();
+    }
+
+    public synchronized int size() {
+        return scheduled.size();
+    }
+
+    public synchronized List<Generator> pollReady() {
+        advanceTo(toTick(System.currentTimeMillis()));
+
+        if (due.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Generator> ready = new ArrayList<>(due.size());
+        for (Entry entry : due) {
+            if (!entry.cancelled && scheduled.remove(entry.generator) == entry) {
+                ready.add(entry.generator);
+            }
+        }
+        due.clear();
+        return ready;
+    }
+
+    private void scheduleAt(Generator generator, long readyAtMillis) {
+        Entry previous = scheduled.get(generator);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+
+        // Round up so a generator is never handed out before canGenerate() agrees
+        long deadline = (readyAtMillis + MILLIS_PER_TICK - 1) / MILLIS_PER_TICK;
+        Entry entry = new Entry(generator, Math.min(deadline, currentTick + MAX_DELAY_TICKS));
+        scheduled.put(generator, entry);
+        insert(entry);
+    }
+
+    private void insert(Entry entry) {
+        if (entry.deadline <= currentTick) {
+            due.add(entry);
+            return;
+        }
+
+        // Place the entry on the finest wheel whose span still contains the deadline
+        int level = 0;
+        while (level < LEVELS - 1
+                && (entry.deadline >> (WHEEL_BITS * (level + 1))) != (currentTick >> (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+
+        int slot = (int) ((entry.deadline >> (WHEEL_BITS * level)) & WHEEL_MASK);
+        wheels.get(level * WHEEL_SIZE + slot).add(entry);
+        levelCounts[level]++;
+    }
+
+    private void advanceTo(long targetTick) {
+        while (currentTick < targetTick) {
+            long next = currentTick + 1;
+
+            // Jump over stretches where the finer wheels are empty
+            int emptyLevels = 0;
+            while (emptyLevels < LEVELS && levelCounts[emptyLevels] == 0) {
+                emptyLevels++;
+            }
+            if (emptyLevels == LEVELS) {
+                currentTick = targetTick;
+                return;
+            }
+            if (emptyLevels > 0) {
+                int shift = WHEEL_BITS * emptyLevels;
+                next = Math.min(((currentTick >> shift) + 1) << shift, targetTick);
+            }
+
+            currentTick = next;
+
+            // Cascade coarser wheels whose slot boundary we just crossed, coarsest first
+            for (int level = LEVELS - 1; level > 0; level--) {
+                long lowerMask = (1L << (WHEEL_BITS * level)) - 1;
+                if ((currentTick & lowerMask) == 0) {
+                    cascade(level, (int) ((currentTick >> (WHEEL_BITS * level)) & WHEEL_MASK));
+                }
+            }
+
+            List<Entry> slot = wheels.get((int) (currentTick & WHEEL_MASK));
+            if (!slot.isEmpty()) {
+                levelCounts[0] -= slot.size();
+                due.addAll(slot);
+                slot.clear();
+            }
+        }
+    }
+
+    private void cascade(int level, int index) {
+        List<Entry> slot = wheels.get(level * WHEEL_SIZE + index);
+        if (slot.isEmpty()) {
+            return;
+        }
+
+        List<Entry> entries = new ArrayList<>(slot);
+        levelCounts[level] -= slot.size();
+        slot.clear();
+
+        for (Entry entry : entries) {
+            if (!entry.cancelled) {
+                insert(entry);
+            }
+        }
+    }
+
+    private static long toTick(long millis) {
+        return millis / MILLIS_PER_TICK;
+    }
+
+    private static class Entry {
+        private final Generator generator;
+        private final long deadline;
+        private boolean cancelled;
+
+        private Entry(Generator generator, long deadline) {
+            this.generator = generator;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -85,7 +85,7 @@ public class GUIManager {
             lore.add("&a✓ Ready to collect!");
         } else {
             long elapsed = System.currentTimeMillis() - generator.getLastGeneration();
-            long total = generator.getType().getGenerationTime() * 1000;
+            long total = generator.getType().getGenerationTimeMillis();
             int percent = (int) ((elapsed * 100) / total);
             long remaining = (total - elapsed) / 1000;
             
@@ -14,8 +14,6 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.ItemStack;
 
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -46,7 +44,7 @@ public class GeneratorDetailsGUI extends BaseGUI {
             inventory.setItem(11, GUIManager.createItem(Material.CHEST, "&aCollect", collectLore));
         } else {
             long elapsed = System.currentTimeMillis() - generator.getLastGeneration();
-            long total = generator.getType().getGenerationTime() * 1000;
+            long total = generator.getType().getGenerationTimeMillis();
             int percent = (int) ((elapsed * 100) / total);
             long remaining = (total - elapsed) / 1000;
             
@@ -211,18 +209,6 @@ public class GeneratorDetailsGUI extends BaseGUI {
         int newLevel = generator.getLevel() + 1;
         generator.setLevel(newLevel);
         
-        try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                    "UPDATE generators SET level = ? WHERE id = ?"
-            );
-            stmt.setInt(1, newLevel);
-            stmt.setInt(2, generator.getId());
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Could not update generator level in database: " + e.getMessage());
-            return;
-        }
-        
         Map<String, String> placeholders = new HashMap<>();
         placeholders.put("level", String.valueOf(newLevel));
         plugin.getMessageManager().send(player, "general.upgrade-success", placeholders);
@@ -265,16 +251,7 @@ public class GeneratorDetailsGUI extends BaseGUI {
     }
     
     private void updatePlayerEarnings(UUID playerUUID, double amount) {
-        try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                    "UPDATE player_stats SET total_earnings = total_earnings + ? WHERE uuid = ?"
-            );
-            stmt.setDouble(1, amount);
-            stmt.setString(2, playerUUID.toString());
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Could not update player earnings in database: " + e.getMessage());
-        }
+        plugin.getEconomyManager().getEarningsLedger().record(playerUUID, amount);
     }
     
     private void evolveGenerator() {
@@ -295,19 +272,9 @@ public class GeneratorDetailsGUI extends BaseGUI {
         }
         
         String oldTypeName = generator.getType().getName();
+        plugin.getEconomyManager().getMetrics().generatorTypeChanged(generator.getType().getId(), nextType.getId());
         generator.setType(nextType);
-        
-        try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                    "UPDATE generators SET type = ?, usage_count = 0, resources_generated = 0 WHERE id = ?"
-            );
-            stmt.setString(1, nextType.getId());
-            stmt.setInt(2, generator.getId());
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Could not update generator type in database: " + e.getMessage());
-            return;
-        }
+        generator.resetEvolutionProgress();
         
         Location location = generator.getLocation();
         if (location.getChunk().isLoaded()) {
@@ -14,8 +14,6 @@ import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -191,16 +189,7 @@ public class GeneratorListGUI extends BaseGUI {
     }
     
     private List<Generator> getPlayerGenerators() {
-        List<Generator> playerGenerators = new ArrayList<>();
-        UUID playerUUID = player.getUniqueId();
-        
-        for (Generator generator : plugin.getGeneratorManager().getActiveGenerators().values()) {
-            if (generator.getOwner().equals(playerUUID)) {
-                playerGenerators.add(generator);
-            }
-        }
-        
-        return playerGenerators;
+        return plugin.getGeneratorManager().getPlayerGenerators(player.getUniqueId());
     }
     
     private int countPlayerGenerators() {
@@ -216,15 +205,6 @@ public class GeneratorListGUI extends BaseGUI {
     }
     
     private void updatePlayerEarnings(UUID playerUUID, double amount) {
-        try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                    "UPDATE player_stats SET total_earnings = total_earnings + ? WHERE uuid = ?"
-            );
-            stmt.setDouble(1, amount);
-            stmt.setString(2, playerUUID.toString());
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Could not update player earnings in database: " + e.getMessage());
-        }
+        plugin.getEconomyManager().getEarningsLedger().record(playerUUID, amount);
     }
 }
\ No newline at end of file
@@ -6,7 +6,6 @@ import id.rnggagib.blockmint.network.NetworkBlock;
 import id.rnggagib.blockmint.network.NetworkTier;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
-import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
@@ -161,23 +160,14 @@ public class NetworkGUIManager {
         // Get connected generator objects
         List<Generator> connectedGenerators = new ArrayList<>();
         for (int generatorId : network.getConnectedGenerators()) {
-            for (Generator g : plugin.getGeneratorManager().getActiveGenerators().values()) {
-                if (g.getId() == generatorId) {
-                    connectedGenerators.add(g);
-                    break;
-                }
+            Generator g = plugin.getGeneratorManager().findGeneratorById(generatorId);
+            if (g != null) {
+                connectedGenerators.add(g);
             }
         }
         
-        // Get nearby unconnected generators
-        List<Generator> nearbyGenerators = new ArrayList<>();
-        for (Generator g : plugin.getGeneratorManager().getActiveGenerators().values()) {
-            if (g.getOwner().equals(player.getUniqueId()) && 
-                !network.getConnectedGenerators().contains(g.getId()) &&
-                network.isInRange(g.getLocation())) {
-                nearbyGenerators.add(g);
-            }
-        }
+        // Nearby unconnected generators, closest first
+        List<Generator> nearbyGenerators = plugin.getNetworkManager().getConnectableGenerators(network, player.getUniqueId());
         
         // Show connected generators
         int slot = 0;
@@ -318,6 +308,7 @@ public class NetworkGUIManager {
                 case 17: // Auto-collect toggle
                     network.setAutoCollectEnabled(!network.isAutoCollectEnabled());
                     plugin.getNetworkManager().saveNetwork(network);
+                    plugin.getNetworkManager().refreshReadyQueue(network);
                     
                     if (network.isAutoCollectEnabled()) {
                         Map<String, String> placeholders = new HashMap<>();
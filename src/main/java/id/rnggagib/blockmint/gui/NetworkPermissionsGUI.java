@@ -379,26 +379,27 @@ public class NetworkPermissionsGUI extends BaseGUI {
                 UUID newOwnerUuid = selectedMember.getPlayerUuid();
                 String newOwnerName = selectedMember.getPlayerName();
                 
-                boolean transferred = plugin.getNetworkManager().getPermissionManager()
-                    .transferOwnership(network.getNetworkId(), newOwnerUuid, newOwnerName);
-                
-                if (transferred) {
-                    player.sendMessage(ChatColor.GREEN + "Transferred ownership of network " + 
-                        network.getName() + " to " + newOwnerName + ".");
-                    
-                    // Notify the new owner if they're online
-                    Player newOwner = Bukkit.getPlayer(newOwnerUuid);
-                    if (newOwner != null) {
-                        newOwner.sendMessage(ChatColor.GREEN + "You are now the owner of network: " + 
-                            ChatColor.AQUA + network.getName() + ChatColor.GREEN + "!");
+                // Completes on the main thread once the database has the new owner
+                plugin.getNetworkManager().getPermissionManager()
+                    .transferOwnership(network.getNetworkId(), newOwnerUuid, newOwnerName).thenAccept(transferred -> {
+                    if (transferred) {
+                        player.sendMessage(ChatColor.GREEN + "Transferred ownership of network " + 
+                            network.getName() + " to " + newOwnerName + ".");
+                        
+                        // Notify the new owner if they're online
+                        Player newOwner = Bukkit.getPlayer(newOwnerUuid);
+                        if (newOwner != null) {
+                            newOwner.sendMessage(ChatColor.GREEN + "You are now the owner of network: " + 
+                                ChatColor.AQUA + network.getName() + ChatColor.GREEN + "!");
+                        }
+                        
+                        // Go back to members list
+                        selectedMember = null;
+                        showMembersList();
+                    } else {
+                        player.sendMessage(ChatColor.RED + "Failed to transfer ownership.");
                     }
-                    
-                    // Go back to members list
-                    selectedMember = null;
-                    showMembersList();
-                } else {
-                    player.sendMessage(ChatColor.RED + "Failed to transfer ownership.");
-                }
+                });
             }
         }
     }
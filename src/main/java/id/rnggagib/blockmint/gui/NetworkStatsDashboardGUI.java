@@ -2,6 +2,7 @@ package id.rnggagib.blockmint.gui;
 
 import id.rnggagib.BlockMint;
 import id.rnggagib.blockmint.generators.Generator;
+import id.rnggagib.blockmint.generators.GeneratorType;
 import id.rnggagib.blockmint.network.NetworkBlock;
 import id.rnggagib.blockmint.network.NetworkTier;
 import org.bukkit.Bukkit;
@@ -38,7 +39,7 @@ public class NetworkStatsDashboardGUI extends BaseGUI {
         double totalNetworkValue = 0;
         
         for (int generatorId : network.getConnectedGenerators()) {
-            Generator generator = findGenerator(generatorId);
+            Generator generator = plugin.getGeneratorManager().findGeneratorById(generatorId);
             if (generator == null) continue;
             
             String typeName = generator.getType().getName();
@@ -52,15 +53,6 @@ public class NetworkStatsDashboardGUI extends BaseGUI {
         }
     }
     
-    private Generator findGenerator(int generatorId) {
-        for (Generator generator : plugin.getGeneratorManager().getActiveGenerators().values()) {
-            if (generator.getId() == generatorId) {
-                return generator;
-            }
-        }
-        return null;
-    }
-    
     @Override
     public void open() {
         inventory = Bukkit.createInventory(null, 54, ChatColor.DARK_AQUA + "Network Statistics: " + ChatColor.AQUA + network.getName());
@@ -136,10 +128,10 @@ public class NetworkStatsDashboardGUI extends BaseGUI {
             lore.add(ChatColor.GRAY + "Percentage: " + ChatColor.WHITE + df.format(percentage) + "%");
             
             Material material = Material.PAPER;
-            for (Generator generator : plugin.getGeneratorManager().getActiveGenerators().values()) {
-                if (generator.getType().getName().equals(typeName)) {
+            for (GeneratorType type : plugin.getGeneratorManager().getGeneratorTypes().values()) {
+                if (type.getName().equals(typeName)) {
                     try {
-                        material = Material.valueOf(generator.getType().getMaterial());
+                        material = Material.valueOf(type.getMaterial());
                         break;
                     } catch (Exception e) {
                         material = Material.PAPER;
@@ -266,7 +258,7 @@ public class NetworkStatsDashboardGUI extends BaseGUI {
     private double calculateTotalHourlyProduction() {
         double totalHourlyProduction = 0;
         for (int generatorId : network.getConnectedGenerators()) {
-            Generator generator = findGenerator(generatorId);
+            Generator generator = plugin.getGeneratorManager().findGeneratorById(generatorId);
             if (generator == null) continue;
             
             double value = generator.getValue();
@@ -26,8 +26,6 @@ import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.ItemStack;
 
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -220,14 +218,12 @@ public class BlockListeners implements Listener {
     }
     
     private int countPlayerGenerators(UUID playerUUID) {
-        return (int) plugin.getGeneratorManager().getActiveGenerators().values().stream()
-                .filter(generator -> generator.getOwner().equals(playerUUID))
-                .count();
+        return plugin.getGeneratorManager().countPlayerGenerators(playerUUID);
     }
     
     private void collectGenerator(Player player, Generator generator) {
         if (!generator.canGenerate()) {
-            long remaining = generator.getType().getGenerationTime() * 1000 - 
+            long remaining = generator.getType().getGenerationTimeMillis() - 
                            (System.currentTimeMillis() - generator.getLastGeneration());
             
             Map<String, String> placeholders = new HashMap<>();
@@ -243,7 +239,6 @@ public class BlockListeners implements Listener {
         
         // Track generator usage for evolution
         generator.incrementUsage(value);
-        updateGeneratorUsageAsync(generator.getId(), generator.getUsageCount(), generator.getResourcesGenerated());
         
         // Check if generator is ready for evolution
         if (generator.isEvolutionReady()) {
@@ -254,29 +249,10 @@ public class BlockListeners implements Listener {
         placeholders.put("amount", String.format("%.2f", value));
         plugin.getMessageManager().send(player, "general.collect-success", placeholders);
         
-        updatePlayerEarningsAsync(player.getUniqueId(), value);
+        updatePlayerEarnings(player.getUniqueId(), value, generator.getType().getId());
         DisplayManager.updateHologram(plugin, generator);
     }
     
-    private void updateGeneratorUsageAsync(final int generatorId, final int usageCount, final double resourcesGenerated) {
-        pendingAsyncOperations.incrementAndGet();
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                        "UPDATE generators SET usage_count = ?, resources_generated = ? WHERE id = ?"
-                );
-                stmt.setInt(1, usageCount);
-                stmt.setDouble(2, resourcesGenerated);
-                stmt.setInt(3, generatorId);
-                stmt.executeUpdate();
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Could not update generator usage in database: " + e.getMessage());
-            } finally {
-                pendingAsyncOperations.decrementAndGet();
-            }
-        });
-    }
-    
     private void notifyEvolutionReady(Player player, Generator generator) {
         GeneratorType nextType = generator.getEvolutionTarget();
         if (nextType == null) return;
@@ -311,33 +287,11 @@ public class BlockListeners implements Listener {
         int newLevel = generator.getLevel() + 1;
         generator.setLevel(newLevel);
         
-        updateGeneratorLevelAsync(generator.getId(), newLevel, player, generator);
-    }
-    
-    private void updateGeneratorLevelAsync(final int generatorId, final int newLevel, final Player player, final Generator generator) {
-        pendingAsyncOperations.incrementAndGet();
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                        "UPDATE generators SET level = ? WHERE id = ?"
-                );
-                stmt.setInt(1, newLevel);
-                stmt.setInt(2, generatorId);
-                stmt.executeUpdate();
-                
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
-                    Map<String, String> placeholders = new HashMap<>();
-                    placeholders.put("level", String.valueOf(newLevel));
-                    plugin.getMessageManager().send(player, "general.upgrade-success", placeholders);
-                    
-                    DisplayManager.updateHologram(plugin, generator);
-                    pendingAsyncOperations.decrementAndGet();
-                });
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Could not update generator level in database: " + e.getMessage());
-                pendingAsyncOperations.decrementAndGet();
-            }
-        });
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("level", String.valueOf(newLevel));
+        plugin.getMessageManager().send(player, "general.upgrade-success", placeholders);
+        
+        DisplayManager.updateHologram(plugin, generator);
     }
     
     private void showGeneratorInfo(Player player, Generator generator) {
@@ -363,25 +317,11 @@ public class BlockListeners implements Listener {
         }
     }
     
-    private void updatePlayerEarningsAsync(final UUID playerUUID, final double amount) {
-        pendingAsyncOperations.incrementAndGet();
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                        "UPDATE player_stats SET total_earnings = total_earnings + ? WHERE uuid = ?"
-                );
-                stmt.setDouble(1, amount);
-                stmt.setString(2, playerUUID.toString());
-                stmt.executeUpdate();
-                
-                // Log the transaction for economic analysis
-                plugin.getEconomyManager().logTransaction(playerUUID, amount, "generator_collect");
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Could not update player earnings in database: " + e.getMessage());
-            } finally {
-                pendingAsyncOperations.decrementAndGet();
-            }
-        });
+    private void updatePlayerEarnings(UUID playerUUID, double amount, String generatorType) {
+        plugin.getEconomyManager().getEarningsLedger().record(playerUUID, amount);
+        
+        // Log the transaction for economic analysis
+        plugin.getEconomyManager().logTransaction(playerUUID, amount, "generator_collect", generatorType);
     }
     
     private String formatTime(long seconds) {
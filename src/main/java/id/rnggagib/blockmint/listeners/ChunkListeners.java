@@ -25,7 +25,7 @@ public class ChunkListeners implements Listener {
         Chunk chunk = event.getChunk();
         
         plugin.getServer().getScheduler().runTask(plugin, () -> {
-            plugin.getGeneratorManager().handleChunkLoad(chunk);
+            plugin.getChunkManager().handleChunkLoad(chunk);
         });
     }
     
@@ -35,6 +35,6 @@ public class ChunkListeners implements Listener {
             return;
         }
         
-        plugin.getGeneratorManager().handleChunkUnload(event.getChunk());
+        plugin.getChunkManager().handleChunkUnload(event.getChunk());
     }
 }
\ No newline at end of file
@@ -12,8 +12,6 @@ import id.rnggagib.blockmint.commands.subcommands.NetworkCommand;
 import id.rnggagib.blockmint.commands.subcommands.NetworkNotifyCommand;
 
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.UUID;
 import java.util.logging.Level;
 
@@ -30,31 +28,36 @@ public class PlayerListeners implements Listener {
         Player player = event.getPlayer();
         UUID uuid = player.getUniqueId();
         
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                PreparedStatement checkStmt = plugin.getDatabaseManager().prepareStatement(
-                        "SELECT * FROM player_stats WHERE uuid = ?"
-                );
-                checkStmt.setString(1, uuid.toString());
-                ResultSet rs = checkStmt.executeQuery();
-                
-                if (!rs.next()) {
-                    PreparedStatement insertStmt = plugin.getDatabaseManager().prepareStatement(
-                            "INSERT INTO player_stats (uuid, player_name, generators_owned, total_earnings) VALUES (?, ?, 0, 0.0)"
-                    );
-                    insertStmt.setString(1, uuid.toString());
-                    insertStmt.setString(2, player.getName());
-                    insertStmt.executeUpdate();
-                } else {
-                    PreparedStatement updateStmt = plugin.getDatabaseManager().prepareStatement(
-                            "UPDATE player_stats SET player_name = ? WHERE uuid = ?"
-                    );
-                    updateStmt.setString(1, player.getName());
-                    updateStmt.setString(2, uuid.toString());
-                    updateStmt.executeUpdate();
+        String name = player.getName();
+        
+        if (plugin.getNetworkManager() != null) {
+            plugin.getNetworkManager().handleOwnerJoin(uuid);
+        }
+        
+        // Written without reading first, the earnings are then loaded through the read route behind this write
+        plugin.getDatabaseManager().markWrite(uuid);
+        plugin.getDatabaseManager().executeTransactionAsync(conn -> {
+            try (PreparedStatement updateStmt = conn.prepareStatement("UPDATE player_stats SET player_name = ? WHERE uuid = ?")) {
+                updateStmt.setString(1, name);
+                updateStmt.setString(2, uuid.toString());
+                if (updateStmt.executeUpdate() > 0) {
+                    return;
                 }
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Error updating player stats on join!", e);
+            }
+            
+            try (PreparedStatement insertStmt = conn.prepareStatement(
+                    "INSERT INTO player_stats (uuid, player_name, generators_owned, total_earnings) VALUES (?, ?, 0, 0.0)")) {
+                insertStmt.setString(1, uuid.toString());
+                insertStmt.setString(2, name);
+                insertStmt.executeUpdate();
+            }
+        }).whenComplete((result, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.SEVERE, "Error updating player stats on join!", error);
+                return;
+            }
+            if (plugin.getEconomyManager() != null) {
+                plugin.getEconomyManager().getEarningsLedger().getTotalEarnings(uuid);
             }
         });
         
@@ -1,6 +1,7 @@
 package id.rnggagib.blockmint.network;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.UUID;
 import java.util.List;
@@ -27,6 +28,8 @@ public class NetworkBlock {
     private String name;
     private NetworkTier tier;
     private Set<Integer> connectedGenerators;
+    // Connected generators that came ready since the last collection, in the order they did
+    private final Set<Integer> readyGenerators = new LinkedHashSet<>();
     private long creationTime;
     private double range;
     
@@ -94,6 +97,28 @@ public class NetworkBlock {
         return new HashSet<>(connectedGenerators);
     }
     
+    public void offerReady(int generatorId) {
+        readyGenerators.add(generatorId);
+    }
+    
+    public boolean removeReady(int generatorId) {
+        return readyGenerators.remove(generatorId);
+    }
+    
+    public boolean hasReadyGenerators() {
+        return !readyGenerators.isEmpty();
+    }
+    
+    public int getReadyGeneratorCount() {
+        return readyGenerators.size();
+    }
+    
+    public List<Integer> drainReady() {
+        List<Integer> ready = new ArrayList<>(readyGenerators);
+        readyGenerators.clear();
+        return ready;
+    }
+    
     public int getConnectedGeneratorCount() {
         return connectedGenerators.size();
     }
@@ -0,0 +1,137 @@
+package id.rnggagib.blockmint.network;
+
+import id.rnggagib.blockmint.chunk.GeneratorChunkIndex;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public class NetworkIndex {
+    
+    public static final int NONE = -1;
+    
+    // Main thread only, every writer is a network lifecycle event
+    private final Map<World, Map<Long, ChunkEntry>> worlds = new HashMap<>();
+    private final Map<UUID, Set<Integer>> byOwner = new HashMap<>();
+    
+    public static long packPosition(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+    
+    private static int column(int x, int z) {
+        return ((z & 15) << 4) | (x & 15);
+    }
+    
+    public void add(NetworkBlock network) {
+        Location location = network.getLocation();
+        if (location.getWorld() != null) {
+            worlds.computeIfAbsent(location.getWorld(), w -> new HashMap<>())
+                    .computeIfAbsent(GeneratorChunkIndex.chunkKey(location), k -> new ChunkEntry())
+                    .add(location.getBlockX(), location.getBlockY(), location.getBlockZ(), network.getNetworkId());
+        }
+        byOwner.computeIfAbsent(network.getOwner(), k -> new LinkedHashSet<>()).add(network.getNetworkId());
+    }
+    
+    public void remove(NetworkBlock network) {
+        Location location = network.getLocation();
+        Map<Long, ChunkEntry> chunks = location.getWorld() != null ? worlds.get(location.getWorld()) : null;
+        if (chunks != null) {
+            long chunkKey = GeneratorChunkIndex.chunkKey(location);
+            ChunkEntry entry = chunks.get(chunkKey);
+            if (entry != null && entry.remove(network.getNetworkId()) && entry.count == 0) {
+                chunks.remove(chunkKey);
+                if (chunks.isEmpty()) {
+                    worlds.remove(location.getWorld());
+                }
+            }
+        }
+        
+        Set<Integer> owned = byOwner.get(network.getOwner());
+        if (owned != null && owned.remove(network.getNetworkId()) && owned.isEmpty()) {
+            byOwner.remove(network.getOwner());
+        }
+    }
+    
+    // Returns NONE when nothing is there, most calls stop at the chunk lookup or the column bit
+    public int getNetworkId(World world, int x, int y, int z) {
+        Map<Long, ChunkEntry> chunks = worlds.get(world);
+        if (chunks == null) {
+            return NONE;
+        }
+        ChunkEntry entry = chunks.get(GeneratorChunkIndex.chunkKey(x >> 4, z >> 4));
+        return entry != null ? entry.get(x, y, z) : NONE;
+    }
+    
+    public List<Integer> getOwnedNetworkIds(UUID owner) {
+        Set<Integer> owned = byOwner.get(owner);
+        return owned != null ? new ArrayList<>(owned) : new ArrayList<>();
+    }
+    
+    public void clear() {
+        worlds.clear();
+        byOwner.clear();
+    }
+    
+    private static class ChunkEntry {
+        // One bit per block column in the chunk, set when any network sits somewhere in that column
+        private final long[] columns = new long[4];
+        private long[] positions = new long[1];
+        private int[] networkIds = new int[1];
+        private int count;
+        
+        void add(int x, int y, int z, int networkId) {
+            remove(networkId);
+            if (count == positions.length) {
+                positions = Arrays.copyOf(positions, count * 2);
+                networkIds = Arrays.copyOf(networkIds, count * 2);
+            }
+            positions[count] = packPosition(x, y, z);
+            networkIds[count] = networkId;
+            count++;
+            
+            int column = column(x, z);
+            columns[column >>> 6] |= 1L << column;
+        }
+        
+        boolean remove(int networkId) {
+            for (int i = 0; i < count; i++) {
+                if (networkIds[i] != networkId) continue;
+                
+                count--;
+                positions[i] = positions[count];
+                networkIds[i] = networkIds[count];
+                
+                // Another network may share the column, so the bits are rebuilt from what is left
+                Arrays.fill(columns, 0L);
+                for (int j = 0; j < count; j++) {
+                    int column = column((int) (positions[j] >> 38), (int) (positions[j] >> 12));
+                    columns[column >>> 6] |= 1L << column;
+                }
+                return true;
+            }
+            return false;
+        }
+        
+        int get(int x, int y, int z) {
+            int column = column(x, z);
+            if ((columns[column >>> 6] & (1L << column)) == 0) {
+                return NONE;
+            }
+            
+            long position = packPosition(x, y, z);
+            for (int i = 0; i < count; i++) {
+                if (positions[i] == position) {
+                    return networkIds[i];
+                }
+            }
+            return NONE;
+        }
+    }
+}
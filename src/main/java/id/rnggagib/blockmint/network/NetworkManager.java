@@ -1,7 +1,10 @@
 package id.rnggagib.blockmint.network;
 
 import id.rnggagib.BlockMint;
+import id.rnggagib.blockmint.database.ChangeFeed;
+import id.rnggagib.blockmint.database.StateSnapshot;
 import id.rnggagib.blockmint.generators.Generator;
+import id.rnggagib.blockmint.generators.GeneratorRegistry;
 import id.rnggagib.blockmint.utils.DisplayManager;
 import id.rnggagib.blockmint.network.permissions.NetworkPermission;
 import id.rnggagib.blockmint.network.permissions.NetworkPermissionManager;
@@ -13,16 +16,20 @@ import org.bukkit.Particle;
 import org.bukkit.Sound;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.util.Vector;
 
 import java.awt.Color;
+import java.io.IOException;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -34,13 +41,17 @@ public class NetworkManager {
     
     private final BlockMint plugin;
     private final Map<Integer, NetworkBlock> networks = new ConcurrentHashMap<>();
-    private final Map<Integer, Integer> generatorNetworkMap = new ConcurrentHashMap<>();
-    private BukkitTask networkVisualizerTask;
-    private final Set<UUID> playersViewingNetworks = new HashSet<>();
+    private final NetworkIndex index = new NetworkIndex();
+    private final NetworkVisualizer visualizer;
     private NetworkPermissionManager permissionManager;
+    private boolean completeLoad;
+    // Networks with ready generators queued, and those parked by owner until the owner is back online
+    private final Set<Integer> pendingCollections = new LinkedHashSet<>();
+    private final Map<UUID, Set<Integer>> parkedCollections = new HashMap<>();
     
     public NetworkManager(BlockMint plugin) {
         this.plugin = plugin;
+        this.visualizer = new NetworkVisualizer(plugin, this);
     }
     
     public void initialize() {
@@ -51,7 +62,12 @@ public class NetworkManager {
         permissionManager = new NetworkPermissionManager(plugin);
         permissionManager.initialize();
         
-        startNetworkVisualizerTask();
+        // Generators that came ready before the networks were loaded were never offered to them
+        for (NetworkBlock network : networks.values()) {
+            refreshReadyQueue(network);
+        }
+        
+        visualizer.start();
         
         plugin.getLogger().info("Network manager initialized with " + networks.size() + " networks");
     }
@@ -88,8 +104,20 @@ public class NetworkManager {
     }
     
     private void loadNetworksFromDatabase() {
+        long started = System.nanoTime();
         networks.clear();
-        generatorNetworkMap.clear();
+        index.clear();
+        registry().clearNetworks();
+        visualizer.invalidateAll();
+        completeLoad = false;
+        
+        StateSnapshot.Loaded snapshot = plugin.getStateSnapshot() != null ? plugin.getStateSnapshot().takeLoaded() : null;
+        if (snapshot != null && loadNetworksFromSnapshot(snapshot)) {
+            completeLoad = true;
+            plugin.getLogger().info("Loaded " + networks.size() + " network blocks from the state snapshot in "
+                    + (System.nanoTime() - started) / 1_000_000 + "ms");
+            return;
+        }
         
         try {
             PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
@@ -123,17 +151,60 @@ public class NetworkManager {
                 NetworkBlock network = new NetworkBlock(networkId, location, owner, name, tier);
                 network.setCreationTime(creationTime);
                 networks.put(networkId, network);
+                index.add(network);
                 
                 loadNetworkGenerators(network);
                 loadNetworkAutoCollectSettings(network); // Load auto-collect settings
             }
             
-            plugin.getLogger().info("Loaded " + networks.size() + " network blocks from " + count + " database records");
+            completeLoad = networks.size() == count;
+            plugin.getLogger().info("Loaded " + networks.size() + " network blocks from " + count + " database records in "
+                    + (System.nanoTime() - started) / 1_000_000 + "ms");
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Failed to load networks from database", e);
         }
     }
     
+    private boolean loadNetworksFromSnapshot(StateSnapshot.Loaded snapshot) {
+        int count = snapshot.getNetworkCount();
+        for (int i = 0; i < count; i++) {
+            if (plugin.getServer().getWorld(snapshot.networkWorld(i)) == null) {
+                plugin.getLogger().info("World " + snapshot.networkWorld(i) + " from the state snapshot is not loaded, loading networks from the database");
+                return false;
+            }
+        }
+        
+        for (int i = 0; i < count; i++) {
+            int networkId = snapshot.networkId(i);
+            Location location = new Location(plugin.getServer().getWorld(snapshot.networkWorld(i)),
+                    snapshot.networkX(i), snapshot.networkY(i), snapshot.networkZ(i));
+            
+            NetworkBlock network = new NetworkBlock(networkId, location, snapshot.networkOwner(i), snapshot.networkName(i),
+                    NetworkTier.fromName(snapshot.networkTier(i)));
+            network.setCreationTime(snapshot.networkCreationTime(i));
+            network.setAutoCollectEnabled(snapshot.networkAutoCollect(i));
+            network.setLastAutoCollectTime(snapshot.networkLastAutoCollect(i));
+            for (int generatorId : snapshot.networkMembers(i)) {
+                network.addGenerator(generatorId);
+                registry().connect(generatorId, networkId);
+            }
+            networks.put(networkId, network);
+            index.add(network);
+        }
+        return true;
+    }
+    
+    public boolean writeSnapshot(StateSnapshot.Writer writer) throws IOException {
+        if (!completeLoad) {
+            return false;
+        }
+        
+        for (NetworkBlock network : networks.values()) {
+            writer.addNetwork(network);
+        }
+        return true;
+    }
+    
     private void loadNetworkGenerators(NetworkBlock network) {
         try {
             PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
@@ -146,7 +217,7 @@ public class NetworkManager {
             while (rs.next()) {
                 int generatorId = rs.getInt("generator_id");
                 network.addGenerator(generatorId);
-                generatorNetworkMap.put(generatorId, network.getNetworkId());
+                registry().connect(generatorId, network.getNetworkId());
             }
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Failed to load network generators", e);
@@ -155,30 +226,34 @@ public class NetworkManager {
     
     public NetworkBlock createNetwork(UUID owner, String name, NetworkTier tier, Location location) {
         try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                    "INSERT INTO networks (owner, name, world, x, y, z, tier, creation_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?)"
-            );
-            
-            stmt.setString(1, owner.toString());
-            stmt.setString(2, name);
-            stmt.setString(3, location.getWorld().getName());
-            stmt.setInt(4, location.getBlockX());
-            stmt.setInt(5, location.getBlockY());
-            stmt.setInt(6, location.getBlockZ());
-            stmt.setString(7, tier.name());
-            stmt.setLong(8, System.currentTimeMillis());
-            
-            int result = stmt.executeUpdate();
-            
-            if (result > 0) {
-                int networkId = -1;
-                ResultSet rs = stmt.getGeneratedKeys();
-                if (rs.next()) {
-                    networkId = rs.getInt(1);
+            Integer createdId = plugin.getDatabaseManager().queryWithTransaction(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO networks (owner, name, world, x, y, z, tier, creation_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setString(1, owner.toString());
+                    stmt.setString(2, name);
+                    stmt.setString(3, location.getWorld().getName());
+                    stmt.setInt(4, location.getBlockX());
+                    stmt.setInt(5, location.getBlockY());
+                    stmt.setInt(6, location.getBlockZ());
+                    stmt.setString(7, tier.name());
+                    stmt.setLong(8, System.currentTimeMillis());
+                    
+                    if (stmt.executeUpdate() == 0) {
+                        return null;
+                    }
+                    try (ResultSet rs = stmt.getGeneratedKeys()) {
+                        return rs.next() ? rs.getInt(1) : -1;
+                    }
                 }
-                
+            });
+            
+            if (createdId != null) {
+                int networkId = createdId;
                 NetworkBlock network = new NetworkBlock(networkId, location, owner, name, tier);
                 networks.put(networkId, network);
+                index.add(network);
+                publishChange(networkId);
                 
                 // Add the owner as a member with owner permissions in the database for consistency
                 permissionManager.addMember(networkId, owner, plugin.getServer().getOfflinePlayer(owner).getName(), NetworkPermission.OWNER);
@@ -197,7 +272,7 @@ public class NetworkManager {
         NetworkBlock network = networks.get(networkId);
         if (network == null) return false;
         
-        Generator generator = findGeneratorById(generatorId);
+        Generator generator = plugin.getGeneratorManager().findGeneratorById(generatorId);
         if (generator == null) return false;
         
         if (!network.isInRange(generator.getLocation())) {
@@ -212,23 +287,28 @@ public class NetworkManager {
             return false;
         }
         
-        if (generatorNetworkMap.containsKey(generatorId)) {
+        if (registry().isConnected(generatorId)) {
             removeGeneratorFromNetwork(generatorId);
         }
         
         try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                    "INSERT INTO network_generators (network_id, generator_id) VALUES (?, ?)"
-            );
-            
-            stmt.setInt(1, networkId);
-            stmt.setInt(2, generatorId);
-            
-            int result = stmt.executeUpdate();
+            int result = plugin.getDatabaseManager().queryWithTransaction(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO network_generators (network_id, generator_id) VALUES (?, ?)")) {
+                    stmt.setInt(1, networkId);
+                    stmt.setInt(2, generatorId);
+                    return stmt.executeUpdate();
+                }
+            });
             
             if (result > 0) {
                 network.addGenerator(generatorId);
-                generatorNetworkMap.put(generatorId, networkId);
+                registry().connect(generatorId, networkId);
+                publishChange(networkId);
+                visualizer.invalidate(networkId);
+                if (generator.canGenerate()) {
+                    offerReady(generator);
+                }
                 
                 DisplayManager.updateHologram(plugin, generator);
                 
@@ -242,13 +322,13 @@ public class NetworkManager {
     }
     
     public boolean removeGeneratorFromNetwork(int generatorId) {
-        Integer networkId = generatorNetworkMap.get(generatorId);
+        Integer networkId = registry().getNetworkId(generatorId);
         if (networkId == null) return false;
         
         NetworkBlock network = networks.get(networkId);
         if (network == null) return false;
         
-        Generator generator = findGeneratorById(generatorId);
+        Generator generator = plugin.getGeneratorManager().findGeneratorById(generatorId);
         if (generator == null) return false;
         
         UUID playerUuid = generator.getOwner();
@@ -263,18 +343,23 @@ public class NetworkManager {
         }
         
         try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                    "DELETE FROM network_generators WHERE network_id = ? AND generator_id = ?"
-            );
-            
-            stmt.setInt(1, networkId);
-            stmt.setInt(2, generatorId);
-            
-            int result = stmt.executeUpdate();
+            int result = plugin.getDatabaseManager().queryWithTransaction(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "DELETE FROM network_generators WHERE network_id = ? AND generator_id = ?")) {
+                    stmt.setInt(1, networkId);
+                    stmt.setInt(2, generatorId);
+                    return stmt.executeUpdate();
+                }
+            });
             
             if (result > 0) {
                 network.removeGenerator(generatorId);
-                generatorNetworkMap.remove(generatorId);
+                registry().disconnect(generatorId);
+                publishChange(networkId);
+                visualizer.invalidate(networkId);
+                if (network.removeReady(generatorId)) {
+                    plugin.getGeneratorManager().getReadinessScheduler().schedule(generator);
+                }
                 
                 if (generator != null) {
                     DisplayManager.updateHologram(plugin, generator);
@@ -289,24 +374,39 @@ public class NetworkManager {
         return false;
     }
     
+    public void handleGeneratorRemoved(int generatorId) {
+        // The generator row is already gone, so membership goes without the permission checks above
+        Integer networkId = registry().disconnect(generatorId);
+        if (networkId == null) return;
+        
+        NetworkBlock network = networks.get(networkId);
+        if (network != null) {
+            network.removeGenerator(generatorId);
+            network.removeReady(generatorId);
+        }
+        plugin.getDatabaseManager().updateAsync("DELETE FROM network_generators WHERE network_id = ? AND generator_id = ?", networkId, generatorId);
+        publishChange(networkId);
+        visualizer.invalidate(networkId);
+    }
+    
     public boolean deleteNetwork(int networkId) {
         NetworkBlock network = networks.get(networkId);
         if (network == null) return false;
         
         try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                    "DELETE FROM networks WHERE id = ?"
-            );
-            
-            stmt.setInt(1, networkId);
-            
-            int result = stmt.executeUpdate();
+            int result = plugin.getDatabaseManager().queryWithTransaction(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM networks WHERE id = ?")) {
+                    stmt.setInt(1, networkId);
+                    return stmt.executeUpdate();
+                }
+            });
             
             if (result > 0) {
+                releaseReady(network);
                 for (int generatorId : network.getConnectedGenerators()) {
-                    generatorNetworkMap.remove(generatorId);
+                    registry().disconnect(generatorId);
                     
-                    Generator generator = findGeneratorById(generatorId);
+                    Generator generator = plugin.getGeneratorManager().findGeneratorById(generatorId);
                     if (generator != null) {
                         DisplayManager.updateHologram(plugin, generator);
                     }
@@ -314,6 +414,9 @@ public class NetworkManager {
                 
                 permissionManager.handleNetworkDeletion(networkId);
                 networks.remove(networkId);
+                index.remove(network);
+                publishChange(networkId);
+                visualizer.invalidate(networkId);
                 return true;
             }
         } catch (SQLException e) {
@@ -328,20 +431,21 @@ public class NetworkManager {
         if (network == null) return false;
         
         try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                    "UPDATE networks SET tier = ? WHERE id = ?"
-            );
-            
-            stmt.setString(1, newTier.name());
-            stmt.setInt(2, networkId);
-            
-            int result = stmt.executeUpdate();
+            int result = plugin.getDatabaseManager().queryWithTransaction(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement("UPDATE networks SET tier = ? WHERE id = ?")) {
+                    stmt.setString(1, newTier.name());
+                    stmt.setInt(2, networkId);
+                    return stmt.executeUpdate();
+                }
+            });
             
             if (result > 0) {
                 network.upgradeTier(newTier);
+                publishChange(networkId);
+                visualizer.invalidate(networkId);
                 
                 for (int generatorId : network.getConnectedGenerators()) {
-                    Generator generator = findGeneratorById(generatorId);
+                    Generator generator = plugin.getGeneratorManager().findGeneratorById(generatorId);
                     if (generator != null) {
                         DisplayManager.updateHologram(plugin, generator);
                     }
@@ -356,27 +460,113 @@ public class NetworkManager {
         return false;
     }
     
+    private void publishChange(int networkId) {
+        plugin.getDatabaseManager().getChangeFeed().publish(ChangeFeed.EntityType.NETWORK, networkId);
+    }
+    
+    public void applyRemoteChanges(int[] networkIds) {
+        if (networkIds.length == 0) return;
+        
+        plugin.getDatabaseManager().getExecutor().submit(conn -> readRemoteNetworks(conn, networkIds)).whenComplete((rows, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Could not reload networks changed on another server", error);
+                return;
+            }
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                for (int networkId : networkIds) {
+                    applyRemoteNetwork(networkId, rows.get(networkId));
+                }
+            });
+        });
+    }
+    
+    private Map<Integer, RemoteNetwork> readRemoteNetworks(Connection conn, int[] networkIds) throws SQLException {
+        Map<Integer, RemoteNetwork> rows = new HashMap<>();
+        try (PreparedStatement networkStmt = conn.prepareStatement(
+                "SELECT owner, name, world, x, y, z, tier, creation_time, auto_collect_enabled, last_auto_collect_time FROM networks WHERE id = ?");
+             PreparedStatement generatorStmt = conn.prepareStatement(
+                "SELECT generator_id FROM network_generators WHERE network_id = ?")) {
+            for (int networkId : networkIds) {
+                networkStmt.setInt(1, networkId);
+                RemoteNetwork row;
+                try (ResultSet rs = networkStmt.executeQuery()) {
+                    if (!rs.next()) continue;
+                    row = new RemoteNetwork(UUID.fromString(rs.getString("owner")), rs.getString("name"), rs.getString("world"),
+                            rs.getInt("x"), rs.getInt("y"), rs.getInt("z"), NetworkTier.fromName(rs.getString("tier")),
+                            rs.getLong("creation_time"), rs.getInt("auto_collect_enabled") == 1, rs.getLong("last_auto_collect_time"));
+                }
+                
+                generatorStmt.setInt(1, networkId);
+                try (ResultSet rs = generatorStmt.executeQuery()) {
+                    while (rs.next()) {
+                        row.generators.add(rs.getInt("generator_id"));
+                    }
+                }
+                rows.put(networkId, row);
+            }
+        }
+        return rows;
+    }
+    
+    private void applyRemoteNetwork(int networkId, RemoteNetwork row) {
+        // The block is rebuilt from the row rather than patched, so no field can be left behind
+        Set<Integer> touched = new HashSet<>();
+        NetworkBlock previous = networks.remove(networkId);
+        visualizer.invalidate(networkId);
+        if (previous != null) {
+            index.remove(previous);
+            releaseReady(previous);
+            for (int generatorId : previous.getConnectedGenerators()) {
+                registry().disconnect(generatorId, networkId);
+                touched.add(generatorId);
+            }
+        }
+        
+        World world = row != null ? plugin.getServer().getWorld(row.world) : null;
+        if (world != null) {
+            NetworkBlock network = new NetworkBlock(networkId, new Location(world, row.x, row.y, row.z), row.owner, row.name, row.tier);
+            network.setCreationTime(row.creationTime);
+            network.setAutoCollectEnabled(row.autoCollectEnabled);
+            network.setLastAutoCollectTime(row.lastAutoCollectTime);
+            for (int generatorId : row.generators) {
+                network.addGenerator(generatorId);
+                registry().connect(generatorId, networkId);
+                plugin.getGeneratorManager().findOrLoadGenerator(generatorId);
+                touched.add(generatorId);
+            }
+            networks.put(networkId, network);
+            index.add(network);
+            refreshReadyQueue(network);
+        }
+        
+        for (int generatorId : touched) {
+            Generator generator = plugin.getGeneratorManager().findGeneratorById(generatorId);
+            if (generator != null) {
+                DisplayManager.updateHologram(plugin, generator);
+            }
+        }
+    }
+    
     public NetworkBlock getGeneratorNetwork(int generatorId) {
-        Integer networkId = generatorNetworkMap.get(generatorId);
+        Integer networkId = registry().getNetworkId(generatorId);
         if (networkId == null) return null;
         
         return networks.get(networkId);
     }
     
     public NetworkBlock getNetworkAt(Location location) {
-        for (NetworkBlock network : networks.values()) {
-            if (network.isAtLocation(location)) {
-                return network;
-            }
-        }
-        return null;
+        if (location.getWorld() == null) return null;
+        
+        int networkId = index.getNetworkId(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        return networkId != NetworkIndex.NONE ? networks.get(networkId) : null;
     }
     
     public List<NetworkBlock> getPlayerNetworks(UUID playerUuid) {
         List<NetworkBlock> playerNetworks = new ArrayList<>();
         
-        for (NetworkBlock network : networks.values()) {
-            if (network.getOwner().equals(playerUuid)) {
+        for (int networkId : index.getOwnedNetworkIds(playerUuid)) {
+            NetworkBlock network = networks.get(networkId);
+            if (network != null) {
                 playerNetworks.add(network);
             }
         }
@@ -384,6 +574,23 @@ public class NetworkManager {
         return playerNetworks;
     }
     
+    public List<Generator> getConnectableGenerators(NetworkBlock network, UUID owner) {
+        List<Generator> candidates = plugin.getGeneratorManager().getSpatialQuery()
+                .withinOwnedBy(owner, network.getLocation(), network.getRange());
+        candidates.removeIf(generator -> {
+            Integer networkId = registry().getNetworkId(generator.getId());
+            return networkId != null && networkId == network.getNetworkId();
+        });
+        return candidates;
+    }
+    
+    public void setNetworkOwner(NetworkBlock network, UUID owner) {
+        // The owner is part of the index key, so the network is taken out while it changes
+        index.remove(network);
+        network.setOwner(owner);
+        index.add(network);
+    }
+    
     public double getGeneratorEfficiencyBonus(int generatorId) {
         NetworkBlock network = getGeneratorNetwork(generatorId);
         if (network == null) return 0.0;
@@ -392,168 +599,15 @@ public class NetworkManager {
     }
     
     public void toggleNetworkVisualization(Player player) {
-        UUID playerUuid = player.getUniqueId();
-        
-        if (playersViewingNetworks.contains(playerUuid)) {
-            playersViewingNetworks.remove(playerUuid);
-            player.sendMessage("§aNetwork visualization disabled");
-        } else {
-            playersViewingNetworks.add(playerUuid);
+        if (visualizer.toggle(player.getUniqueId())) {
             player.sendMessage("§aNetwork visualization enabled");
+        } else {
+            player.sendMessage("§aNetwork visualization disabled");
         }
     }
     
-    private void startNetworkVisualizerTask() {
-        if (networkVisualizerTask != null) {
-            networkVisualizerTask.cancel();
-        }
-        
-        networkVisualizerTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(
-                plugin, this::visualizeNetworks, 20L, 10L
-        );
-    }
-    
-    private void visualizeNetworks() {
-        if (playersViewingNetworks.isEmpty()) return;
-        
-        Map<UUID, List<Location>> playerNetworkLocations = new HashMap<>();
-        Map<UUID, Map<Integer, List<Generator>>> playerGeneratorsByNetwork = new HashMap<>();
-        
-        for (UUID playerUuid : playersViewingNetworks) {
-            Player player = plugin.getServer().getPlayer(playerUuid);
-            if (player == null || !player.isOnline()) {
-                playersViewingNetworks.remove(playerUuid);
-                continue;
-            }
-            
-            List<Location> networkLocations = new ArrayList<>();
-            Map<Integer, List<Generator>> generatorsByNetwork = new HashMap<>();
-            
-            for (NetworkBlock network : networks.values()) {
-                if (network.getOwner().equals(playerUuid)) {
-                    if (network.getLocation().getWorld().equals(player.getWorld())) {
-                        networkLocations.add(network.getLocation());
-                        
-                        List<Generator> networkGenerators = new ArrayList<>();
-                        for (int generatorId : network.getConnectedGenerators()) {
-                            Generator generator = findGeneratorById(generatorId);
-                            if (generator != null && generator.getLocation().getWorld().equals(player.getWorld())) {
-                                networkGenerators.add(generator);
-                            }
-                        }
-                        
-                        if (!networkGenerators.isEmpty()) {
-                            generatorsByNetwork.put(network.getNetworkId(), networkGenerators);
-                        }
-                    }
-                }
-            }
-            
-            playerNetworkLocations.put(playerUuid, networkLocations);
-            playerGeneratorsByNetwork.put(playerUuid, generatorsByNetwork);
-        }
-        
-        plugin.getServer().getScheduler().runTask(plugin, () -> {
-            for (UUID playerUuid : playersViewingNetworks) {
-                List<Location> networkLocations = playerNetworkLocations.get(playerUuid);
-                Map<Integer, List<Generator>> generatorsByNetwork = playerGeneratorsByNetwork.get(playerUuid);
-                
-                if (networkLocations == null || generatorsByNetwork == null) continue;
-                
-                Player player = plugin.getServer().getPlayer(playerUuid);
-                if (player == null || !player.isOnline()) continue;
-                
-                for (Map.Entry<Integer, List<Generator>> entry : generatorsByNetwork.entrySet()) {
-                    int networkId = entry.getKey();
-                    List<Generator> generators = entry.getValue();
-                    NetworkBlock network = networks.get(networkId);
-                    
-                    if (network == null || generators.isEmpty()) continue;
-                    
-                    Location networkLocation = network.getLocation().clone().add(0.5, 0.5, 0.5);
-                    Particle.DustOptions dustOptions = getNetworkParticleColor(network.getTier());
-                    
-                    // Draw range indicator
-                    if (player.getLocation().distance(networkLocation) < 50) {
-                        drawRangeCircle(player, networkLocation, network.getRange(), dustOptions);
-                    }
-                    
-                    // Draw connections
-                    for (Generator generator : generators) {
-                        if (player.getLocation().distance(generator.getLocation()) < 50) {
-                            drawParticleLine(networkLocation, generator.getLocation().clone().add(0.5, 0.5, 0.5), dustOptions);
-                        }
-                    }
-                }
-            }
-        });
-    }
-    
-    private void drawRangeCircle(Player player, Location center, double radius, Particle.DustOptions dustOptions) {
-        int points = 36;
-        double angleIncrement = (2 * Math.PI) / points;
-        
-        for (int i = 0; i < points; i++) {
-            double angle = i * angleIncrement;
-            double x = center.getX() + radius * Math.cos(angle);
-            double z = center.getZ() + radius * Math.sin(angle);
-            
-            Location particleLocation = new Location(center.getWorld(), x, center.getY(), z);
-            player.spawnParticle(Particle.REDSTONE, particleLocation, 1, 0, 0, 0, 0, dustOptions);
-        }
-    }
-    
-    private void drawParticleLine(Location from, Location to, Particle.DustOptions dustOptions) {
-        if (!from.getWorld().equals(to.getWorld())) return;
-        
-        double distance = from.distance(to);
-        if (distance > 100) return;
-        
-        double particlesPerBlock = 2;
-        int particleCount = (int) (distance * particlesPerBlock);
-        
-        double xDiff = (to.getX() - from.getX()) / particleCount;
-        double yDiff = (to.getY() - from.getY()) / particleCount;
-        double zDiff = (to.getZ() - from.getZ()) / particleCount;
-        
-        for (int i = 0; i < particleCount; i++) {
-            double x = from.getX() + xDiff * i;
-            double y = from.getY() + yDiff * i;
-            double z = from.getZ() + zDiff * i;
-            
-            Location particleLocation = new Location(from.getWorld(), x, y, z);
-            from.getWorld().spawnParticle(
-                    Particle.REDSTONE, 
-                    particleLocation, 
-                    1, 0, 0, 0, 0, 
-                    dustOptions);
-        }
-    }
-    
-    private Particle.DustOptions getNetworkParticleColor(NetworkTier tier) {
-        switch (tier) {
-            case BASIC:
-                return new Particle.DustOptions(org.bukkit.Color.RED, 1.0f);
-            case ADVANCED:
-                return new Particle.DustOptions(org.bukkit.Color.BLUE, 1.0f);
-            case ELITE:
-                return new Particle.DustOptions(org.bukkit.Color.YELLOW, 1.0f);
-            case ULTIMATE:
-                return new Particle.DustOptions(org.bukkit.Color.fromRGB(0, 255, 255), 1.0f);
-            case CELESTIAL:
-                return new Particle.DustOptions(org.bukkit.Color.PURPLE, 1.0f);
-            default:
-                return new Particle.DustOptions(org.bukkit.Color.WHITE, 1.0f);
-        }
-    }
-    
-    private Generator findGeneratorById(int generatorId) {
-        for (Generator generator : plugin.getGeneratorManager().getActiveGenerators().values()) {
-            if (generator.getId() == generatorId) {
-                return generator;
-            }
-        }
-        return null;
+    private GeneratorRegistry registry() {
+        return plugin.getGeneratorManager().getRegistry();
     }
     
     private boolean checkPermission(int networkId, UUID playerUuid, NetworkPermission requiredPermission) {
@@ -566,18 +620,17 @@ public class NetworkManager {
     }
     
     public void shutdown() {
-        if (networkVisualizerTask != null) {
-            networkVisualizerTask.cancel();
-            networkVisualizerTask = null;
-        }
+        visualizer.shutdown();
         
         if (permissionManager != null) {
             permissionManager.shutdown();
         }
         
         networks.clear();
-        generatorNetworkMap.clear();
-        playersViewingNetworks.clear();
+        index.clear();
+        registry().clearNetworks();
+        pendingCollections.clear();
+        parkedCollections.clear();
     }
     
     public Map<Integer, NetworkBlock> getNetworks() {
@@ -611,102 +664,191 @@ public class NetworkManager {
     public NetworkPermissionManager getPermissionManager() {
         return permissionManager;
     }
-
+    
+    public boolean offerReady(Generator generator) {
+        NetworkBlock network = getGeneratorNetwork(generator.getId());
+        if (network == null || !network.isAutoCollectEnabled()) {
+            return false;
+        }
+        
+        network.offerReady(generator.getId());
+        Set<Integer> parked = parkedCollections.get(network.getOwner());
+        if (parked == null || !parked.contains(network.getNetworkId())) {
+            pendingCollections.add(network.getNetworkId());
+        }
+        return true;
+    }
+    
+    public void refreshReadyQueue(NetworkBlock network) {
+        // The owner may have changed, so let the next pass park it again under the current one
+        unparkCollections(network.getNetworkId());
+        if (!network.isAutoCollectEnabled()) {
+            releaseReady(network);
+            return;
+        }
+        
+        // One pass over the network when it starts collecting, readiness transitions keep the queue current after that
+        for (int generatorId : network.getConnectedGenerators()) {
+            Generator generator = plugin.getGeneratorManager().findOrLoadGenerator(generatorId);
+            if (generator != null && generator.canGenerate()) {
+                offerReady(generator);
+            }
+        }
+    }
+    
+    private void releaseReady(NetworkBlock network) {
+        // Hand queued generators back to the readiness scheduler so they show as ready again
+        for (int generatorId : network.drainReady()) {
+            Generator generator = plugin.getGeneratorManager().findGeneratorById(generatorId);
+            if (generator != null) {
+                plugin.getGeneratorManager().getReadinessScheduler().schedule(generator);
+            }
+        }
+    }
+    
+    public void handleOwnerJoin(UUID owner) {
+        Set<Integer> parked = parkedCollections.remove(owner);
+        if (parked != null) {
+            pendingCollections.addAll(parked);
+        }
+    }
+    
+    public void unparkCollections(int networkId) {
+        for (Set<Integer> parked : parkedCollections.values()) {
+            if (parked.remove(networkId)) {
+                pendingCollections.add(networkId);
+            }
+        }
+        parkedCollections.values().removeIf(Set::isEmpty);
+    }
+    
     public void processNetworkAutoCollection() {
-        for (NetworkBlock network : networks.values()) {
-            if (!network.isAutoCollectEnabled()) continue;
+        if (pendingCollections.isEmpty()) return;
+        
+        Iterator<Integer> iterator = pendingCollections.iterator();
+        while (iterator.hasNext()) {
+            NetworkBlock network = networks.get(iterator.next());
+            if (network == null || !network.hasReadyGenerators()) {
+                iterator.remove();
+                continue;
+            }
             
-            World world = network.getLocation().getWorld();
-            if (world == null || !world.isChunkLoaded(network.getLocation().getBlockX() >> 4, network.getLocation().getBlockZ() >> 4)) {
+            if (!network.isAutoCollectEnabled()) {
+                iterator.remove();
+                releaseReady(network);
                 continue;
             }
             
             UUID ownerUuid = network.getOwner();
             Player owner = plugin.getServer().getPlayer(ownerUuid);
-            if (owner == null || !owner.isOnline()) continue;
+            if (owner == null || !owner.isOnline()) {
+                // The queue keeps filling while parked, nothing looks at it again until the owner joins
+                iterator.remove();
+                parkedCollections.computeIfAbsent(ownerUuid, k -> new HashSet<>()).add(network.getNetworkId());
+                continue;
+            }
             
-            double totalCollected = 0;
-            int generatorsCollected = 0;
+            World world = network.getLocation().getWorld();
+            if (world == null || !world.isChunkLoaded(network.getLocation().getBlockX() >> 4, network.getLocation().getBlockZ() >> 4)) {
+                continue;
+            }
             
-            for (Integer generatorId : network.getConnectedGenerators()) {
-                Generator generator = plugin.getGeneratorManager().findGeneratorById(generatorId);
-                if (generator == null) continue;
-                
-                if (generator.canGenerate()) {
-                    
-                    // Use generator value that hasn't been modified by network bonuses
-                    double value = generator.getValue();
-                    
-                    // Make sure to deposit the non-zero value
-                    plugin.getEconomy().depositPlayer(owner, value);
-                    
-                    generator.setLastGeneration(System.currentTimeMillis());
-                    generator.incrementUsageCount();
-                    generator.addResourcesGenerated(value);
-
-                    totalCollected += value;
-                    generatorsCollected++;
-                    
-                    // Update feedback with meaningful values
-                    if (generatorsCollected % 5 == 0 || generatorsCollected == 1) {
-                        owner.spigot().sendMessage(
-                            net.md_5.bungee.api.ChatMessageType.ACTION_BAR,
-                            new net.md_5.bungee.api.chat.TextComponent("§a+" + String.format("%.2f", value) + " dari generator via network")
-                        );
-                    }
-                    
-                    Location genLocation = generator.getLocation();
-                    if (genLocation.getWorld() != null && genLocation.getWorld().isChunkLoaded(genLocation.getBlockX() >> 4, genLocation.getBlockZ() >> 4)) {
-                        spawnNetworkCollectionEffect(genLocation, network.getLocation());
-                    }
-                }
+            iterator.remove();
+            collectReady(network, owner, world);
+        }
+    }
+    
+    private void collectReady(NetworkBlock network, Player owner, World world) {
+        UUID ownerUuid = owner.getUniqueId();
+        double totalCollected = 0;
+        int generatorsCollected = 0;
+        Map<String, Double> collectedByType = new HashMap<>();
+        
+        for (int generatorId : network.drainReady()) {
+            // Members are kept loaded, one that was still dormant is loaded here rather than dropped
+            Generator generator = plugin.getGeneratorManager().findOrLoadGenerator(generatorId);
+            if (generator == null) continue;
+            
+            Integer memberOf = registry().getNetworkId(generatorId);
+            if (memberOf == null || memberOf != network.getNetworkId()) {
+                plugin.getGeneratorManager().getReadinessScheduler().schedule(generator);
+                continue;
             }
             
-            if (totalCollected > 0) {
-                network.setLastAutoCollectTime(System.currentTimeMillis());
+            // Collected some other way since it was queued, the scheduler already has it again
+            if (generator.canGenerate()) {
                 
-                NetworkCommand networkCommand = (NetworkCommand) plugin.getCommandManager().getSubCommands().get("network");
-                NetworkNotifyCommand notifyCommand = null;
-                if (networkCommand != null) {
-                    notifyCommand = (NetworkNotifyCommand) networkCommand.getSubcommands().get("notify");
-                }
+                // Use generator value that hasn't been modified by network bonuses
+                double value = generator.getValue();
                 
-                // Only send notifications if enabled for this player
-                if (notifyCommand != null && notifyCommand.shouldNotify(ownerUuid)) {
-                    Map<String, String> placeholders = new HashMap<>();
-                    placeholders.put("amount", String.format("%.2f", totalCollected));
-                    placeholders.put("count", String.valueOf(generatorsCollected));
-                    placeholders.put("network", network.getTier().getDisplayName());
-                    
-                    plugin.getMessageManager().send(owner, "network.auto-collect-success", placeholders);
-                    
-                    // Always update the action bar to show collection amount
-                    if (owner != null && owner.isOnline()) {
-                        owner.spigot().sendMessage(
-                            net.md_5.bungee.api.ChatMessageType.ACTION_BAR,
-                            new net.md_5.bungee.api.chat.TextComponent("§a+" + 
-                                String.format("%.2f", totalCollected) + " from " + 
-                                generatorsCollected + " generators via network")
-                        );
-                    }
-                }
+                // Make sure to deposit the non-zero value
+                plugin.getEconomy().depositPlayer(owner, value);
                 
-                plugin.getDatabaseManager().addBatchOperation(
-                    ownerUuid,
-                    "UPDATE player_stats SET total_earnings = total_earnings + ? WHERE uuid = ?",
-                    new Object[]{totalCollected, ownerUuid.toString()}
-                );
+                generator.setLastGeneration(System.currentTimeMillis());
+                generator.incrementUsageCount();
+                generator.addResourcesGenerated(value);
                 
-                plugin.getEconomyManager().logTransaction(ownerUuid, totalCollected, "network_auto_collect");
+                totalCollected += value;
+                generatorsCollected++;
+                collectedByType.merge(generator.getType().getId(), value, Double::sum);
                 
-                Location networkLocation = network.getLocation().clone().add(0.5, 1.0, 0.5);
-                world.playSound(networkLocation, Sound.ENTITY_EXPERIENCE_ORB_PICKUP, 1.0f, 0.8f);
+                // Update feedback with meaningful values
+                if (generatorsCollected % 5 == 0 || generatorsCollected == 1) {
+                    owner.spigot().sendMessage(
+                        net.md_5.bungee.api.ChatMessageType.ACTION_BAR,
+                        new net.md_5.bungee.api.chat.TextComponent("§a+" + String.format("%.2f", value) + " dari generator via network")
+                    );
+                }
                 
-                //DisplayManager.updateHologram(plugin, network);
+                Location genLocation = generator.getLocation();
+                if (genLocation.getWorld() != null && genLocation.getWorld().isChunkLoaded(genLocation.getBlockX() >> 4, genLocation.getBlockZ() >> 4)) {
+                    spawnNetworkCollectionEffect(genLocation, network.getLocation());
+                }
             }
         }
+        
+        if (totalCollected > 0) {
+            network.setLastAutoCollectTime(System.currentTimeMillis());
+            
+            NetworkCommand networkCommand = (NetworkCommand) plugin.getCommandManager().getSubCommands().get("network");
+            NetworkNotifyCommand notifyCommand = null;
+            if (networkCommand != null) {
+                notifyCommand = (NetworkNotifyCommand) networkCommand.getSubcommands().get("notify");
+            }
+            
+            // Only send notifications if enabled for this player
+            if (notifyCommand != null && notifyCommand.shouldNotify(ownerUuid)) {
+                Map<String, String> placeholders = new HashMap<>();
+                placeholders.put("amount", String.format("%.2f", totalCollected));
+                placeholders.put("count", String.valueOf(generatorsCollected));
+                placeholders.put("network", network.getTier().getDisplayName());
+                
+                plugin.getMessageManager().send(owner, "network.auto-collect-success", placeholders);
+                
+                // Always update the action bar to show collection amount
+                if (owner != null && owner.isOnline()) {
+                    owner.spigot().sendMessage(
+                        net.md_5.bungee.api.ChatMessageType.ACTION_BAR,
+                        new net.md_5.bungee.api.chat.TextComponent("§a+" + 
+                            String.format("%.2f", totalCollected) + " from " + 
+                            generatorsCollected + " generators via network")
+                    );
+                }
+            }
+            
+            plugin.getEconomyManager().getEarningsLedger().record(ownerUuid, totalCollected);
+            
+            for (Map.Entry<String, Double> collected : collectedByType.entrySet()) {
+                plugin.getEconomyManager().logTransaction(ownerUuid, collected.getValue(), "network_auto_collect", collected.getKey());
+            }
+            
+            Location networkLocation = network.getLocation().clone().add(0.5, 1.0, 0.5);
+            world.playSound(networkLocation, Sound.ENTITY_EXPERIENCE_ORB_PICKUP, 1.0f, 0.8f);
+            
+            //DisplayManager.updateHologram(plugin, network);
+        }
     }
-
+    
     private void spawnNetworkCollectionEffect(Location generatorLocation, Location networkLocation) {
         if (generatorLocation.getWorld() != networkLocation.getWorld()) return;
         
@@ -724,28 +866,34 @@ public class NetworkManager {
             particleLoc.add(direction);
         }
     }
-
+    
     public void saveNetwork(NetworkBlock network) {
-        try (PreparedStatement stmt = plugin.getDatabaseManager().getConnection().prepareStatement(
-                "UPDATE networks SET owner = ?, tier = ?, auto_collect_enabled = ?, last_auto_collect_time = ? WHERE id = ?")) {
-            
-            stmt.setString(1, network.getOwner().toString());
-            stmt.setString(2, network.getTier().name());
-            stmt.setInt(3, network.isAutoCollectEnabled() ? 1 : 0);
-            stmt.setLong(4, network.getLastAutoCollectTime());
-            stmt.setInt(5, network.getNetworkId());
-            
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Error saving network data", e);
-        }
+        int networkId = network.getNetworkId();
+        String owner = network.getOwner().toString();
+        String tier = network.getTier().name();
+        int autoCollect = network.isAutoCollectEnabled() ? 1 : 0;
+        long lastAutoCollect = network.getLastAutoCollectTime();
+        
+        // The change row commits with the update, so other servers never reload ahead of it
+        plugin.getDatabaseManager().executeTransactionAsync(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE networks SET owner = ?, tier = ?, auto_collect_enabled = ?, last_auto_collect_time = ? WHERE id = ?")) {
+                stmt.setString(1, owner);
+                stmt.setString(2, tier);
+                stmt.setInt(3, autoCollect);
+                stmt.setLong(4, lastAutoCollect);
+                stmt.setInt(5, networkId);
+                stmt.executeUpdate();
+            }
+            plugin.getDatabaseManager().getChangeFeed().append(conn, ChangeFeed.EntityType.NETWORK, List.of(networkId));
+        });
     }
-
+    
     // Modify the loadNetworks method to load auto-collect settings
     private void loadNetworkAutoCollectSettings(NetworkBlock network) {
         try (PreparedStatement stmt = plugin.getDatabaseManager().getConnection().prepareStatement(
                 "SELECT auto_collect_enabled, last_auto_collect_time FROM networks WHERE id = ?")) {
-                
+            
             stmt.setInt(1, network.getNetworkId());
             ResultSet rs = stmt.executeQuery();
             
@@ -757,4 +905,32 @@ public class NetworkManager {
             plugin.getLogger().log(Level.SEVERE, "Error loading network auto-collect settings", e);
         }
     }
+    
+    private static class RemoteNetwork {
+        final UUID owner;
+        final String name;
+        final String world;
+        final int x;
+        final int y;
+        final int z;
+        final NetworkTier tier;
+        final long creationTime;
+        final boolean autoCollectEnabled;
+        final long lastAutoCollectTime;
+        final List<Integer> generators = new ArrayList<>();
+        
+        RemoteNetwork(UUID owner, String name, String world, int x, int y, int z, NetworkTier tier,
+                      long creationTime, boolean autoCollectEnabled, long lastAutoCollectTime) {
+            this.owner = owner;
+            this.name = name;
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.tier = tier;
+            this.creationTime = creationTime;
+            this.autoCollectEnabled = autoCollectEnabled;
+            this.lastAutoCollectTime = lastAutoCollectTime;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,305 @@
+package id.rnggagib.blockmint.network;
+
+import id.rnggagib.BlockMint;
+import id.rnggagib.blockmint.generators.Generator;
+import id.rnggagib.blockmint.generators.GeneratorRegistry;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class NetworkVisualizer {
+    
+    private static final int CIRCLE_POINTS = 36;
+    private static final double MAX_SEGMENT_LENGTH = 100;
+    private static final long INCOMPLETE_REBUILD_MILLIS = 5000;
+    
+    private final BlockMint plugin;
+    private final NetworkManager networkManager;
+    // Toggled from commands and GUI clicks while the draw task walks it and drops players who left
+    private final Set<UUID> viewers = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, Geometry> geometry = new HashMap<>();
+    private BukkitTask drawTask;
+    private boolean showRange;
+    private double maxDistance;
+    private double density;
+    private double fullDetailDistance;
+    private int particleBudget;
+    
+    public NetworkVisualizer(BlockMint plugin, NetworkManager networkManager) {
+        this.plugin = plugin;
+        this.networkManager = networkManager;
+    }
+    
+    public void start() {
+        stop();
+        
+        FileConfiguration config = plugin.getConfigManager().getConfig();
+        if (!config.getBoolean("networks.visualization.enabled", true)) return;
+        
+        showRange = config.getBoolean("networks.visualization.show-range-indicators", true);
+        maxDistance = Math.max(1, config.getDouble("networks.visualization.max-distance", 50));
+        density = Math.max(0.1, config.getDouble("networks.visualization.particle-density", 2));
+        fullDetailDistance = Math.max(1, config.getDouble("networks.visualization.full-detail-distance", 16));
+        particleBudget = Math.max(1, config.getInt("networks.visualization.particle-budget", 400));
+        geometry.clear();
+        
+        long intervalTicks = Math.max(1, config.getLong("networks.visualization.update-interval-ticks", 10));
+        drawTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::draw, 20L, intervalTicks);
+    }
+    
+    public void stop() {
+        if (drawTask != null) {
+            drawTask.cancel();
+            drawTask = null;
+        }
+    }
+    
+    public void shutdown() {
+        stop();
+        viewers.clear();
+        geometry.clear();
+    }
+    
+    public boolean toggle(UUID playerUuid) {
+        if (viewers.remove(playerUuid)) {
+            return false;
+        }
+        viewers.add(playerUuid);
+        return true;
+    }
+    
+    public void invalidate(int networkId) {
+        geometry.remove(networkId);
+    }
+    
+    public void invalidateAll() {
+        geometry.clear();
+    }
+    
+    public int getViewerCount() {
+        return viewers.size();
+    }
+    
+    private void draw() {
+        if (viewers.isEmpty()) return;
+        
+        for (UUID playerUuid : viewers) {
+            Player player = plugin.getServer().getPlayer(playerUuid);
+            if (player == null || !player.isOnline()) {
+                viewers.remove(playerUuid);
+                continue;
+            }
+            drawFor(player);
+        }
+    }
+    
+    private void drawFor(Player player) {
+        Location location = player.getLocation();
+        World world = location.getWorld();
+        double x = location.getX();
+        double y = location.getY();
+        double z = location.getZ();
+        
+        List<Visible> visible = new ArrayList<>();
+        for (NetworkBlock network : networkManager.getPlayerNetworks(player.getUniqueId())) {
+            if (network.getLocation().getWorld() != world) continue;
+            
+            Geometry cached = geometryFor(network);
+            for (Shape shape : cached.shapes) {
+                if (shape.circle && !showRange) continue;
+                
+                // Shapes outside the view distance are culled before anything is sent
+                double distance = shape.distanceTo(x, y, z);
+                if (distance <= maxDistance) {
+                    visible.add(new Visible(shape, cached.color, distance));
+                }
+            }
+        }
+        
+        // Nearest shapes spend the budget first, so a tight budget trims the far end of the view
+        visible.sort(Comparator.comparingDouble(v -> v.distance));
+        
+        int remaining = particleBudget;
+        for (Visible entry : visible) {
+            if (remaining <= 0) break;
+            
+            // Past full detail the spacing grows with distance, twice as far gets half the particles
+            int stride = entry.distance <= fullDetailDistance ? 1 : (int) Math.ceil(entry.distance / fullDetailDistance);
+            remaining -= entry.shape.draw(player, entry.color, stride, remaining);
+        }
+    }
+    
+    private Geometry geometryFor(NetworkBlock network) {
+        Geometry cached = geometry.get(network.getNetworkId());
+        if (cached != null && (cached.complete || System.currentTimeMillis() - cached.builtAt < INCOMPLETE_REBUILD_MILLIS)) {
+            return cached;
+        }
+        
+        cached = build(network);
+        geometry.put(network.getNetworkId(), cached);
+        return cached;
+    }
+    
+    private Geometry build(NetworkBlock network) {
+        Location center = network.getLocation().clone().add(0.5, 0.5, 0.5);
+        List<Shape> shapes = new ArrayList<>();
+        
+        double radius = network.getRange();
+        double[] circle = new double[CIRCLE_POINTS * 3];
+        for (int i = 0; i < CIRCLE_POINTS; i++) {
+            double angle = i * (2 * Math.PI) / CIRCLE_POINTS;
+            circle[i * 3] = center.getX() + radius * Math.cos(angle);
+            circle[i * 3 + 1] = center.getY();
+            circle[i * 3 + 2] = center.getZ() + radius * Math.sin(angle);
+        }
+        shapes.add(new Shape(circle, center.getX(), center.getY(), center.getZ(), center.getX(), center.getY(), center.getZ(), radius));
+        
+        // Segments longer than the cap are never drawn, so members are found from the generators within it
+        GeneratorRegistry registry = plugin.getGeneratorManager().getRegistry();
+        Set<Integer> drawn = new HashSet<>();
+        for (Generator generator : plugin.getGeneratorManager().getSpatialQuery().within(center, MAX_SEGMENT_LENGTH)) {
+            Integer networkId = registry.getNetworkId(generator.getId());
+            if (networkId == null || networkId != network.getNetworkId()) continue;
+            
+            drawn.add(generator.getId());
+            Location target = generator.getLocation();
+            double toX = target.getX() + 0.5;
+            double toY = target.getY() + 0.5;
+            double toZ = target.getZ() + 0.5;
+            double dx = toX - center.getX();
+            double dy = toY - center.getY();
+            double dz = toZ - center.getZ();
+            double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            int count = (int) (length * density);
+            if (length > MAX_SEGMENT_LENGTH || count == 0) continue;
+            
+            double[] points = new double[count * 3];
+            for (int i = 0; i < count; i++) {
+                points[i * 3] = center.getX() + dx / count * i;
+                points[i * 3 + 1] = center.getY() + dy / count * i;
+                points[i * 3 + 2] = center.getZ() + dz / count * i;
+            }
+            shapes.add(new Shape(points, center.getX(), center.getY(), center.getZ(), toX, toY, toZ, 0));
+        }
+        
+        // Generators in unloaded chunks cannot be placed yet, the geometry is rebuilt after a while to pick them up
+        boolean complete = true;
+        Set<Integer> members = network.getConnectedGenerators();
+        if (drawn.size() < members.size()) {
+            for (int generatorId : members) {
+                if (!drawn.contains(generatorId) && registry.get(generatorId) == null) {
+                    complete = false;
+                    break;
+                }
+            }
+        }
+        
+        return new Geometry(tierColor(network.getTier()), shapes, complete, System.currentTimeMillis());
+    }
+    
+    private static Particle.DustOptions tierColor(NetworkTier tier) {
+        switch (tier) {
+            case BASIC:
+                return new Particle.DustOptions(org.bukkit.Color.RED, 1.0f);
+            case ADVANCED:
+                return new Particle.DustOptions(org.bukkit.Color.BLUE, 1.0f);
+            case ELITE:
+                return new Particle.DustOptions(org.bukkit.Color.YELLOW, 1.0f);
+            case ULTIMATE:
+                return new Particle.DustOptions(org.bukkit.Color.fromRGB(0, 255, 255), 1.0f);
+            case CELESTIAL:
+                return new Particle.DustOptions(org.bukkit.Color.PURPLE, 1.0f);
+            default:
+                return new Particle.DustOptions(org.bukkit.Color.WHITE, 1.0f);
+        }
+    }
+    
+    private static class Geometry {
+        final Particle.DustOptions color;
+        final List<Shape> shapes;
+        final boolean complete;
+        final long builtAt;
+        
+        Geometry(Particle.DustOptions color, List<Shape> shapes, boolean complete, long builtAt) {
+            this.color = color;
+            this.shapes = shapes;
+            this.complete = complete;
+            this.builtAt = builtAt;
+        }
+    }
+    
+    private static class Visible {
+        final Shape shape;
+        final Particle.DustOptions color;
+        final double distance;
+        
+        Visible(Shape shape, Particle.DustOptions color, double distance) {
+            this.shape = shape;
+            this.color = color;
+            this.distance = distance;
+        }
+    }
+    
+    private static class Shape {
+        // Interleaved x, y, z of every particle
+        final double[] points;
+        // A segment from a to b, or a circle of the given radius around a when a and b coincide
+        final double ax;
+        final double ay;
+        final double az;
+        final double bx;
+        final double by;
+        final double bz;
+        final double radius;
+        final boolean circle;
+        
+        Shape(double[] points, double ax, double ay, double az, double bx, double by, double bz, double radius) {
+            this.points = points;
+            this.ax = ax;
+            this.ay = ay;
+            this.az = az;
+            this.bx = bx;
+            this.by = by;
+            this.bz = bz;
+            this.radius = radius;
+            this.circle = radius > 0;
+        }
+        
+        double distanceTo(double x, double y, double z) {
+            double abx = bx - ax;
+            double aby = by - ay;
+            double abz = bz - az;
+            double lengthSquared = abx * abx + aby * aby + abz * abz;
+            double t = lengthSquared > 0 ? ((x - ax) * abx + (y - ay) * aby + (z - az) * abz) / lengthSquared : 0;
+            t = Math.max(0, Math.min(1, t));
+            
+            double dx = x - (ax + abx * t);
+            double dy = y - (ay + aby * t);
+            double dz = z - (az + abz * t);
+            return Math.max(0, Math.sqrt(dx * dx + dy * dy + dz * dz) - radius);
+        }
+        
+        int draw(Player player, Particle.DustOptions color, int stride, int limit) {
+            int sent = 0;
+            for (int i = 0; i < points.length && sent < limit; i += stride * 3) {
+                // Sent to the viewer alone rather than to everyone tracking the chunk
+                player.spawnParticle(Particle.REDSTONE, points[i], points[i + 1], points[i + 2], 1, 0, 0, 0, 0, color);
+                sent++;
+            }
+            return sent;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package id.rnggagib.blockmint.network.permissions;
 
 import id.rnggagib.BlockMint;
+import id.rnggagib.blockmint.database.ChangeFeed;
 import id.rnggagib.blockmint.network.NetworkBlock;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -11,6 +13,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
@@ -88,25 +91,25 @@ public class NetworkPermissionManager {
         }
         
         try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                "INSERT OR REPLACE INTO network_permissions (network_id, player_uuid, player_name, permission_level, joined_time, last_access) " +
-                "VALUES (?, ?, ?, ?, ?, ?)"
-            );
-            
             long currentTime = System.currentTimeMillis();
-            
-            stmt.setInt(1, networkId);
-            stmt.setString(2, playerUuid.toString());
-            stmt.setString(3, playerName);
-            stmt.setInt(4, permission.getLevel());
-            stmt.setLong(5, currentTime);
-            stmt.setLong(6, currentTime);
-            
-            int result = stmt.executeUpdate();
+            int result = plugin.getDatabaseManager().queryWithTransaction(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT OR REPLACE INTO network_permissions (network_id, player_uuid, player_name, permission_level, joined_time, last_access) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)")) {
+                    stmt.setInt(1, networkId);
+                    stmt.setString(2, playerUuid.toString());
+                    stmt.setString(3, playerName);
+                    stmt.setInt(4, permission.getLevel());
+                    stmt.setLong(5, currentTime);
+                    stmt.setLong(6, currentTime);
+                    return stmt.executeUpdate();
+                }
+            });
             
             if (result > 0) {
                 NetworkMember member = new NetworkMember(playerUuid, playerName, permission);
                 networkMembers.computeIfAbsent(networkId, k -> new ConcurrentHashMap<>()).put(playerUuid, member);
+                publishChange(networkId);
                 return true;
             }
             
@@ -129,20 +132,21 @@ public class NetworkPermissionManager {
         }
         
         try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                "DELETE FROM network_permissions WHERE network_id = ? AND player_uuid = ?"
-            );
-            
-            stmt.setInt(1, networkId);
-            stmt.setString(2, playerUuid.toString());
-            
-            int result = stmt.executeUpdate();
+            int result = plugin.getDatabaseManager().queryWithTransaction(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "DELETE FROM network_permissions WHERE network_id = ? AND player_uuid = ?")) {
+                    stmt.setInt(1, networkId);
+                    stmt.setString(2, playerUuid.toString());
+                    return stmt.executeUpdate();
+                }
+            });
             
             if (result > 0) {
                 Map<UUID, NetworkMember> members = networkMembers.get(networkId);
                 if (members != null) {
                     members.remove(playerUuid);
                 }
+                publishChange(networkId);
                 return true;
             }
             
@@ -160,21 +164,22 @@ public class NetworkPermissionManager {
         }
         
         try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                "UPDATE network_permissions SET permission_level = ? WHERE network_id = ? AND player_uuid = ?"
-            );
-            
-            stmt.setInt(1, permission.getLevel());
-            stmt.setInt(2, networkId);
-            stmt.setString(3, playerUuid.toString());
-            
-            int result = stmt.executeUpdate();
+            int result = plugin.getDatabaseManager().queryWithTransaction(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE network_permissions SET permission_level = ? WHERE network_id = ? AND player_uuid = ?")) {
+                    stmt.setInt(1, permission.getLevel());
+                    stmt.setInt(2, networkId);
+                    stmt.setString(3, playerUuid.toString());
+                    return stmt.executeUpdate();
+                }
+            });
             
             if (result > 0) {
                 Map<UUID, NetworkMember> members = networkMembers.get(networkId);
                 if (members != null && members.containsKey(playerUuid)) {
                     members.get(playerUuid).setPermission(permission);
                 }
+                publishChange(networkId);
                 return true;
             }
             
@@ -185,73 +190,66 @@ public class NetworkPermissionManager {
         return false;
     }
     
-    public boolean transferOwnership(int networkId, UUID newOwnerUuid, String newOwnerName) {
+    public CompletableFuture<Boolean> transferOwnership(int networkId, UUID newOwnerUuid, String newOwnerName) {
         NetworkBlock network = plugin.getNetworkManager().getNetworks().get(networkId);
         if (network == null) {
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
         
         UUID oldOwnerUuid = network.getOwner();
+        String oldOwnerName = plugin.getServer().getOfflinePlayer(oldOwnerUuid).getName();
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
         
-        try {
-            plugin.getDatabaseManager().getConnection().setAutoCommit(false);
-            
+        // One transaction on its own pooled connection, the shared connection never changes auto-commit
+        plugin.getDatabaseManager().executeTransactionAsync(conn -> {
             // Remove new owner from permissions if they exist
-            PreparedStatement removeStmt = plugin.getDatabaseManager().prepareStatement(
-                "DELETE FROM network_permissions WHERE network_id = ? AND player_uuid = ?"
-            );
-            removeStmt.setInt(1, networkId);
-            removeStmt.setString(2, newOwnerUuid.toString());
-            removeStmt.executeUpdate();
+            try (PreparedStatement removeStmt = conn.prepareStatement(
+                    "DELETE FROM network_permissions WHERE network_id = ? AND player_uuid = ?")) {
+                removeStmt.setInt(1, networkId);
+                removeStmt.setString(2, newOwnerUuid.toString());
+                removeStmt.executeUpdate();
+            }
             
             // Add old owner as ADMIN
-            PreparedStatement addStmt = plugin.getDatabaseManager().prepareStatement(
-                "INSERT OR REPLACE INTO network_permissions (network_id, player_uuid, player_name, permission_level, joined_time, last_access) " +
-                "VALUES (?, ?, ?, ?, ?, ?)"
-            );
-            
-            long currentTime = System.currentTimeMillis();
-            addStmt.setInt(1, networkId);
-            addStmt.setString(2, oldOwnerUuid.toString());
-            addStmt.setString(3, plugin.getServer().getOfflinePlayer(oldOwnerUuid).getName());
-            addStmt.setInt(4, NetworkPermission.ADMIN.getLevel());
-            addStmt.setLong(5, currentTime);
-            addStmt.setLong(6, currentTime);
-            addStmt.executeUpdate();
+            try (PreparedStatement addStmt = conn.prepareStatement(
+                    "INSERT OR REPLACE INTO network_permissions (network_id, player_uuid, player_name, permission_level, joined_time, last_access) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)")) {
+                long currentTime = System.currentTimeMillis();
+                addStmt.setInt(1, networkId);
+                addStmt.setString(2, oldOwnerUuid.toString());
+                addStmt.setString(3, oldOwnerName);
+                addStmt.setInt(4, NetworkPermission.ADMIN.getLevel());
+                addStmt.setLong(5, currentTime);
+                addStmt.setLong(6, currentTime);
+                addStmt.executeUpdate();
+            }
             
             // Update the network owner
-            PreparedStatement ownerStmt = plugin.getDatabaseManager().prepareStatement(
-                "UPDATE networks SET owner = ? WHERE id = ?"
-            );
-            ownerStmt.setString(1, newOwnerUuid.toString());
-            ownerStmt.setInt(2, networkId);
-            ownerStmt.executeUpdate();
-            
-            plugin.getDatabaseManager().getConnection().commit();
-            plugin.getDatabaseManager().getConnection().setAutoCommit(true);
+            try (PreparedStatement ownerStmt = conn.prepareStatement("UPDATE networks SET owner = ? WHERE id = ?")) {
+                ownerStmt.setString(1, newOwnerUuid.toString());
+                ownerStmt.setInt(2, networkId);
+                ownerStmt.executeUpdate();
+            }
+        }).whenComplete((ignored, error) -> plugin.getServer().getScheduler().runTask(plugin, () -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.SEVERE, "Error transferring network ownership", error);
+                result.complete(false);
+                return;
+            }
             
             // Update in-memory data
-            network.setOwner(newOwnerUuid);
+            plugin.getNetworkManager().setNetworkOwner(network, newOwnerUuid);
+            plugin.getNetworkManager().unparkCollections(networkId);
             
             Map<UUID, NetworkMember> members = networkMembers.computeIfAbsent(networkId, k -> new ConcurrentHashMap<>());
             members.remove(newOwnerUuid);
+            members.put(oldOwnerUuid, new NetworkMember(oldOwnerUuid, oldOwnerName, NetworkPermission.ADMIN));
             
-            NetworkMember oldOwnerMember = new NetworkMember(oldOwnerUuid, 
-                plugin.getServer().getOfflinePlayer(oldOwnerUuid).getName(), NetworkPermission.ADMIN);
-            members.put(oldOwnerUuid, oldOwnerMember);
-            
-            return true;
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Error transferring network ownership", e);
-            try {
-                plugin.getDatabaseManager().getConnection().rollback();
-                plugin.getDatabaseManager().getConnection().setAutoCommit(true);
-            } catch (SQLException ex) {
-                plugin.getLogger().log(Level.SEVERE, "Error rolling back transaction", ex);
-            }
-        }
-        
-        return false;
+            publishChange(networkId);
+            plugin.getDatabaseManager().getChangeFeed().publish(ChangeFeed.EntityType.NETWORK, networkId);
+            result.complete(true);
+        }));
+        return result;
     }
     
     public List<NetworkMember> getNetworkMembers(int networkId) {
@@ -292,36 +290,69 @@ public class NetworkPermissionManager {
             NetworkMember member = members.get(playerUuid);
             member.updateLastAccess();
             
-            // Update in database (less frequently, using a separate task would be better for performance)
-            try {
-                PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                    "UPDATE network_permissions SET last_access = ? WHERE network_id = ? AND player_uuid = ?"
-                );
-                
-                stmt.setLong(1, member.getLastAccess());
-                stmt.setInt(2, networkId);
-                stmt.setString(3, playerUuid.toString());
-                
-                stmt.executeUpdate();
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Error updating member last access time", e);
-            }
+            // Touched on every network interaction, so these ride along in the shared batch
+            plugin.getDatabaseManager().addBatchOperation(playerUuid,
+                    "UPDATE network_permissions SET last_access = ? WHERE network_id = ? AND player_uuid = ?",
+                    new Object[]{member.getLastAccess(), networkId, playerUuid.toString()});
         }
     }
     
     public void handleNetworkDeletion(int networkId) {
-        try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                "DELETE FROM network_permissions WHERE network_id = ?"
-            );
-            
-            stmt.setInt(1, networkId);
-            stmt.executeUpdate();
-            
-            networkMembers.remove(networkId);
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Error removing network permissions on deletion", e);
+        networkMembers.remove(networkId);
+        plugin.getDatabaseManager().executeTransactionAsync(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM network_permissions WHERE network_id = ?")) {
+                stmt.setInt(1, networkId);
+                stmt.executeUpdate();
+            }
+            plugin.getDatabaseManager().getChangeFeed().append(conn, ChangeFeed.EntityType.NETWORK_MEMBERS, List.of(networkId));
+        });
+    }
+    
+    private void publishChange(int networkId) {
+        plugin.getDatabaseManager().getChangeFeed().publish(ChangeFeed.EntityType.NETWORK_MEMBERS, networkId);
+    }
+    
+    public void applyRemoteChanges(int[] networkIds) {
+        if (networkIds.length == 0) return;
+        
+        plugin.getDatabaseManager().getExecutor().submit(conn -> readMembers(conn, networkIds)).whenComplete((members, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Could not reload network members changed on another server", error);
+                return;
+            }
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                // Whole member lists are swapped, so a network is never seen half reloaded
+                for (int networkId : networkIds) {
+                    Map<UUID, NetworkMember> loaded = members.get(networkId);
+                    if (loaded == null) {
+                        networkMembers.remove(networkId);
+                    } else {
+                        networkMembers.put(networkId, loaded);
+                    }
+                }
+            });
+        });
+    }
+    
+    private Map<Integer, Map<UUID, NetworkMember>> readMembers(Connection conn, int[] networkIds) throws SQLException {
+        Map<Integer, Map<UUID, NetworkMember>> members = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT player_uuid, player_name, permission_level, joined_time, last_access FROM network_permissions WHERE network_id = ?")) {
+            for (int networkId : networkIds) {
+                stmt.setInt(1, networkId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        UUID playerUuid = UUID.fromString(rs.getString("player_uuid"));
+                        NetworkMember member = new NetworkMember(playerUuid, rs.getString("player_name"),
+                                NetworkPermission.fromLevel(rs.getInt("permission_level")));
+                        member.setJoinedTime(rs.getLong("joined_time"));
+                        member.setLastAccess(rs.getLong("last_access"));
+                        members.computeIfAbsent(networkId, k -> new ConcurrentHashMap<>()).put(playerUuid, member);
+                    }
+                }
+            }
         }
+        return members;
     }
     
     public int getMemberCount(int networkId) {
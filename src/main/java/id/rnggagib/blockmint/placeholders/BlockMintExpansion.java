@@ -5,9 +5,6 @@ import id.rnggagib.blockmint.generators.Generator;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import org.bukkit.OfflinePlayer;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.UUID;
 
 public class BlockMintExpansion extends PlaceholderExpansion {
@@ -95,48 +92,27 @@ public class BlockMintExpansion extends PlaceholderExpansion {
     }
     
     private int countPlayerGenerators(UUID playerUUID) {
-        int count = 0;
-        for (Generator generator : plugin.getGeneratorManager().getActiveGenerators().values()) {
-            if (generator.getOwner().equals(playerUUID)) {
-                count++;
-            }
-        }
-        return count;
+        return plugin.getGeneratorManager().countPlayerGenerators(playerUUID);
     }
     
     private double getTotalEarnings(UUID playerUUID) {
-        try {
-            PreparedStatement stmt = plugin.getDatabaseManager().prepareStatement(
-                    "SELECT total_earnings FROM player_stats WHERE uuid = ?"
-            );
-            stmt.setString(1, playerUUID.toString());
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getDouble("total_earnings");
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Could not retrieve total earnings from database: " + e.getMessage());
-        }
-        return 0.0;
+        return plugin.getEconomyManager().getEarningsLedger().getTotalEarnings(playerUUID);
     }
     
     private long getNextCollectionTime(UUID playerUUID) {
         long nextCollection = -1;
         
-        for (Generator generator : plugin.getGeneratorManager().getActiveGenerators().values()) {
-            if (generator.getOwner().equals(playerUUID)) {
-                if (generator.canGenerate()) {
-                    return 0;
-                }
-                
-                long generationTime = generator.getType().getGenerationTime() * 1000;
-                long elapsed = System.currentTimeMillis() - generator.getLastGeneration();
-                long remaining = generationTime - elapsed;
-                
-                if (nextCollection == -1 || remaining < nextCollection) {
-                    nextCollection = remaining;
-                }
+        for (Generator generator : plugin.getGeneratorManager().getPlayerGenerators(playerUUID)) {
+            if (generator.canGenerate()) {
+                return 0;
+            }
+            
+            long generationTime = generator.getType().getGenerationTimeMillis();
+            long elapsed = System.currentTimeMillis() - generator.getLastGeneration();
+            long remaining = generationTime - elapsed;
+            
+            if (nextCollection == -1 || remaining < nextCollection) {
+                nextCollection = remaining;
             }
         }
         
@@ -145,8 +121,8 @@ public class BlockMintExpansion extends PlaceholderExpansion {
     
     private int countGeneratorType(UUID playerUUID, String typeId) {
         int count = 0;
-        for (Generator generator : plugin.getGeneratorManager().getActiveGenerators().values()) {
-            if (generator.getOwner().equals(playerUUID) && generator.getType().getId().equals(typeId)) {
+        for (Generator generator : plugin.getGeneratorManager().getPlayerGenerators(playerUUID)) {
+            if (generator.getType().getId().equals(typeId)) {
                 count++;
             }
         }
@@ -1,23 +1,28 @@
 package id.rnggagib.blockmint.tasks;
 
 import id.rnggagib.BlockMint;
+import id.rnggagib.blockmint.chunk.GeneratorChunkIndex;
+import id.rnggagib.blockmint.chunk.LongIntArrayMap;
+import id.rnggagib.blockmint.chunk.PlayerSpatialGrid;
 import id.rnggagib.blockmint.generators.Generator;
+import id.rnggagib.blockmint.generators.ReadinessScheduler;
 import id.rnggagib.blockmint.utils.DisplayManager;
 import org.bukkit.Color;
 import org.bukkit.Location;
 import org.bukkit.Particle;
 import org.bukkit.Sound;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import java.sql.PreparedStatement;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.Iterator;
 import org.bukkit.Chunk;
 
 public class GeneratorTask extends BukkitRunnable {
@@ -31,13 +36,23 @@ public class GeneratorTask extends BukkitRunnable {
     private final long particleInterval = 2000;
     
     // Performance optimization fields
-    private Map<String, List<Location>> regionMap = new ConcurrentHashMap<>();
-    private Iterator<String> regionIterator;
-    private int batchSize = 5;
+    private List<World> cursorWorlds = new ArrayList<>();
+    private int worldCursor = 0;
+    private long[] chunkKeys;
+    private int chunkCursor = 0;
+    private int idCursor = 0;
+    private final Deque<Generator> readyBacklog = new ArrayDeque<>();
+    private long tickBudgetNanos;
+    private final long minTickBudgetNanos;
+    private final long maxTickBudgetNanos;
+    private final double targetMspt;
     private int processingTick = 0;
     private final int SERVER_TPS_CHECK_INTERVAL = 20; // Check TPS every 20 ticks
-    private long lastPerformanceAdjust = 0;
-    private static final long PERFORMANCE_ADJUST_INTERVAL = 60000; // 1 minute
+    private static final long NETWORK_COLLECTION_INTERVAL = 5000;
+    private long lastNetworkCollection = System.currentTimeMillis();
+    private final PlayerSpatialGrid playerGrid = new PlayerSpatialGrid();
+    private static final double PLAYER_PROXIMITY_RANGE = 100.0; // Holograms further from players are not refreshed
+    private static final double EFFECT_VIEW_RANGE = 32.0; // Clients do not render particles beyond this
 
     public GeneratorTask(BlockMint plugin) {
         this.plugin = plugin;
@@ -45,44 +60,11 @@ public class GeneratorTask extends BukkitRunnable {
         this.showParticles = plugin.getConfigManager().getConfig().getBoolean("settings.visual-effects.show-particles", true);
         this.playSound = plugin.getConfigManager().getConfig().getBoolean("settings.visual-effects.play-sounds", true);
         this.collectionRange = plugin.getConfigManager().getConfig().getDouble("settings.auto-collect-range", 10.0);
-        
-        initializeRegionMap();
-    }
-    
-    private void initializeRegionMap() {
-        plugin.getLogger().info("Initializing generator regions for optimized processing...");
-        Map<Location, Generator> generators = plugin.getGeneratorManager().getActiveGenerators();
-        
-        for (Map.Entry<Location, Generator> entry : generators.entrySet()) {
-            Location loc = entry.getKey();
-            String regionKey = getRegionKey(loc);
-            
-            regionMap.computeIfAbsent(regionKey, k -> new ArrayList<>()).add(loc);
-        }
-        
-        plugin.getLogger().info("Initialized " + regionMap.size() + " generator regions");
-        regionIterator = regionMap.keySet().iterator();
-    }
-    
-    private String getRegionKey(Location location) {
-        return location.getWorld().getName() + ":" + (location.getBlockX() >> 4) / 3 + ":" + (location.getBlockZ() >> 4) / 3;
-    }
-    
-    public void addGeneratorToRegion(Location location) {
-        String regionKey = getRegionKey(location);
-        regionMap.computeIfAbsent(regionKey, k -> new ArrayList<>()).add(location);
-    }
-    
-    public void removeGeneratorFromRegion(Location location) {
-        String regionKey = getRegionKey(location);
-        List<Location> region = regionMap.get(regionKey);
-        if (region != null) {
-            region.remove(location);
-            if (region.isEmpty()) {
-                regionMap.remove(regionKey);
-                regionIterator = regionMap.keySet().iterator(); // Reset iterator
-            }
-        }
+        this.minTickBudgetNanos = toNanos(plugin.getConfigManager().getConfig().getDouble("settings.performance.min-tick-budget-ms", 0.5));
+        this.maxTickBudgetNanos = toNanos(plugin.getConfigManager().getConfig().getDouble("settings.performance.max-tick-budget-ms", 10.0));
+        this.tickBudgetNanos = Math.max(minTickBudgetNanos, Math.min(maxTickBudgetNanos,
+                toNanos(plugin.getConfigManager().getConfig().getDouble("settings.performance.tick-budget-ms", 2.0))));
+        this.targetMspt = plugin.getConfigManager().getConfig().getDouble("settings.performance.target-mspt", 45.0);
     }
 
     @Override
@@ -90,139 +72,158 @@ public class GeneratorTask extends BukkitRunnable {
         processingTick++;
         
         if (processingTick % SERVER_TPS_CHECK_INTERVAL == 0) {
-            adjustBatchSizeBasedOnTPS();
-        }
-        
-        if (System.currentTimeMillis() - lastPerformanceAdjust > PERFORMANCE_ADJUST_INTERVAL) {
-            redistributeRegions();
-            lastPerformanceAdjust = System.currentTimeMillis();
+            adjustBudgetBasedOnTickTime();
         }
         
-        processGeneratorBatch();
+        long deadline = System.nanoTime() + tickBudgetNanos;
+        playerGrid.rebuild(plugin.getServer().getOnlinePlayers());
+        processReadyGenerators(deadline);
+        processGeneratorBatch(deadline);
         
-        // Process network auto-collection every 5 ticks (approximately 0.25s)
-        if (processingTick % 5 == 0) {
+        // Network auto-collection keeps its 5 second cadence whatever period this task runs at
+        long now = System.currentTimeMillis();
+        if (now - lastNetworkCollection >= NETWORK_COLLECTION_INTERVAL) {
+            lastNetworkCollection = now;
             plugin.getNetworkManager().processNetworkAutoCollection();
         }
     }
     
-    private void processGeneratorBatch() {
-        if (!regionIterator.hasNext()) {
-            regionIterator = regionMap.keySet().iterator();
-            if (!regionIterator.hasNext()) return; // No regions
-        }
+    private void processReadyGenerators(long deadline) {
+        ReadinessScheduler readinessScheduler = plugin.getGeneratorManager().getReadinessScheduler();
+        readyBacklog.addAll(readinessScheduler.pollReady());
         
-        int processedRegions = 0;
-        while (regionIterator.hasNext() && processedRegions < batchSize) {
-            String regionKey = regionIterator.next();
-            List<Location> locations = regionMap.get(regionKey);
+        // Always make some progress so the backlog cannot starve under heavy lag
+        boolean first = true;
+        while (!readyBacklog.isEmpty() && (first || System.nanoTime() < deadline)) {
+            first = false;
+            Generator generator = readyBacklog.poll();
+            Location location = generator.getLocation();
             
-            if (locations == null || locations.isEmpty()) continue;
+            // Skip generators that were removed or replaced since they were queued
+            if (plugin.getGeneratorManager().getGenerator(location) != generator) continue;
             
-            boolean shouldProcess = false;
-            Location checkLoc = locations.get(0);
+            // Networked generators wait in their network's queue, which collects them even with the chunk unloaded
+            if (generator.canGenerate() && plugin.getNetworkManager() != null && plugin.getNetworkManager().offerReady(generator)) {
+                continue;
+            }
             
-            if (checkLoc.getWorld() != null && 
-                checkLoc.getWorld().isChunkLoaded(checkLoc.getBlockX() >> 4, checkLoc.getBlockZ() >> 4)) {
-                shouldProcess = true;
-                
-                // Check if any players are nearby to prioritize processing
-                for (Player player : checkLoc.getWorld().getPlayers()) {
-                    if (player.getLocation().distance(checkLoc) <= 100) {
-                        shouldProcess = true;
-                        break;
-                    }
-                }
+            // Unloaded generators stay parked until their chunk loads again
+            if (location.getWorld() == null || 
+                !location.getWorld().isChunkLoaded(location.getBlockX() >> 4, location.getBlockZ() >> 4)) {
+                continue;
             }
             
-            if (shouldProcess) {
-                for (Location location : new ArrayList<>(locations)) {
-                    processGenerator(location);
-                }
+            if (!generator.canGenerate()) {
+                readinessScheduler.schedule(generator);
+                continue;
             }
             
-            processedRegions++;
-        }
-    }
-    
-    private void processGenerator(Location location) {
-        if (location.getWorld() == null || 
-            !location.getWorld().isChunkLoaded(location.getBlockX() >> 4, location.getBlockZ() >> 4)) {
-            return;
-        }
-        
-        Generator generator = plugin.getGeneratorManager().getActiveGenerators().get(location);
-        if (generator == null) return;
-        
-        if (generator.canGenerate()) {
             if (autoCollect) {
                 handleAutoCollect(location, generator);
             } else {
                 showReadyEffects(location, generator);
             }
+            
+            // Still uncollected, check back when the next ready effect is due
+            if (generator.canGenerate() && (autoCollect || showParticles || playSound)) {
+                readinessScheduler.scheduleAfter(generator, particleInterval);
+            }
+            
+            DisplayManager.updateHologram(plugin, generator);
         }
-        
-        DisplayManager.updateHologram(plugin, generator);
     }
     
-    private void adjustBatchSizeBasedOnTPS() {
-        // Bukkit/Spigot API does not provide getTPS() directly; set to 20.0 or use a TPS utility if available
-        double tps = 20.0; // Assume perfect TPS, or replace with actual TPS retrieval if available
-        
-        if (tps >= 19.5) {
-            // Server is running smoothly, increase batch size
-            batchSize = Math.min(batchSize + 1, 20);
-        } else if (tps < 17) {
-            // Server is struggling, reduce batch size
-            batchSize = Math.max(1, batchSize - 1);
+    private void processGeneratorBatch(long deadline) {
+        if (worldCursor >= cursorWorlds.size()) {
+            resetChunkCursor();
+            if (cursorWorlds.isEmpty()) return; // No generators
         }
-    }
-    
-    private void redistributeRegions() {
-        plugin.getLogger().fine("Redistributing generator regions for balanced processing...");
         
-        // Rebuild the region map to account for newly placed or removed generators
-        Map<String, List<Location>> newRegionMap = new ConcurrentHashMap<>();
-        Map<Location, Generator> generators = plugin.getGeneratorManager().getActiveGenerators();
+        GeneratorChunkIndex chunkIndex = plugin.getGeneratorManager().getChunkIndex();
         
-        for (Map.Entry<Location, Generator> entry : generators.entrySet()) {
-            Location loc = entry.getKey();
-            String regionKey = getRegionKey(loc);
+        while (worldCursor < cursorWorlds.size() && System.nanoTime() < deadline) {
+            World world = cursorWorlds.get(worldCursor);
+            LongIntArrayMap index = chunkIndex.getWorldIndex(world);
+            if (index != null && chunkKeys == null) {
+                // Slots shift on rehash and removal, so the sweep walks the keys as they were when it reached this world
+                chunkKeys = index.keys();
+            }
             
-            newRegionMap.computeIfAbsent(regionKey, k -> new ArrayList<>()).add(loc);
-        }
-        
-        // Balance regions if they're too large
-        Map<String, List<Location>> balancedMap = new ConcurrentHashMap<>();
-        int maxPerRegion = 50; // Maximum generators per region
-        
-        for (Map.Entry<String, List<Location>> entry : newRegionMap.entrySet()) {
-            String key = entry.getKey();
-            List<Location> locations = entry.getValue();
+            if (index == null || chunkCursor >= chunkKeys.length) {
+                worldCursor++;
+                chunkKeys = null;
+                chunkCursor = 0;
+                idCursor = 0;
+                continue;
+            }
             
-            if (locations.size() <= maxPerRegion) {
-                balancedMap.put(key, locations);
-            } else {
-                // Split this region into smaller ones
-                int subRegionCount = (locations.size() / maxPerRegion) + 1;
-                for (int i = 0; i < locations.size(); i++) {
-                    String subKey = key + ":" + (i % subRegionCount);
-                    balancedMap.computeIfAbsent(subKey, k -> new ArrayList<>()).add(locations.get(i));
+            long chunkKey = chunkKeys[chunkCursor];
+            int[] generatorIds = index.get(chunkKey);
+            
+            if (generatorIds == null || 
+                !world.isChunkLoaded(GeneratorChunkIndex.chunkX(chunkKey), GeneratorChunkIndex.chunkZ(chunkKey))) {
+                advanceChunkCursor();
+                continue;
+            }
+            
+            // Nobody close enough to see these holograms, leave them for a later sweep
+            if (idCursor == 0 && !playerGrid.hasPlayerNear(world, 
+                    (GeneratorChunkIndex.chunkX(chunkKey) << 4) + 8, (GeneratorChunkIndex.chunkZ(chunkKey) << 4) + 8, PLAYER_PROXIMITY_RANGE)) {
+                advanceChunkCursor();
+                continue;
+            }
+            
+            while (idCursor < generatorIds.length && System.nanoTime() < deadline) {
+                Generator generator = plugin.getGeneratorManager().findGeneratorById(generatorIds[idCursor++]);
+                if (generator != null) {
+                    DisplayManager.updateHologram(plugin, generator);
                 }
             }
+            
+            // Out of budget mid-chunk, pick up from the same generator next tick
+            if (idCursor < generatorIds.length) {
+                return;
+            }
+            
+            advanceChunkCursor();
         }
+    }
+    
+    private void advanceChunkCursor() {
+        chunkCursor++;
+        idCursor = 0;
+    }
+    
+    private void resetChunkCursor() {
+        cursorWorlds = plugin.getGeneratorManager().getChunkIndex().getIndexedWorlds();
+        worldCursor = 0;
+        chunkKeys = null;
+        chunkCursor = 0;
+        idCursor = 0;
+    }
+    
+    private void adjustBudgetBasedOnTickTime() {
+        TickMonitor tickMonitor = plugin.getTickMonitor();
+        if (tickMonitor == null) return;
         
-        regionMap = balancedMap;
-        regionIterator = regionMap.keySet().iterator();
-        plugin.getLogger().fine("Region redistribution complete: " + regionMap.size() + " regions");
+        if (tickMonitor.isOverloaded(targetMspt)) {
+            // Server is struggling, back off quickly
+            tickBudgetNanos = Math.max(minTickBudgetNanos, tickBudgetNanos / 2);
+        } else if (tickMonitor.hasHeadroom(targetMspt)) {
+            // Server has spare time, grow the budget gradually
+            tickBudgetNanos = Math.min(maxTickBudgetNanos, tickBudgetNanos + minTickBudgetNanos / 2);
+        }
     }
-
+    
+    private static long toNanos(double millis) {
+        return (long) (millis * 1_000_000L);
+    }
+    
     private void handleAutoCollect(Location location, Generator generator) {
         UUID ownerUUID = generator.getOwner();
-        Player owner = plugin.getServer().getPlayer(ownerUUID);
+        Player owner = playerGrid.getPlayerWithin(ownerUUID, location, collectionRange);
         
-        if (owner != null && owner.isOnline() && owner.getLocation().getWorld() == location.getWorld() 
-                && owner.getLocation().distance(location) <= collectionRange) {
+        if (owner != null && owner.isOnline()) {
             
             double value = generator.getValue();
             plugin.getEconomy().depositPlayer(owner, value);
@@ -252,6 +253,10 @@ public class GeneratorTask extends BukkitRunnable {
         Long lastEffect = lastParticleEffect.get(location);
         
         if (lastEffect == null || (now - lastEffect) > particleInterval) {
+            if (!playerGrid.hasPlayerWithin(location, EFFECT_VIEW_RANGE)) {
+                return;
+            }
+            
             if (showParticles) {
                 spawnReadyParticles(location);
             }
@@ -301,14 +306,22 @@ public class GeneratorTask extends BukkitRunnable {
     }
 
     private void updatePlayerEarningsBatched(UUID playerUUID, double amount) {
-        plugin.getDatabaseManager().addBatchOperation(
-            playerUUID, 
-            "UPDATE player_stats SET total_earnings = total_earnings + ? WHERE uuid = ?",
-            new Object[]{amount, playerUUID.toString()}
-        );
+        plugin.getEconomyManager().getEarningsLedger().record(playerUUID, amount);
+    }
+    
+    public double getTickBudgetMillis() {
+        return tickBudgetNanos / 1_000_000.0;
+    }
+    
+    public int getReadyBacklogSize() {
+        return readyBacklog.size();
+    }
+    
+    public PlayerSpatialGrid getPlayerGrid() {
+        return playerGrid;
     }
     
-    public void refreshRegions() {
-        initializeRegionMap();
+    public int getIndexedChunkCount() {
+        return plugin.getGeneratorManager().getChunkIndex().getChunkCount();
     }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package id.rnggagib.blockmint.tasks;
+
+import id.rnggagib.BlockMint;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.Method;
+import java.util.logging.Level;
+
+public class TickMonitor {
+
+    private static final double TICK_MILLIS = 50.0;
+    private static final double SMOOTHING = 0.1;
+
+    private final BlockMint plugin;
+    private Method averageTickTimeMethod;
+    private Method tpsMethod;
+    private BukkitTask samplerTask;
+    private long lastTickNanos;
+    private double sampledMspt = TICK_MILLIS;
+
+    public TickMonitor(BlockMint plugin) {
+        this.plugin = plugin;
+        resolveServerMethods();
+    }
+
+    private void resolveServerMethods() {
+        // Paper exposes real tick timings, Spigot does not
+        try {
+            averageTickTimeMethod = plugin.getServer().getClass().getMethod("getAverageTickTime");
+            tpsMethod = plugin.getServer().getClass().getMethod("getTPS");
+        } catch (NoSuchMethodException e) {
+            averageTickTimeMethod = null;
+            tpsMethod = null;
+        }
+    }
+
+    public void start() {
+        stop();
+
+        lastTickNanos = System.nanoTime();
+        samplerTask = plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
+            long now = System.nanoTime();
+            double elapsedMillis = (now - lastTickNanos) / 1_000_000.0;
+            lastTickNanos = now;
+            sampledMspt += (elapsedMillis - sampledMspt) * SMOOTHING;
+        }, 1L, 1L);
+    }
+
+    public void stop() {
+        if (samplerTask != null) {
+            samplerTask.cancel();
+            samplerTask = null;
+        }
+    }
+
+    public boolean isUsingServerTimings() {
+        return averageTickTimeMethod != null;
+    }
+
+    public double getMspt() {
+        if (averageTickTimeMethod != null) {
+            try {
+                return (double) averageTickTimeMethod.invoke(plugin.getServer());
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.FINE, "Server tick time unavailable, using sampler", e);
+                averageTickTimeMethod = null;
+            }
+        }
+        return sampledMspt;
+    }
+
+    public double getTps() {
+        if (tpsMethod != null) {
+            try {
+                double[] tps = (double[]) tpsMethod.invoke(plugin.getServer());
+                return Math.min(20.0, tps[0]);
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.FINE, "Server TPS unavailable, using sampler", e);
+                tpsMethod = null;
+            }
+        }
+        return Math.min(20.0, 1000.0 / Math.max(TICK_MILLIS, sampledMspt));
+    }
+
+    public boolean isOverloaded(double targetMspt) {
+        if (isUsingServerTimings()) {
+            return getMspt() > targetMspt;
+        }
+        // The sampler only sees the time between ticks, which stretches past 50ms once ticks overrun
+        return sampledMspt > TICK_MILLIS * 1.05;
+    }
+
+    public boolean hasHeadroom(double targetMspt) {
+        if (isUsingServerTimings()) {
+            return getMspt() < targetMspt * 0.8;
+        }
+        return sampledMspt < TICK_MILLIS * 1.02;
+    }
+}
@@ -4,11 +4,13 @@ import id.rnggagib.BlockMint;
 import id.rnggagib.blockmint.generators.Generator;
 import id.rnggagib.blockmint.generators.GeneratorType;
 import id.rnggagib.blockmint.network.NetworkBlock;
+import id.rnggagib.blockmint.tasks.GeneratorTask;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
+import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.ArmorStand;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
@@ -39,15 +41,24 @@ public class DisplayManager {
     
     private static final Map<Location, List<Entity>> holograms = new HashMap<>();
     private static final Map<Location, Item> displayItems = new HashMap<>();
-    private static final Map<Location, BukkitTask> anchorTasks = new HashMap<>();
+    private static final Map<Location, AnchorEntry> anchors = new HashMap<>();
+    private static final List<List<AnchorEntry>> anchorShards = new ArrayList<>();
     private static final Map<Location, UUID> hologramIds = new HashMap<>();
     private static final Map<UUID, HologramTemplate> hologramTemplates = new HashMap<>();
     private static final Map<Location, HologramAnimation> hologramAnimations = new HashMap<>();
+    // Per frame delay, one shard per tick of the delay, so animations sharing a delay do not all change on the same tick
+    private static final Map<Long, List<List<HologramAnimation>>> animationShards = new HashMap<>();
+    private static final Map<Location, HologramContent> hologramContents = new HashMap<>();
     private static final Map<UUID, Set<UUID>> playerVisibilityOverrides = new ConcurrentHashMap<>();
     private static final int CLEANUP_INTERVAL = 6000;
     private static final int VERIFICATION_INTERVAL = 1200;
     private static BlockMint plugin;
     private static NamespacedKey hologramKey;
+    private static DisplaySettings settings;
+    private static BukkitTask displayClock;
+    private static long clockTick;
+    private static int nextAnchorShard;
+    private static int nextAnimationShard;
     
     public static class HologramTemplate {
         private final UUID templateId;
@@ -109,11 +120,12 @@ public class DisplayManager {
         private final List<String> frames;
         private final long frameDelay;
         private int currentFrame;
-        private BukkitTask animationTask;
+        private ArmorStand stand;
+        private boolean scheduled;
         
         public HologramAnimation(List<String> frames, long frameDelay) {
             this.frames = frames;
-            this.frameDelay = frameDelay;
+            this.frameDelay = Math.max(1, frameDelay);
             this.currentFrame = 0;
         }
         
@@ -126,26 +138,73 @@ public class DisplayManager {
         }
         
         public void startAnimation(BlockMint plugin, Location location, ArmorStand stand) {
-            stopAnimation();
+            // Frames are advanced by the shared display clock
+            this.stand = stand;
+            if (!scheduled) {
+                scheduled = true;
+                addToAnimationShard(this);
+            }
+        }
+        
+        // Runs once every frameDelay ticks, returns false once the animation has stopped
+        private boolean tick() {
+            if (stand == null) {
+                scheduled = false;
+                return false;
+            }
             
-            animationTask = plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
-                if (stand != null && !stand.isDead()) {
-                    stand.setCustomName(frames.get(currentFrame));
-                    nextFrame();
-                } else {
-                    stopAnimation();
-                }
-            }, frameDelay, frameDelay);
+            if (stand.isDead()) {
+                stopAnimation();
+                scheduled = false;
+                return false;
+            }
+            if (hasNearbyViewer(stand.getLocation())) {
+                stand.setCustomName(frames.get(currentFrame));
+                nextFrame();
+            }
+            return true;
         }
         
         public void stopAnimation() {
-            if (animationTask != null) {
-                animationTask.cancel();
-                animationTask = null;
-            }
+            stand = null;
         }
     }
     
+    private static class AnchorEntry {
+        private final Location location;
+        private final boolean rotate;
+        private boolean cancelled;
+        
+        private AnchorEntry(Location location, boolean rotate) {
+            this.location = location;
+            this.rotate = rotate;
+        }
+    }
+    
+    private static class DisplaySettings {
+        private final double heightOffset;
+        private final int rotationSpeed;
+        private final int anchorFrequency;
+        private final double viewRange;
+        
+        private DisplaySettings(FileConfiguration config) {
+            this.heightOffset = config.getDouble("settings.display-item.height-offset", 1.2);
+            this.rotationSpeed = config.getInt("settings.display-item.rotation-speed", 2);
+            this.anchorFrequency = Math.max(1, config.getInt("settings.display-item.anchor-frequency", 20));
+            this.viewRange = config.getDouble("settings.display-item.view-range", 48.0);
+        }
+    }
+    
+    // Last text pushed to a generator hologram, so unchanged lines never reach the entity
+    private static class HologramContent {
+        private GeneratorType type;
+        private char networkTier;
+        private int level = -1;
+        private long displayedSeconds = Long.MIN_VALUE;
+        private String nameLine;
+        private String infoLine;
+    }
+    
     public static void initialize(BlockMint pluginInstance) {
         plugin = pluginInstance;
         hologramKey = new NamespacedKey(plugin, "blockmint_hologram");
@@ -154,6 +213,12 @@ public class DisplayManager {
         
         cleanupOrphanedHolograms();
         loadDefaultTemplates();
+        reloadSettings();
+        
+        if (displayClock != null) {
+            displayClock.cancel();
+        }
+        displayClock = plugin.getServer().getScheduler().runTaskTimer(plugin, DisplayManager::tickDisplayClock, 1L, 1L);
         
         plugin.getServer().getScheduler().runTaskTimer(plugin, 
             DisplayManager::verifyHologramIntegrity, VERIFICATION_INTERVAL, VERIFICATION_INTERVAL);
@@ -162,6 +227,78 @@ public class DisplayManager {
             DisplayManager::cleanupOrphanedHolograms, CLEANUP_INTERVAL, CLEANUP_INTERVAL);
     }
     
+    public static void reloadSettings() {
+        settings = new DisplaySettings(plugin.getConfigManager().getConfig());
+        if (anchorShards.size() == settings.anchorFrequency) {
+            return;
+        }
+        
+        // Redistribute the live anchors over the new number of shards
+        anchorShards.clear();
+        for (int i = 0; i < settings.anchorFrequency; i++) {
+            anchorShards.add(new ArrayList<>());
+        }
+        nextAnchorShard = 0;
+        for (AnchorEntry entry : anchors.values()) {
+            addToShard(entry);
+        }
+    }
+    
+    private static void tickDisplayClock() {
+        clockTick++;
+        
+        // Each hologram is anchored once every anchor-frequency ticks, spread evenly across ticks
+        List<AnchorEntry> shard = anchorShards.get((int) (clockTick % anchorShards.size()));
+        for (int i = shard.size() - 1; i >= 0; i--) {
+            AnchorEntry entry = shard.get(i);
+            if (entry.cancelled) {
+                int last = shard.size() - 1;
+                shard.set(i, shard.get(last));
+                shard.remove(last);
+                continue;
+            }
+            
+            Location location = entry.location;
+            if (location.getWorld() == null 
+                    || !location.getWorld().isChunkLoaded(location.getBlockX() >> 4, location.getBlockZ() >> 4)
+                    || !hasNearbyViewer(location)) {
+                continue;
+            }
+            anchorItemExactly(location, entry.rotate);
+        }
+        
+        // Animations are spread over their frame delay the same way, stopped ones are dropped when reached
+        for (Map.Entry<Long, List<List<HologramAnimation>>> entry : animationShards.entrySet()) {
+            List<HologramAnimation> due = entry.getValue().get((int) (clockTick % entry.getKey()));
+            for (int i = due.size() - 1; i >= 0; i--) {
+                if (!due.get(i).tick()) {
+                    int last = due.size() - 1;
+                    due.set(i, due.get(last));
+                    due.remove(last);
+                }
+            }
+        }
+    }
+    
+    private static void addToAnimationShard(HologramAnimation animation) {
+        List<List<HologramAnimation>> shards = animationShards.computeIfAbsent(animation.frameDelay, delay -> {
+            List<List<HologramAnimation>> created = new ArrayList<>();
+            for (int i = 0; i < delay; i++) {
+                created.add(new ArrayList<>());
+            }
+            return created;
+        });
+        shards.get(Math.floorMod(nextAnimationShard++, shards.size())).add(animation);
+    }
+    
+    private static boolean hasNearbyViewer(Location location) {
+        GeneratorTask generatorTask = plugin.getGeneratorTask();
+        if (generatorTask == null) {
+            return true;
+        }
+        return generatorTask.getPlayerGrid().hasPlayerNear(location.getWorld(), location.getX(), location.getZ(), settings.viewRange);
+    }
+    
     private static void loadDefaultTemplates() {
         List<String> generatorLines = new ArrayList<>();
         generatorLines.add("{name} Generator");
@@ -355,11 +492,8 @@ public class DisplayManager {
             holograms.remove(location);
             hologramIds.remove(location);
             displayItems.remove(location);
-            
-            BukkitTask task = anchorTasks.remove(location);
-            if (task != null) {
-                task.cancel();
-            }
+            hologramContents.remove(location);
+            cancelAnchor(location);
         }
         
         if (!locationsToRemove.isEmpty()) {
@@ -518,12 +652,15 @@ public class DisplayManager {
     }
     
     public static void createHologram(BlockMint plugin, Location location, GeneratorType type, int level) {
+        if (settings == null) {
+            reloadSettings();
+        }
         removeNearbyHolograms(location, 1.0);
         removeHologram(location);
         
         Location baseLocation = location.clone();
         Location hologramLoc = baseLocation.clone().add(0.5, 
-                plugin.getConfigManager().getConfig().getDouble("settings.display-item.height-offset", 1.2), 
+                settings.heightOffset, 
                 0.5);
         
         String ownerName;
@@ -634,23 +771,27 @@ public class DisplayManager {
     }
     
     private static void scheduleAnchorTask(Location location, boolean shouldRotate) {
-        if (anchorTasks.containsKey(location) && anchorTasks.get(location) != null) {
-            anchorTasks.get(location).cancel();
+        if (settings == null) {
+            reloadSettings();
         }
+        cancelAnchor(location);
         
-        int anchorFrequency = plugin.getConfigManager().getConfig().getInt("settings.display-item.anchor-frequency", 20);
-        BukkitTask task = plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
-            if (holograms.containsKey(location)) {
-                anchorItemExactly(location, shouldRotate);
-            } else {
-                if (anchorTasks.containsKey(location)) {
-                    anchorTasks.get(location).cancel();
-                    anchorTasks.remove(location);
-                }
-            }
-        }, 5L, anchorFrequency);
-        
-        anchorTasks.put(location, task);
+        AnchorEntry entry = new AnchorEntry(location, shouldRotate);
+        anchors.put(location, entry);
+        addToShard(entry);
+    }
+    
+    private static void addToShard(AnchorEntry entry) {
+        anchorShards.get(nextAnchorShard).add(entry);
+        nextAnchorShard = (nextAnchorShard + 1) % anchorShards.size();
+    }
+    
+    private static void cancelAnchor(Location location) {
+        // Cancelled entries are dropped from their shard the next time the clock reaches it
+        AnchorEntry entry = anchors.remove(location);
+        if (entry != null) {
+            entry.cancelled = true;
+        }
     }
     
     private static void removeNearbyHolograms(Location center, double radius) {
@@ -672,13 +813,7 @@ public class DisplayManager {
                     }
                 }
                 
-                if (anchorTasks.containsKey(location)) {
-                    BukkitTask task = anchorTasks.get(location);
-                    if (task != null) {
-                        task.cancel();
-                    }
-                    anchorTasks.remove(location);
-                }
+                cancelAnchor(location);
                 
                 if (hologramAnimations.containsKey(location)) {
                     HologramAnimation animation = hologramAnimations.get(location);
@@ -688,6 +823,7 @@ public class DisplayManager {
                 
                 displayItems.remove(location);
                 hologramIds.remove(location);
+                hologramContents.remove(location);
                 iterator.remove();
             }
         }
@@ -713,25 +849,39 @@ public class DisplayManager {
                     return;
                 }
                 
-                String name = generator.getType().getName() + " Generator";
-                String level = "Level " + generator.getLevel() + "/" + generator.getType().getMaxLevel();
+                HologramContent content = hologramContents.computeIfAbsent(location, l -> new HologramContent());
+                GeneratorType type = generator.getType();
                 
                 NetworkBlock network = plugin.getNetworkManager().getGeneratorNetwork(generator.getId());
-                String networkInfo = "";
-                if (network != null) {
-                    networkInfo = " §7[§b⚡ " + network.getTier().name().charAt(0) + "§7]";
-                }
+                char networkTier = network != null ? network.getTier().name().charAt(0) : 0;
+                boolean typeChanged = content.type != type;
                 
-                nameStand.setCustomName("§6§l" + name + networkInfo);
+                if (typeChanged || content.networkTier != networkTier) {
+                    String networkInfo = networkTier != 0 ? " §7[§b⚡ " + networkTier + "§7]" : "";
+                    content.type = type;
+                    content.networkTier = networkTier;
+                    content.nameLine = pushLine(nameStand, content.nameLine, "§6§l" + type.getName() + " Generator" + networkInfo);
+                }
                 
-                if (generator.canGenerate()) {
-                    infoStand.setCustomName("§a✓ Ready to collect!");
-                } else {
+                // Countdowns only change the text once per displayed unit, so compare at that granularity
+                long seconds = -1;
+                if (!generator.canGenerate()) {
                     long elapsed = System.currentTimeMillis() - generator.getLastGeneration();
-                    long total = generator.getType().getGenerationTime() * 1000;
-                    long remaining = total - elapsed;
+                    long total = type.getGenerationTimeMillis();
+                    seconds = quantiseSeconds((total - elapsed) / 1000);
+                }
+                
+                if (typeChanged || content.level != generator.getLevel() || content.displayedSeconds != seconds) {
+                    content.level = generator.getLevel();
+                    content.displayedSeconds = seconds;
                     
-                    infoStand.setCustomName("§e" + level + " §7| §f" + formatTime(remaining / 1000));
+                    String infoLine;
+                    if (seconds < 0) {
+                        infoLine = "§a✓ Ready to collect!";
+                    } else {
+                        infoLine = "§eLevel " + content.level + "/" + type.getMaxLevel() + " §7| §f" + formatTime(seconds);
+                    }
+                    content.infoLine = pushLine(infoStand, content.infoLine, infoLine);
                 }
             } else {
                 createGeneratorHologram(location, generator.getType(), generator.getLevel());
@@ -744,6 +894,22 @@ public class DisplayManager {
         }
     }
     
+    private static String pushLine(ArmorStand stand, String current, String line) {
+        // Every setCustomName sends a metadata packet to all tracking players
+        if (!line.equals(current)) {
+            stand.setCustomName(line);
+        }
+        return line;
+    }
+    
+    private static long quantiseSeconds(long seconds) {
+        if (seconds < 0) {
+            return 0;
+        }
+        // Above an hour formatTime only shows minutes
+        return seconds >= 3600 ? seconds - seconds % 60 : seconds;
+    }
+    
     private static String formatTime(long seconds) {
         if (seconds < 0) seconds = 0;
         
@@ -780,15 +946,13 @@ public class DisplayManager {
         
         Item item = displayItems.get(blockLocation);
         
-        double heightOffset = plugin.getConfigManager().getConfig().getDouble("settings.display-item.height-offset", 1.2);
-        Location exactLoc = blockLocation.clone().add(0.5, heightOffset, 0.5);
+        Location exactLoc = blockLocation.clone().add(0.5, settings.heightOffset, 0.5);
         
         item.teleport(exactLoc);
         item.setVelocity(new Vector(0, 0, 0));
         
         if (shouldRotate) {
-            int rotationSpeed = plugin.getConfigManager().getConfig().getInt("settings.display-item.rotation-speed", 2);
-            item.setRotation(item.getLocation().getYaw() + rotationSpeed, 0);
+            item.setRotation(item.getLocation().getYaw() + settings.rotationSpeed, 0);
         }
     }
     
@@ -817,13 +981,7 @@ public class DisplayManager {
             }
         }
         
-        if (anchorTasks.containsKey(location)) {
-            BukkitTask task = anchorTasks.get(location);
-            if (task != null) {
-                task.cancel();
-            }
-            anchorTasks.remove(location);
-        }
+        cancelAnchor(location);
         
         if (hologramAnimations.containsKey(location)) {
             HologramAnimation animation = hologramAnimations.get(location);
@@ -834,6 +992,7 @@ public class DisplayManager {
         holograms.remove(location);
         displayItems.remove(location);
         hologramIds.remove(location);
+        hologramContents.remove(location);
     }
     
     public static void removeAllHolograms() {
@@ -845,21 +1004,22 @@ public class DisplayManager {
             }
         }
         
-        for (BukkitTask task : anchorTasks.values()) {
-            if (task != null) {
-                task.cancel();
-            }
+        for (AnchorEntry entry : anchors.values()) {
+            entry.cancelled = true;
         }
         
         for (HologramAnimation animation : hologramAnimations.values()) {
             animation.stopAnimation();
+            animation.scheduled = false;
         }
         
         holograms.clear();
         displayItems.clear();
-        anchorTasks.clear();
+        anchors.clear();
         hologramIds.clear();
         hologramAnimations.clear();
+        animationShards.clear();
+        hologramContents.clear();
     }
     
     private static void setupArmorStand(ArmorStand stand) {
@@ -0,0 +1,94 @@
+package id.rnggagib.blockmint.database;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeFeedMySqlTest {
+    
+    // Two servers on one MySQL-compatible database, the second with its own cache and managers
+    private Connection first;
+    private Connection second;
+    private ChangeFeed firstFeed;
+    private ChangeFeed secondFeed;
+    private DatabaseManager secondDatabase;
+    private final Map<ChangeFeed.EntityType, Set<String>> applied = new HashMap<>();
+    
+    @Before
+    public void setUp() throws Exception {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        first = DriverManager.getConnection(url);
+        second = DriverManager.getConnection(url);
+        
+        firstFeed = new ChangeFeed(null, new DatabaseManager(null));
+        firstFeed.open(first, true);
+        secondDatabase = new DatabaseManager(null);
+        secondFeed = new ChangeFeed(null, secondDatabase);
+        secondFeed.open(second, true);
+        for (ChangeFeed.EntityType type : ChangeFeed.EntityType.values()) {
+            secondFeed.setApplier(type, keys -> applied.put(type, keys));
+        }
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        first.close();
+        second.close();
+    }
+    
+    @Test
+    public void remoteChangesReachTheOtherNodesState() throws SQLException {
+        QueryCache cache = secondDatabase.getQueryCache();
+        cache.put("generators:7", "stale", Set.of("generators"), 60_000, cache.stamp(Set.of("generators")), 0);
+        cache.put("networks:3", "stale", Set.of("networks"), 60_000, cache.stamp(Set.of("networks")), 0);
+        cache.put("player_stats:x", "kept", Set.of("player_stats"), 60_000, cache.stamp(Set.of("player_stats")), 0);
+        
+        firstFeed.publish(ChangeFeed.EntityType.GENERATOR, 7);
+        firstFeed.publish(ChangeFeed.EntityType.NETWORK, 3);
+        poll(firstFeed, first);
+        
+        ChangeFeed.Poll received = poll(secondFeed, second);
+        secondFeed.apply(received.incoming);
+        
+        assertEquals(Set.of("7"), applied.get(ChangeFeed.EntityType.GENERATOR));
+        assertEquals(Set.of("3"), applied.get(ChangeFeed.EntityType.NETWORK));
+        assertNull(applied.get(ChangeFeed.EntityType.PLAYER));
+        assertNull(cache.get("generators:7"));
+        assertNull(cache.get("networks:3"));
+        assertNotNull(cache.get("player_stats:x"));
+    }
+    
+    @Test
+    public void ownChangesAreNotApplied() throws SQLException {
+        secondFeed.publish(ChangeFeed.EntityType.NETWORK_MEMBERS, 5);
+        assertTrue(poll(secondFeed, second).incoming.isEmpty());
+        
+        assertEquals(Set.of("5"), poll(firstFeed, first).incoming.get(ChangeFeed.EntityType.NETWORK_MEMBERS));
+        assertEquals(firstFeed.getCursor(), secondFeed.getCursor());
+    }
+    
+    private static ChangeFeed.Poll poll(ChangeFeed feed, Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            ChangeFeed.Poll poll = feed.exchange(conn, feed.drain(), true);
+            conn.commit();
+            feed.advance(poll);
+            return poll;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package id.rnggagib.blockmint.database;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeFeedTest {
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    // Two servers sharing one database file, each with its own connection
+    private Connection first;
+    private Connection second;
+    private ChangeFeed firstFeed;
+    private ChangeFeed secondFeed;
+    
+    @Before
+    public void setUp() throws Exception {
+        String url = "jdbc:sqlite:" + new File(folder.getRoot(), "shared.db").getAbsolutePath();
+        first = DriverManager.getConnection(url);
+        second = DriverManager.getConnection(url);
+        
+        firstFeed = new ChangeFeed(null, null);
+        firstFeed.open(first, false);
+        secondFeed = new ChangeFeed(null, null);
+        secondFeed.open(second, false);
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        first.close();
+        second.close();
+    }
+    
+    @Test
+    public void changesReachTheOtherNode() throws SQLException {
+        firstFeed.publish(ChangeFeed.EntityType.GENERATOR, 7);
+        firstFeed.publish(ChangeFeed.EntityType.NETWORK, 3);
+        assertTrue(poll(firstFeed, first).incoming.isEmpty());
+        
+        ChangeFeed.Poll received = poll(secondFeed, second);
+        assertEquals(Set.of("7"), received.incoming.get(ChangeFeed.EntityType.GENERATOR));
+        assertEquals(Set.of("3"), received.incoming.get(ChangeFeed.EntityType.NETWORK));
+        assertEquals(secondFeed.getCursor(), firstFeed.getCursor());
+    }
+    
+    @Test
+    public void changesAreAppliedOnce() throws SQLException {
+        secondFeed.publish(ChangeFeed.EntityType.PLAYER, "player");
+        poll(secondFeed, second);
+        
+        assertEquals(1, poll(firstFeed, first).incoming.size());
+        // Still inside the lookback window, but already seen
+        assertTrue(poll(firstFeed, first).incoming.isEmpty());
+        assertTrue(poll(secondFeed, second).incoming.isEmpty());
+    }
+    
+    @Test
+    public void rolledBackPollIsReadAgain() throws SQLException {
+        firstFeed.publish(ChangeFeed.EntityType.GENERATOR, 11);
+        poll(firstFeed, first);
+        long before = secondFeed.getCursor();
+        
+        second.setAutoCommit(false);
+        ChangeFeed.Poll lost = secondFeed.exchange(second, secondFeed.drain(), false);
+        second.rollback();
+        second.setAutoCommit(true);
+        assertEquals(1, lost.incoming.size());
+        assertEquals(before, secondFeed.getCursor());
+        
+        assertEquals(Set.of("11"), poll(secondFeed, second).incoming.get(ChangeFeed.EntityType.GENERATOR));
+    }
+    
+    @Test
+    public void rolledBackPublishIsNotSeen() throws SQLException {
+        first.setAutoCommit(false);
+        firstFeed.append(first, ChangeFeed.EntityType.NETWORK_MEMBERS, Set.of(5));
+        first.rollback();
+        first.setAutoCommit(true);
+        
+        assertNull(poll(secondFeed, second).incoming.get(ChangeFeed.EntityType.NETWORK_MEMBERS));
+    }
+    
+    @Test
+    public void laterNodeStartsAfterExistingChanges() throws SQLException {
+        firstFeed.publish(ChangeFeed.EntityType.GENERATOR, 1);
+        poll(firstFeed, first);
+        
+        ChangeFeed thirdFeed = new ChangeFeed(null, null);
+        thirdFeed.open(second, false);
+        assertEquals(firstFeed.getCursor(), thirdFeed.getStartPosition());
+        assertTrue(poll(thirdFeed, second).incoming.isEmpty());
+        assertEquals(1, poll(secondFeed, second).incoming.size());
+    }
+    
+    private static ChangeFeed.Poll poll(ChangeFeed feed, Connection conn) throws SQLException {
+        // Same steps as a scheduled poll: publish and read in one transaction, then move the cursor
+        conn.setAutoCommit(false);
+        try {
+            ChangeFeed.Poll poll = feed.exchange(conn, feed.drain(), true);
+            conn.commit();
+            feed.advance(poll);
+            return poll;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+}